@@ -0,0 +1,103 @@
+package analyzer.bench;
+
+import analyzer.ast.BufferCharStream;
+import analyzer.ast.JavaCharStream;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ast.ParserConstants;
+import analyzer.ast.ParserTokenManager;
+import analyzer.ast.Token;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Description: Compares the parser reading a file through JavaCharStream (Parser.ParseTree(new FileInputStream(...)),
+ * as Main does) with the same file read by BufferCharStream (Parser.ParseTree(Path)). The programs of
+ * ProgramGenerator are written to temporary files. For each size it prints the best time and throughput of the
+ * lexer alone and of the whole parse with each stream.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.CharStreamBenchmark -Dbench-args="[iterations [sizes...]]"
+ * The default is 10 iterations of MIXED programs of 1m, 4m and 16m.
+ */
+public class CharStreamBenchmark {
+
+    public static void main(String[] args) throws ParseException, IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String[] sizes = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[]{"1m", "4m", "16m"};
+        ProgramGenerator.Shape shape = ProgramGenerator.Shape.MIXED;
+        int width = ProgramGenerator.defaultWidth(shape);
+
+        System.out.println(String.format("%-8s %10s %20s %20s %20s %20s", "size", "bytes",
+                "stream lex", "buffer lex", "stream parse", "buffer parse"));
+
+        // A first small run warms up the JIT
+        Path warmup = write(ProgramGenerator.generate(shape, width, 1, 100_000));
+        run("warmup", warmup, iterations, false);
+        Files.delete(warmup);
+        for (String size : sizes) {
+            Path file = write(ProgramGenerator.generate(shape, width, 0, (int) ProgramGenerator.parseSize(size)));
+            try {
+                run(size, file, iterations, true);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void run(String name, Path file, int iterations, boolean print) throws ParseException, IOException {
+        long streamLex = Long.MAX_VALUE;
+        long bufferLex = Long.MAX_VALUE;
+        long streamParse = Long.MAX_VALUE;
+        long bufferParse = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            int streamTokens = lex(new JavaCharStream(new FileInputStream(file.toFile())));
+            streamLex = Math.min(streamLex, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int bufferTokens = lex(BufferCharStream.open(file));
+            bufferLex = Math.min(bufferLex, System.nanoTime() - start);
+            if (streamTokens != bufferTokens) {
+                throw new IllegalStateException("The streams do not give the same tokens for " + name);
+            }
+
+            start = System.nanoTime();
+            Parser.ParseTree(new FileInputStream(file.toFile()));
+            streamParse = Math.min(streamParse, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Parser.ParseTree(file);
+            bufferParse = Math.min(bufferParse, System.nanoTime() - start);
+        }
+
+        if (print) {
+            long bytes = Files.size(file);
+            System.out.println(String.format("%-8s %10d %20s %20s %20s %20s", name, bytes, rate(bytes, streamLex),
+                    rate(bytes, bufferLex), rate(bytes, streamParse), rate(bytes, bufferParse)));
+        }
+    }
+
+    // Reads every token of the stream and returns their number
+    private static int lex(JavaCharStream stream) {
+        ParserTokenManager tokens = new ParserTokenManager(stream);
+        int count = 0;
+        for (Token token = tokens.getNextToken(); token.kind != ParserConstants.EOF; token = tokens.getNextToken()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String rate(long bytes, long nanos) {
+        return String.format("%7.1f ms %6.0f MB/s", nanos / 1e6, bytes / 1e6 / (nanos / 1e9));
+    }
+
+    private static Path write(String program) throws IOException {
+        Path file = Files.createTempFile("charstream", ".txt");
+        Files.writeString(file, program);
+        return file;
+    }
+}
@@ -0,0 +1,121 @@
+package analyzer.bench;
+
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Description: Measures what comments cost the parser. A program of ProgramGenerator is parsed as is, then with
+ * the comments of a generated script: a license block at the top, a provenance block every BLOCK_EVERY lines
+ * and a line comment at the end of every LINE_EVERY line. It prints the best parse time of each source, then
+ * the speed of the lexer on the comments alone: the same comments around a single declaration. Each source is
+ * parsed from a stream (JavaCharStream, comments read character by character) and from a file (BufferCharStream,
+ * comments scanned in the source array).
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.CommentBenchmark -Dbench-args="[size [iterations]]"
+ * The default is a 1m MIXED program and 20 iterations.
+ */
+public class CommentBenchmark {
+
+    private static final int LICENSE_LINES = 60;
+    private static final int BLOCK_EVERY = 40;
+    private static final int BLOCK_LINES = 12;
+    private static final int LINE_EVERY = 3;
+
+    public static void main(String[] args) throws ParseException, IOException {
+        int size = (int) ProgramGenerator.parseSize(args.length > 0 ? args[0] : "1m");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ProgramGenerator.Shape shape = ProgramGenerator.Shape.MIXED;
+        String plain = ProgramGenerator.generate(shape, ProgramGenerator.defaultWidth(shape), 0, size);
+        byte[] plainBytes = plain.getBytes();
+        byte[] commentedBytes = addComments(plain).getBytes();
+        byte[] commentBytes = (addComments(plain.replaceAll("[^\\n]", "")) + "num a;\n").getBytes();
+
+        byte[][] sources = {plainBytes, commentedBytes, commentBytes};
+        String[] names = {"plain", "commented", "comments"};
+        Path[] files = new Path[sources.length];
+        try {
+            for (int i = 0; i < sources.length; i++) {
+                files[i] = Files.createTempFile("comment-benchmark", ".txt");
+                Files.write(files[i], sources[i]);
+            }
+
+            // The first runs warm up the JIT
+            for (int i = 0; i < sources.length; i++) {
+                best(sources[i], iterations / 4 + 1);
+                best(files[i], iterations / 4 + 1);
+            }
+
+            for (int i = 0; i < sources.length; i++) {
+                print(names[i], "stream", sources[i], best(sources[i], iterations));
+                print(names[i], "file", sources[i], best(files[i], iterations));
+            }
+        } finally {
+            for (Path file : files) {
+                if (file != null) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void print(String name, String input, byte[] source, long time) {
+        System.out.println(String.format("%-10s %-7s %10d bytes %9.1f ms %8.0f MB/s", name, input, source.length,
+                time / 1e6, source.length / 1e6 / (time / 1e9)));
+    }
+
+    // The same program with the comments of a generated script
+    static String addComments(String program) {
+        StringBuilder out = new StringBuilder(program.length() * 3);
+        block(out, "Copyright (c) generated scripts. Licensed under the terms below.", LICENSE_LINES);
+        int line = 0;
+        int start = 0;
+        for (int end = program.indexOf('\n'); end >= 0; end = program.indexOf('\n', start)) {
+            out.append(program, start, end);
+            if (++line % LINE_EVERY == 0) {
+                out.append(" // generated from template statement ").append(line);
+            }
+            out.append('\n');
+            if (line % BLOCK_EVERY == 0) {
+                block(out, "Provenance: emitted by the script generator, pass " + line, BLOCK_LINES);
+            }
+            start = end + 1;
+        }
+        out.append(program, start, program.length());
+        return out.toString();
+    }
+
+    private static void block(StringBuilder out, String text, int lines) {
+        out.append("/*\n");
+        for (int i = 0; i < lines; i++) {
+            out.append(" * ").append(text).append(" (").append(i).append(")\n");
+        }
+        out.append(" */\n");
+    }
+
+    private static long best(byte[] source, int iterations) throws ParseException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            Parser.ParseTree(new ByteArrayInputStream(source));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    // The file read is part of the time, as for the stream
+    private static long best(Path file, int iterations) throws ParseException, IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            Parser.ParseTree(file);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,105 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ir.IrProgram;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Description: Compares the two ways to get the three-address code of a program: Parser.ParseTree then the fused
+ * IntermediateCodeGenVisitor (with check), and Parser.ParseCode, which emits the same code while parsing without
+ * building the tree. Both compile the same program of ProgramGenerator held in memory. It prints the best time
+ * and throughput, the bytes allocated by a compilation and the heap still reachable once it is done: the tree
+ * and the code for the first (the tree is alive until the visitor has finished), the code alone for the second.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.DirectCodeGenBenchmark -Dbench-args="[size [iterations]]"
+ * The default is a MIXED program of 16m, 5 iterations. Run it with a heap of 3 GB or more.
+ */
+public class DirectCodeGenBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws ParseException {
+        long size = args.length > 0 ? ProgramGenerator.parseSize(args[0]) : ProgramGenerator.parseSize("16m");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ProgramGenerator.Shape shape = ProgramGenerator.Shape.MIXED;
+        int width = ProgramGenerator.defaultWidth(shape);
+
+        // A first small run warms up the JIT
+        byte[] warmup = ProgramGenerator.generate(shape, width, 1, 1_000_000).getBytes();
+        for (int i = 0; i < 5; i++) {
+            visitor(Parser.ParseTree(new ByteArrayInputStream(warmup)));
+            Parser.ParseCode(new ByteArrayInputStream(warmup));
+        }
+
+        byte[] source = ProgramGenerator.generate(shape, width, 0, (int) size).getBytes();
+        long[] tree = {Long.MAX_VALUE, 0};
+        long[] direct = {Long.MAX_VALUE, 0};
+        int instructions = 0;
+        for (int i = 0; i < iterations; i++) {
+            long bytes = allocated();
+            long start = System.nanoTime();
+            instructions = visitor(Parser.ParseTree(new ByteArrayInputStream(source))).size();
+            keep(tree, System.nanoTime() - start, allocated() - bytes);
+
+            bytes = allocated();
+            start = System.nanoTime();
+            IrProgram code = Parser.ParseCode(new ByteArrayInputStream(source));
+            keep(direct, System.nanoTime() - start, allocated() - bytes);
+            if (code.size() != instructions) {
+                throw new IllegalStateException("ParseCode does not give the code of the visitor");
+            }
+        }
+
+        // Reachable heap: the tree and its code, then the code alone
+        long base = used();
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source));
+        IrProgram treeCode = visitor(root);
+        long treeRetained = used() - base;
+        root = null;
+        treeCode = null;
+        base = used();
+        IrProgram code = Parser.ParseCode(new ByteArrayInputStream(source));
+        long directRetained = used() - base;
+
+        System.out.println(String.format("%d bytes, %d instructions", source.length, code.size()));
+        System.out.println(String.format("%-14s %10s %10s %16s %16s", "", "ms", "MB/s", "bytes allocated", "bytes retained"));
+        print("tree + visitor", source.length, tree, treeRetained);
+        print("ParseCode", source.length, direct, directRetained);
+    }
+
+    private static IrProgram visitor(ASTProgram root) {
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null, false, true);
+        root.jjtAccept(codegen, null);
+        return codegen.getCode();
+    }
+
+    private static void keep(long[] best, long time, long bytes) {
+        if (time < best[0]) {
+            best[0] = time;
+            best[1] = bytes;
+        }
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long used() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void print(String name, long bytes, long[] result, long retained) {
+        System.out.println(String.format("%-14s %10.1f %10.0f %16d %16d", name, result[0] / 1e6,
+                bytes / 1e6 / (result[0] / 1e9), result[1], retained));
+    }
+}
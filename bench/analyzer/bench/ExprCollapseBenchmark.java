@@ -0,0 +1,96 @@
+package analyzer.bench;
+
+import analyzer.SemantiqueError;
+import analyzer.ast.*;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: Compares the full parse tree with the collapsed one (Parser.ParseTree(input, true))
+ * on the test-suite corpus. It prints the number of nodes built by each mode and the time to
+ * parse and run the visitor of each suite on every file.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.ExprCollapseBenchmark [-Dbench-args="iterations"]
+ */
+public class ExprCollapseBenchmark {
+
+    private static final String[] SUITES = {"SemantiqueTest", "IntermediateCodeGenTest", "IntermediateCodeGenFallTest"};
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        List<byte[]> sources = new ArrayList<>();
+        List<String> suites = new ArrayList<>();
+        for (String suite : SUITES) {
+            for (File file : new File("./test-suite/" + suite + "/data").listFiles()) {
+                sources.add(Files.readAllBytes(file.toPath()));
+                suites.add(suite);
+            }
+        }
+
+        long fullNodes = 0;
+        long collapsedNodes = 0;
+        for (byte[] source : sources) {
+            fullNodes += countNodes(Parser.ParseTree(new ByteArrayInputStream(source), false));
+            collapsedNodes += countNodes(Parser.ParseTree(new ByteArrayInputStream(source), true));
+        }
+        System.out.println("files:           " + sources.size());
+        System.out.println("nodes (full):    " + fullNodes);
+        System.out.println("nodes (collapse):" + collapsedNodes
+                + String.format(" (-%.1f%%)", 100.0 * (fullNodes - collapsedNodes) / fullNodes));
+
+        // Warm up both modes before measuring
+        run(sources, suites, false, iterations / 4);
+        run(sources, suites, true, iterations / 4);
+
+        long full = run(sources, suites, false, iterations);
+        long collapsed = run(sources, suites, true, iterations);
+        System.out.println(String.format("parse+visit (full):     %.3f ms/corpus", full / 1e6 / iterations));
+        System.out.println(String.format("parse+visit (collapse): %.3f ms/corpus (-%.1f%%)",
+                collapsed / 1e6 / iterations, 100.0 * (full - collapsed) / full));
+    }
+
+    private static long run(List<byte[]> sources, List<String> suites, boolean collapseExpr, int iterations) throws ParseException {
+        long start = System.nanoTime();
+        for (int it = 0; it < iterations; it++) {
+            for (int i = 0; i < sources.size(); i++) {
+                PrintWriter writer = new PrintWriter(new StringWriter());
+                ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(sources.get(i)), collapseExpr);
+                try {
+                    root.jjtAccept(visitorFor(suites.get(i), writer), null);
+                } catch (SemantiqueError ignored) {
+                    // Some semantic tests are expected to fail, the time spent is still measured
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static ParserVisitor visitorFor(String suite, PrintWriter writer) {
+        switch (suite) {
+            case "SemantiqueTest":
+                return new SemantiqueVisitor(writer);
+            case "IntermediateCodeGenFallTest":
+                return new IntermediateCodeGenFallVisitor(writer);
+            default:
+                return new IntermediateCodeGenVisitor(writer);
+        }
+    }
+
+    static long countNodes(Node node) {
+        long count = 1;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            count += countNodes(node.jjtGetChild(i));
+        }
+        return count;
+    }
+}
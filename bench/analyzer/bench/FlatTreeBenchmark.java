@@ -0,0 +1,101 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.FlatTree;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+
+/**
+ * Description: Compares the object tree (Parser.ParseTree) with the flat tree (Parser.ParseFlat) on programs of
+ * ProgramGenerator. For each size it prints the heap retained by each tree, measured after a GC, the time to
+ * parse and the time of the code generator visiting the tree. Both visits must print the same code.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.FlatTreeBenchmark -Dbench-args="[shape [sizes...]]"
+ * The default is the MIXED shape at 100k and 1m.
+ */
+public class FlatTreeBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        ProgramGenerator.Shape shape = args.length > 0
+                ? ProgramGenerator.Shape.valueOf(args[0].toUpperCase()) : ProgramGenerator.Shape.MIXED;
+        String[] sizes = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[]{"100k", "1m"};
+        int width = ProgramGenerator.defaultWidth(shape);
+
+        System.out.println(shape + ", width " + width);
+        System.out.println(String.format("%-8s %10s %10s %14s %14s %14s %14s %14s %14s", "size", "bytes", "nodes",
+                "object B/node", "flat B/node", "object parse", "flat parse", "object visit", "flat visit"));
+
+        // A first small run warms up the JIT
+        run("warmup", ProgramGenerator.generate(shape, width, 1, 100_000).getBytes(), false);
+        for (String size : sizes) {
+            run(size, ProgramGenerator.generate(shape, width, 0, (int) ProgramGenerator.parseSize(size)).getBytes(), true);
+        }
+    }
+
+    private static void run(String name, byte[] source, boolean print) throws ParseException {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        ASTProgram tree = Parser.ParseTree(new ByteArrayInputStream(source));
+        long objectParse = System.nanoTime() - start;
+        long objectBytes = usedHeap() - before;
+
+        start = System.nanoTime();
+        IntermediateCodeGenVisitor objectCodegen = new IntermediateCodeGenVisitor(null);
+        tree.jjtAccept(objectCodegen, null);
+        long objectVisit = System.nanoTime() - start;
+        String objectCode = text(objectCodegen.getCode());
+        objectCodegen = null;
+        Reference.reachabilityFence(tree);
+        tree = null;
+
+        before = usedHeap();
+        start = System.nanoTime();
+        FlatTree flat = Parser.ParseFlat(new ByteArrayInputStream(source));
+        long flatParse = System.nanoTime() - start;
+        long flatBytes = usedHeap() - before;
+
+        start = System.nanoTime();
+        IntermediateCodeGenVisitor flatCodegen = new IntermediateCodeGenVisitor(null);
+        flat.accept(flatCodegen, null);
+        long flatVisit = System.nanoTime() - start;
+        if (!objectCode.equals(text(flatCodegen.getCode()))) {
+            throw new IllegalStateException("The flat tree does not give the same code for " + name);
+        }
+        int nodes = flat.size();
+        Reference.reachabilityFence(flat);
+
+        if (print) {
+            System.out.println(String.format("%-8s %10d %10d %14.1f %14.1f %11.1f ms %11.1f ms %11.1f ms %11.1f ms",
+                    name, source.length, nodes, (double) objectBytes / nodes, (double) flatBytes / nodes,
+                    objectParse / 1e6, flatParse / 1e6, objectVisit / 1e6, flatVisit / 1e6));
+        }
+    }
+
+    private static String text(IrProgram code) {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        new IrPrinter(writer).print(code);
+        writer.flush();
+        return text.toString();
+    }
+
+    // Heap in use once the garbage of the previous run has been collected
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,88 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Description: Compares the two-pass pipeline (SemantiqueVisitor, then IntermediateCodeGenVisitor) with the fused
+ * pass (IntermediateCodeGenVisitor with check) on programs of ProgramGenerator. Each tree is parsed once, then both
+ * are run several times on it and the best time of each is printed. Both must print the same code.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.FusedCodeGenBenchmark -Dbench-args="[shape [sizes...]]"
+ * The default is the MIXED shape at 100k, 1m and 5m.
+ */
+public class FusedCodeGenBenchmark {
+
+    private static final int RUNS = 10;
+    private static final PrintWriter NULL_WRITER = new PrintWriter(Writer.nullWriter());
+
+    public static void main(String[] args) throws ParseException {
+        ProgramGenerator.Shape shape = args.length > 0
+                ? ProgramGenerator.Shape.valueOf(args[0].toUpperCase()) : ProgramGenerator.Shape.MIXED;
+        String[] sizes = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[]{"100k", "1m", "5m"};
+        int width = ProgramGenerator.defaultWidth(shape);
+
+        System.out.println(shape + ", width " + width + ", best of " + RUNS);
+        System.out.println(String.format("%-8s %10s %14s %14s %10s", "size", "nodes", "two passes", "fused", "gain"));
+
+        // A first small run warms up the JIT
+        run("warmup", ProgramGenerator.generate(shape, width, 1, 100_000).getBytes(), false);
+        for (String size : sizes) {
+            run(size, ProgramGenerator.generate(shape, width, 0, (int) ProgramGenerator.parseSize(size)).getBytes(), true);
+        }
+    }
+
+    private static void run(String name, byte[] source, boolean print) throws ParseException {
+        ASTProgram tree = Parser.ParseTree(new ByteArrayInputStream(source));
+
+        long twoPasses = Long.MAX_VALUE;
+        long fused = Long.MAX_VALUE;
+        String twoPassesCode = null;
+        String fusedCode = null;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            tree.jjtAccept(new SemantiqueVisitor(NULL_WRITER), null);
+            IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+            tree.jjtAccept(codegen, null);
+            twoPasses = Math.min(twoPasses, System.nanoTime() - start);
+            if (twoPassesCode == null) {
+                twoPassesCode = text(codegen.getCode());
+            }
+
+            start = System.nanoTime();
+            IntermediateCodeGenVisitor checked = new IntermediateCodeGenVisitor(null, false, true);
+            tree.jjtAccept(checked, null);
+            fused = Math.min(fused, System.nanoTime() - start);
+            if (fusedCode == null) {
+                fusedCode = text(checked.getCode());
+            }
+        }
+        if (!twoPassesCode.equals(fusedCode)) {
+            throw new IllegalStateException("The fused pass does not give the same code for " + name);
+        }
+
+        if (print) {
+            System.out.println(String.format("%-8s %10d %11.1f ms %11.1f ms %9.1f%%", name,
+                    analyzer.Main.countNodes(tree), twoPasses / 1e6, fused / 1e6, 100.0 * (twoPasses - fused) / twoPasses));
+        }
+    }
+
+    private static String text(IrProgram code) {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        new IrPrinter(writer).print(code);
+        writer.flush();
+        return text.toString();
+    }
+}
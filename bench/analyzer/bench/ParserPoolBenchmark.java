@@ -0,0 +1,66 @@
+package analyzer.bench;
+
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Description: Measures the per-file cost of creating a parser. Thousands of small programs of ProgramGenerator
+ * (the size of generated scripts) are parsed once with a new Parser each, as Parser.ParseTree used to do, and
+ * once with Parser.ParseTree, which reuses the parser of the thread. It prints the best time per file and the
+ * bytes allocated per file by each.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.ParserPoolBenchmark -Dbench-args="[files [size [rounds]]]"
+ * The default is 5000 MIXED programs of 500 bytes, 10 rounds.
+ */
+public class ParserPoolBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws ParseException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int size = args.length > 1 ? (int) ProgramGenerator.parseSize(args[1]) : 500;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        ProgramGenerator.Shape shape = ProgramGenerator.Shape.MIXED;
+        byte[][] sources = new byte[files][];
+        long bytes = 0;
+        for (int i = 0; i < files; i++) {
+            sources[i] = ProgramGenerator.generate(shape, ProgramGenerator.defaultWidth(shape), i, size).getBytes();
+            bytes += sources[i].length;
+        }
+
+        long[] fresh = {Long.MAX_VALUE, 0};
+        long[] pooled = {Long.MAX_VALUE, 0};
+        for (int round = 0; round < rounds; round++) {
+            measure(sources, false, fresh);
+            measure(sources, true, pooled);
+        }
+
+        System.out.println(String.format("%d files, %d bytes on average", files, bytes / files));
+        System.out.println(String.format("%-12s %10s %14s", "", "us/file", "bytes/file"));
+        System.out.println(String.format("%-12s %10.2f %14d", "new Parser", fresh[0] / 1e3 / files, fresh[1] / files));
+        System.out.println(String.format("%-12s %10.2f %14d", "pooled", pooled[0] / 1e3 / files, pooled[1] / files));
+    }
+
+    // Parses every source and keeps the best time and the bytes allocated in result
+    private static void measure(byte[][] sources, boolean pooled, long[] result) throws ParseException {
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (byte[] source : sources) {
+            if (pooled) {
+                Parser.ParseTree(new ByteArrayInputStream(source));
+            } else {
+                new Parser(new ByteArrayInputStream(source)).Program();
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (time < result[0]) {
+            result[0] = time;
+            result[1] = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes;
+        }
+    }
+}
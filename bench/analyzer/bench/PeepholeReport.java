@@ -0,0 +1,48 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ir.PeepholeOptimizer;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+
+/**
+ * Description: Runs the PeepholeOptimizer on every file of the IntermediateCodeGenTest corpus
+ * and reports how many instructions each transformation removed.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.PeepholeReport [-Dbench-args="folder"]
+ */
+public class PeepholeReport {
+
+    public static void main(String[] args) throws Exception {
+        String folder = args.length > 0 ? args[0] : "./test-suite/IntermediateCodeGenTest/data";
+        File[] files = new File(folder).listFiles();
+        Arrays.sort(files);
+
+        PeepholeOptimizer optimizer = new PeepholeOptimizer();
+        long before = 0;
+        long removed = 0;
+        for (File file : files) {
+            ASTProgram root = Parser.ParseTree(new FileInputStream(file));
+            IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+            root.jjtAccept(codegen, null);
+
+            int size = codegen.getCode().size();
+            int fileRemoved = optimizer.optimize(codegen.getCode());
+            before += size;
+            removed += fileRemoved;
+            System.out.println(String.format("%-24s %4d -> %4d", file.getName(), size, size - fileRemoved));
+        }
+
+        System.out.println(String.format("total: %d -> %d instructions (-%d, -%.1f%%)",
+                before, before - removed, removed, 100.0 * removed / before));
+        System.out.println("jumps threaded:        " + optimizer.getThreaded());
+        System.out.println("conditions inverted:   " + optimizer.getInverted());
+        System.out.println("redundant jumps:       " + optimizer.getRemovedJumps());
+        System.out.println("unreachable removed:   " + optimizer.getRemovedUnreachable());
+        System.out.println("dead labels removed:   " + optimizer.getRemovedLabels());
+    }
+}
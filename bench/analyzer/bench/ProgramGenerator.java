@@ -0,0 +1,424 @@
+package analyzer.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Description: Deterministic generator of valid programs (they parse and pass the SemantiqueVisitor) of a chosen
+ * size and shape, to find where the parser, the visitors or a backend stop scaling linearly.
+ * The same shape, width, seed and size always give the same program. The size is reached at the end of the
+ * first top-level statement that crosses it, so a program can be a little larger than asked.
+ * Shapes, width being the knob of each one:
+ * - MIXED        : every statement and expression kind, nested at most width levels
+ * - NESTING      : blocks and if statements nested width levels deep
+ * - CHAINS       : conditions of width comparisons joined by && and ||
+ * - SWITCH       : enums of width constants, and switches with a case for each constant
+ * - DECLARATIONS : almost only declarations, followed by width assignments
+ * - LOOPS        : while and for loops nested width levels deep
+ * Every loop has its own counter and runs 2 or 3 times, and the divisors are non zero constants,
+ * so the programs also run to the end when executed.
+ *
+ * Usage: ProgramGenerator shape size[k|m] [width] [seed] [file]
+ * The program is written in file, or on the standard output.
+ */
+public class ProgramGenerator {
+
+    public enum Shape { MIXED, NESTING, CHAINS, SWITCH, DECLARATIONS, LOOPS }
+
+    private static final int NUM_VARIABLES = 16;
+    private static final int BOOL_VARIABLES = 8;
+    private static final int ENUMS = 4;
+    private static final int MAX_INDENT = 16;
+    private static final String[] COMPARE = {"<", "<=", ">", ">=", "==", "!="};
+
+    private final Shape m_shape;
+    private final int m_width;
+    private final Random m_random;
+    private final StringBuilder m_out = new StringBuilder();
+
+    public ProgramGenerator(Shape shape, int width, long seed) {
+        if (width < 1) {
+            throw new IllegalArgumentException("width must be at least 1");
+        }
+        m_shape = shape;
+        m_width = width;
+        m_random = new Random(seed);
+    }
+
+    // Default width of each shape, small enough for the recursive descent parser
+    public static int defaultWidth(Shape shape) {
+        switch (shape) {
+            case NESTING:
+                return 64;
+            case CHAINS:
+                return 32;
+            case SWITCH:
+                return 256;
+            case DECLARATIONS:
+                return 100;
+            case LOOPS:
+                return 4;
+            default:
+                return 4;
+        }
+    }
+
+    public static String generate(Shape shape, int width, long seed, int bytes) {
+        StringWriter program = new StringWriter();
+        try {
+            new ProgramGenerator(shape, width, seed).write(program, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return program.toString();
+    }
+
+    // Writes one program of about the given size and returns its exact size (the text is ASCII)
+    public long write(Writer out, long bytes) throws IOException {
+        long written = 0;
+        int statements = 0;
+
+        // Declarations
+        if (m_shape == Shape.DECLARATIONS) {
+            for (int i = 0; written < bytes; i++) {
+                m_out.append(m_random.nextBoolean() ? "num d" : "bool d").append(i).append(";\n");
+                written += flush(out);
+                statements = i + 1;
+            }
+        }
+        for (int i = 0; i < NUM_VARIABLES; i++) {
+            m_out.append("num n").append(i).append(";\n");
+        }
+        for (int i = 0; i < BOOL_VARIABLES; i++) {
+            m_out.append("bool b").append(i).append(";\n");
+        }
+        for (int depth = 0; depth <= maxDepth(); depth++) {
+            m_out.append("num i").append(depth).append(";\nnum w").append(depth).append(";\n");
+        }
+        int enumSize = m_shape == Shape.SWITCH ? m_width : 4;
+        for (int e = 0; e < ENUMS; e++) {
+            m_out.append("enum E").append(e).append(" {");
+            for (int c = 0; c < enumSize; c++) {
+                m_out.append(c == 0 ? " " : ", ").append("E").append(e).append('_').append(c);
+            }
+            m_out.append(" }\nE").append(e).append(" s").append(e).append(";\n");
+        }
+        m_out.append('\n');
+        written += flush(out);
+
+        // Statements
+        if (m_shape == Shape.DECLARATIONS) {
+            for (int i = Math.max(0, statements - m_width); i < statements; i++) {
+                m_out.append('d').append(i).append(" = d").append(i).append(";\n");
+            }
+            written += flush(out);
+        } else {
+            while (written < bytes) {
+                topLevelStatement();
+                written += flush(out);
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    private int flush(Writer out) throws IOException {
+        int length = m_out.length();
+        out.append(m_out);
+        m_out.setLength(0);
+        return length;
+    }
+
+    private int maxDepth() {
+        return m_shape == Shape.MIXED || m_shape == Shape.LOOPS ? m_width : 1;
+    }
+
+    private void topLevelStatement() {
+        switch (m_shape) {
+            case NESTING:
+                nest(0);
+                break;
+            case CHAINS:
+                if (m_random.nextBoolean()) {
+                    indent(0);
+                    m_out.append("if (").append(chain()).append(") {\n");
+                    assignment(1);
+                    indent(0);
+                    m_out.append("}\n");
+                } else {
+                    indent(0);
+                    m_out.append('b').append(m_random.nextInt(BOOL_VARIABLES)).append(" = ").append(chain()).append(";\n");
+                }
+                break;
+            case SWITCH:
+                if (m_random.nextInt(4) == 0) {
+                    int e = m_random.nextInt(ENUMS);
+                    m_out.append('s').append(e).append(" = E").append(e).append('_').append(m_random.nextInt(m_width)).append(";\n");
+                } else {
+                    enumSwitch(0);
+                }
+                break;
+            case LOOPS:
+                loop(0, true);
+                break;
+            default:
+                statement(0);
+                break;
+        }
+    }
+
+    // ----- Statements -----
+
+    private void statement(int depth) {
+        int kind = depth >= m_width ? m_random.nextInt(3) : m_random.nextInt(10);
+        switch (kind) {
+            case 0:
+            case 1:
+                assignment(depth);
+                break;
+            case 2:
+                indent(depth);
+                m_out.append('b').append(m_random.nextInt(BOOL_VARIABLES)).append(" = ").append(boolExpr(2)).append(";\n");
+                break;
+            case 3:
+                indent(depth);
+                m_out.append("if (").append(boolExpr(2)).append(") {\n");
+                block(depth + 1);
+                if (m_random.nextBoolean()) {
+                    indent(depth);
+                    m_out.append("} else {\n");
+                    block(depth + 1);
+                }
+                indent(depth);
+                m_out.append("}\n");
+                break;
+            case 4:
+                loop(depth, false);
+                break;
+            case 5:
+                indent(depth);
+                m_out.append("{\n");
+                block(depth + 1);
+                indent(depth);
+                m_out.append("}\n");
+                break;
+            case 6:
+                numSwitch(depth);
+                break;
+            case 7:
+                enumSwitch(depth);
+                break;
+            case 8:
+                indent(depth);
+                m_out.append("if (").append(boolExpr(1)).append(") ");
+                m_out.append('n').append(m_random.nextInt(NUM_VARIABLES)).append(" = ").append(numExpr(1)).append(";\n");
+                break;
+            default:
+                indent(depth);
+                m_out.append(";\n");
+                break;
+        }
+    }
+
+    // One to three statements
+    private void block(int depth) {
+        int count = 1 + m_random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            statement(depth);
+        }
+    }
+
+    private void assignment(int depth) {
+        indent(depth);
+        m_out.append('n').append(m_random.nextInt(NUM_VARIABLES)).append(" = ").append(numExpr(3)).append(";\n");
+    }
+
+    // A while or a for loop with the counter of its depth, nested further if deep is true
+    private void loop(int depth, boolean deep) {
+        int iterations = 2 + m_random.nextInt(2);
+        indent(depth);
+        boolean useWhile = m_random.nextBoolean();
+        if (useWhile) {
+            m_out.append('w').append(depth).append(" = ").append(iterations).append(";\n");
+            indent(depth);
+            m_out.append("while (w").append(depth).append(" > 0) {\n");
+        } else {
+            m_out.append("for (i").append(depth).append(" = 0; i").append(depth).append(" < ").append(iterations)
+                    .append("; i").append(depth).append(" = i").append(depth).append(" + 1) {\n");
+        }
+        if (deep && depth + 1 < m_width) {
+            assignment(depth + 1);
+            loop(depth + 1, true);
+        } else if (deep) {
+            assignment(depth + 1);
+        } else {
+            block(depth + 1);
+        }
+        if (useWhile) {
+            indent(depth + 1);
+            m_out.append('w').append(depth).append(" = w").append(depth).append(" - 1;\n");
+        }
+        indent(depth);
+        m_out.append("}\n");
+    }
+
+    // Blocks and ifs nested until the width, without recursion so the width can exceed the Java stack
+    private void nest(int depth) {
+        for (int level = depth; level < m_width; level++) {
+            indent(level);
+            if (m_random.nextBoolean()) {
+                m_out.append("{\n");
+            } else {
+                m_out.append("if (").append(boolExpr(1)).append(") {\n");
+            }
+        }
+        assignment(m_width);
+        for (int level = m_width - 1; level >= depth; level--) {
+            indent(level);
+            m_out.append("}\n");
+        }
+    }
+
+    private void numSwitch(int depth) {
+        indent(depth);
+        m_out.append("switch (n").append(m_random.nextInt(NUM_VARIABLES)).append(") {\n");
+        int cases = 1 + m_random.nextInt(4);
+        int value = m_random.nextInt(4);
+        for (int i = 0; i < cases; i++) {
+            indent(depth + 1);
+            m_out.append("case ").append(value).append(":\n");
+            assignment(depth + 2);
+            breakStatement(depth + 2);
+            value += 1 + m_random.nextInt(3);
+        }
+        indent(depth);
+        m_out.append("}\n");
+    }
+
+    // A case for each constant of the enum, in a random order
+    private void enumSwitch(int depth) {
+        int e = m_random.nextInt(ENUMS);
+        int size = m_shape == Shape.SWITCH ? m_width : 4;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = m_random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        indent(depth);
+        m_out.append("switch (s").append(e).append(") {\n");
+        for (int c : order) {
+            indent(depth + 1);
+            m_out.append("case E").append(e).append('_').append(c).append(":\n");
+            indent(depth + 2);
+            m_out.append('n').append(m_random.nextInt(NUM_VARIABLES)).append(" = ").append(c).append(";\n");
+            breakStatement(depth + 2);
+        }
+        indent(depth);
+        m_out.append("}\n");
+    }
+
+    private void breakStatement(int depth) {
+        if (m_random.nextInt(4) != 0) {
+            indent(depth);
+            m_out.append("break;\n");
+        }
+    }
+
+    private void indent(int depth) {
+        for (int i = Math.min(depth, MAX_INDENT); i > 0; i--) {
+            m_out.append("    ");
+        }
+    }
+
+    // ----- Expressions -----
+
+    private String numExpr(int depth) {
+        if (depth == 0 || m_random.nextInt(3) == 0) {
+            return m_random.nextBoolean() ? "n" + m_random.nextInt(NUM_VARIABLES) : Integer.toString(m_random.nextInt(100));
+        }
+        switch (m_random.nextInt(7)) {
+            case 0:
+                return numExpr(depth - 1) + " + " + numExpr(depth - 1);
+            case 1:
+                return numExpr(depth - 1) + " - " + numExpr(depth - 1);
+            case 2:
+                return numExpr(depth - 1) + " * " + numExpr(depth - 1);
+            case 3:
+                // In parentheses: the operators are right associative, so "a / 2 * b" is "a / (2 * b)"
+                return "(" + numExpr(depth - 1) + (m_random.nextBoolean() ? " / " : " % ") + (1 + m_random.nextInt(9)) + ")";
+            case 4:
+                return "-" + numExpr(0);
+            default:
+                return "(" + numExpr(depth - 1) + ")";
+        }
+    }
+
+    // Bool values are never compared with each other
+    private String boolExpr(int depth) {
+        if (depth == 0 || m_random.nextInt(3) == 0) {
+            switch (m_random.nextInt(4)) {
+                case 0:
+                    return "b" + m_random.nextInt(BOOL_VARIABLES);
+                case 1:
+                    return m_random.nextBoolean() ? "true" : "false";
+                default:
+                    return comparison();
+            }
+        }
+        switch (m_random.nextInt(4)) {
+            case 0:
+                return "!(" + boolExpr(depth - 1) + ")";
+            case 1:
+                return "(" + boolExpr(depth - 1) + ")";
+            default:
+                return boolExpr(depth - 1) + (m_random.nextBoolean() ? " && " : " || ") + boolExpr(depth - 1);
+        }
+    }
+
+    private String comparison() {
+        return numExpr(1) + " " + COMPARE[m_random.nextInt(COMPARE.length)] + " " + numExpr(1);
+    }
+
+    private String chain() {
+        StringBuilder chain = new StringBuilder(comparison());
+        for (int i = 1; i < m_width; i++) {
+            chain.append(m_random.nextBoolean() ? " && " : " || ").append(comparison());
+        }
+        return chain.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ProgramGenerator shape size[k|m] [width] [seed] [file]");
+            return;
+        }
+        Shape shape = Shape.valueOf(args[0].toUpperCase());
+        long bytes = parseSize(args[1]);
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : defaultWidth(shape);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        Writer out = new BufferedWriter(args.length > 4
+                ? Files.newBufferedWriter(Paths.get(args[4]))
+                : new OutputStreamWriter(System.out));
+        new ProgramGenerator(shape, width, seed).write(out, bytes);
+        out.close();
+    }
+
+    // 10k is 10 000 bytes and 1m is 1 000 000 bytes
+    public static long parseSize(String size) {
+        String lower = size.toLowerCase();
+        if (lower.endsWith("k")) {
+            return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1000;
+        } else if (lower.endsWith("m")) {
+            return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1000_000;
+        }
+        return Long.parseLong(lower);
+    }
+}
@@ -0,0 +1,102 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ir.IrProgram;
+import analyzer.ir.PeepholeOptimizer;
+import analyzer.jvm.JvmCompiler;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import analyzer.vm.VmProgram;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Description: Runs every compilation phase on programs of ProgramGenerator at growing sizes and prints the
+ * time per byte of each one. A phase that scales linearly keeps the same ns/byte at every size.
+ * A phase that fails (for example a StackOverflowError in the recursive descent parser, or a method
+ * too large for the JvmCompiler) is reported and the next phases of that size are skipped.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.ScalingBenchmark -Dbench-args="[shape [width [sizes...]]]"
+ * The default is the MIXED shape at 10k and 1m. A size of 100m needs a larger heap (-Xmx) and stack (-Xss).
+ */
+public class ScalingBenchmark {
+
+    private static final String[] PHASES = {"parse", "semantic", "codegen", "fall", "peephole", "vm load", "jvm"};
+
+    public static void main(String[] args) {
+        ProgramGenerator.Shape shape = args.length > 0
+                ? ProgramGenerator.Shape.valueOf(args[0].toUpperCase()) : ProgramGenerator.Shape.MIXED;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : ProgramGenerator.defaultWidth(shape);
+        String[] sizes = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[]{"10k", "1m"};
+
+        StringBuilder header = new StringBuilder(String.format("%-8s %12s", "size", "bytes"));
+        for (String phase : PHASES) {
+            header.append(String.format(" %14s", phase + " ns/B"));
+        }
+        System.out.println(shape + ", width " + width);
+        System.out.println(header);
+
+        // A first small run warms up the JIT
+        run("warmup", ProgramGenerator.generate(shape, width, 1, 100_000).getBytes(), false);
+        for (String size : sizes) {
+            byte[] source = ProgramGenerator.generate(shape, width, 0, (int) ProgramGenerator.parseSize(size)).getBytes();
+            run(size, source, true);
+        }
+    }
+
+    private static void run(String name, byte[] source, boolean print) {
+        long[] nanos = new long[PHASES.length];
+        String failure = null;
+        int phase = 0;
+        try {
+            long start = System.nanoTime();
+            ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source));
+            nanos[phase++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            root.jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+            nanos[phase++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+            root.jjtAccept(codegen, null);
+            nanos[phase++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            root.jjtAccept(new IntermediateCodeGenFallVisitor(null), null);
+            nanos[phase++] = System.nanoTime() - start;
+
+            IrProgram code = codegen.getCode();
+            start = System.nanoTime();
+            new PeepholeOptimizer().optimize(code);
+            nanos[phase++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            VmProgram.load(code);
+            nanos[phase++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            JvmCompiler.compile(code);
+            nanos[phase++] = System.nanoTime() - start;
+        } catch (ParseException | RuntimeException | StackOverflowError | OutOfMemoryError e) {
+            failure = PHASES[phase] + ": " + e.getClass().getSimpleName();
+        }
+
+        if (print) {
+            StringBuilder line = new StringBuilder(String.format("%-8s %12d", name, source.length));
+            for (int i = 0; i < phase; i++) {
+                line.append(String.format(" %14.2f", (double) nanos[i] / source.length));
+            }
+            if (failure != null) {
+                line.append("   failed in ").append(failure);
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package analyzer.bench;
+
+import analyzer.ast.BufferCharStream;
+import analyzer.ast.ParserConstants;
+import analyzer.ast.ParserTokenManager;
+import analyzer.ast.Symbols;
+import analyzer.ast.Token;
+import analyzer.ast.TokenArray;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Description: Compares the token manager, which creates a Token and its image for each token, with TokenArray,
+ * which writes the tokens in int arrays. Both lex the same program of ProgramGenerator held in memory; the
+ * token manager also decodes the values as the parser does (Integer.parseInt, Symbols.intern). It prints the
+ * best time and throughput, the bytes allocated while lexing and, for TokenArray, the size of its arrays.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.TokenArrayBenchmark -Dbench-args="[size [iterations]]"
+ * The default is a MIXED program of 100m, 5 iterations. Run it with a heap of 3 GB or more.
+ */
+public class TokenArrayBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        long size = args.length > 0 ? ProgramGenerator.parseSize(args[0]) : ProgramGenerator.parseSize("100m");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ProgramGenerator.Shape shape = ProgramGenerator.Shape.MIXED;
+        int width = ProgramGenerator.defaultWidth(shape);
+
+        // A first small run warms up the JIT
+        byte[] warmup = ProgramGenerator.generate(shape, width, 1, 1_000_000).getBytes();
+        for (int i = 0; i < 5; i++) {
+            lexTokens(warmup);
+            TokenArray.lex(warmup);
+        }
+
+        byte[] source = ProgramGenerator.generate(shape, width, 0, (int) size).getBytes();
+        long[] tokens = {Long.MAX_VALUE, 0};
+        long[] array = {Long.MAX_VALUE, 0};
+        int count = 0;
+        for (int i = 0; i < iterations; i++) {
+            long bytes = allocated();
+            long start = System.nanoTime();
+            count = lexTokens(source);
+            keep(tokens, System.nanoTime() - start, allocated() - bytes);
+
+            bytes = allocated();
+            start = System.nanoTime();
+            TokenArray result = TokenArray.lex(source);
+            keep(array, System.nanoTime() - start, allocated() - bytes);
+            if (result.size() != count + 1) {
+                throw new IllegalStateException("TokenArray does not give the tokens of the token manager");
+            }
+        }
+
+        // byte + 3 int per token
+        long retained = 13L * count;
+        System.out.println(String.format("%d bytes, %d tokens", source.length, count));
+        System.out.println(String.format("%-14s %10s %10s %16s", "", "ms", "MB/s", "bytes allocated"));
+        print("Token", source.length, tokens);
+        print("TokenArray", source.length, array);
+        System.out.println(String.format("TokenArray arrays for the tokens: at least %d bytes", retained));
+    }
+
+    // Reads every token as the parser does and returns their number
+    private static int lexTokens(byte[] source) {
+        ParserTokenManager manager = new ParserTokenManager(BufferCharStream.open(source));
+        Symbols symbols = new Symbols();
+        int count = 0;
+        long sum = 0;
+        for (Token token = manager.getNextToken(); token.kind != ParserConstants.EOF; token = manager.getNextToken()) {
+            if (token.kind == ParserConstants.INTEGER) {
+                sum += Integer.parseInt(token.image);
+            } else if (token.kind == ParserConstants.IDENTIFIER) {
+                sum += symbols.intern(token.image);
+            }
+            count++;
+        }
+        return sum == Long.MIN_VALUE ? -1 : count;
+    }
+
+    private static void keep(long[] best, long time, long bytes) {
+        if (time < best[0]) {
+            best[0] = time;
+            best[1] = bytes;
+        }
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void print(String name, long bytes, long[] result) {
+        System.out.println(String.format("%-14s %10.1f %10.0f %16d", name, result[0] / 1e6,
+                bytes / 1e6 / (result[0] / 1e9), result[1]));
+    }
+}
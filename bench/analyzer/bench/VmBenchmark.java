@@ -0,0 +1,100 @@
+package analyzer.bench;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.jvm.CompiledProgram;
+import analyzer.jvm.JvmCompiler;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.InterpreterVisitor;
+import analyzer.vm.Vm;
+import analyzer.vm.VmProgram;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Description: Compares the InterpreterVisitor, which walks the AST, with the Vm running the code of
+ * IntermediateCodeGenVisitor and with the same code compiled to bytecode by the JvmCompiler, on the VmTest
+ * corpus and on a loop-heavy program. Parsing, code generation, loading and compilation are done once;
+ * only the executions are timed.
+ *
+ * Usage: ant benchmark -Dbench-class=analyzer.bench.VmBenchmark [-Dbench-args="iterations"]
+ */
+public class VmBenchmark {
+
+    // About 10 million instructions in the Vm
+    private static final String LOOPS =
+            "num i;\nnum j;\nnum sum;\n"
+            + "sum = 0;\n"
+            + "for (i = 0; i < 1000; i = i + 1) {\n"
+            + "    for (j = 0; j < 1000; j = j + 1) {\n"
+            + "        if (i % 3 == 0 || j % 7 == 0) {\n"
+            + "            sum = sum + i * j % 11;\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        File[] files = new File("./test-suite/VmTest/data").listFiles();
+        Arrays.sort(files);
+        System.out.println(String.format("%-24s %12s %12s %12s %12s %8s %8s",
+                "program", "instructions", "tree (ms)", "vm (ms)", "jvm (ms)", "vm", "jvm"));
+        for (File file : files) {
+            run(file.getName(), Files.readAllBytes(file.toPath()), iterations * 50);
+        }
+        run("loops", LOOPS.getBytes(), iterations);
+    }
+
+    private static void run(String name, byte[] source, int iterations) throws Exception {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source));
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        root.jjtAccept(codegen, null);
+        VmProgram program = VmProgram.load(codegen.getCode());
+        CompiledProgram compiled = JvmCompiler.compile(codegen.getCode());
+
+        // Warm up the three engines before measuring
+        tree(root, iterations / 4 + 1);
+        vm(program, iterations / 4 + 1);
+        jvm(compiled, iterations / 4 + 1);
+
+        long tree = tree(root, iterations);
+        long start = System.nanoTime();
+        long executed = vm(program, iterations);
+        long vm = System.nanoTime() - start;
+        long jvm = jvm(compiled, iterations);
+
+        System.out.println(String.format("%-24s %12d %12.3f %12.3f %12.3f %7.1fx %7.1fx   vm: %.0f M instructions/s",
+                name, executed / iterations, tree / 1e6 / iterations, vm / 1e6 / iterations, jvm / 1e6 / iterations,
+                (double) tree / vm, (double) tree / jvm, executed * 1e3 / vm));
+    }
+
+    private static long tree(ASTProgram root, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            root.jjtAccept(new InterpreterVisitor(null), null);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long jvm(CompiledProgram compiled, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compiled.run(compiled.newState());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long vm(VmProgram program, int iterations) {
+        long executed = 0;
+        for (int i = 0; i < iterations; i++) {
+            Vm vm = new Vm(program);
+            vm.run(Long.MAX_VALUE);
+            executed += vm.getExecuted();
+        }
+        return executed;
+    }
+}
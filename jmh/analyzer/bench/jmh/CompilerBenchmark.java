@@ -0,0 +1,168 @@
+package analyzer.bench.jmh;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.bench.ProgramGenerator;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Description: JMH benchmarks of the parser, of the three visitors and of the fused semantic check and code
+ * generation (fusedCodegen, against semanticThenCodegen). Each invocation processes the whole input:
+ * - corpus: every file of test-suite/[name]/data that parses and passes the semantic analysis
+ * - synthetic: one program of about syntheticBytes bytes, generated by ProgramGenerator with the given shape
+ * The visitor benchmarks reuse the trees parsed during the setup, so they only measure the visit.
+ *
+ * Usage: ant jmh -Djmh-core-jar=... -Djmh-annprocess-jar=... -Djopt-simple-jar=... -Dcommons-math3-jar=...
+ *        [-Djmh-args="-p input=synthetic -p shape=SWITCH -p syntheticBytes=1000000"]
+ * The results are written as JSON in out/jmh/results.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+    @Param({"corpus", "synthetic"})
+    public String input;
+
+    @Param({"100000"})
+    public int syntheticBytes;
+
+    // A ProgramGenerator.Shape, used by the synthetic input
+    @Param({"MIXED"})
+    public String shape;
+
+    private byte[][] m_sources;
+    private ASTProgram[] m_trees;
+    private final PrintWriter m_nullWriter = new PrintWriter(Writer.nullWriter());
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<byte[]> sources = input.equals("corpus") ? corpus() : List.of(synthetic());
+        m_sources = sources.toArray(new byte[0][]);
+        m_trees = new ASTProgram[m_sources.length];
+        for (int i = 0; i < m_sources.length; i++) {
+            m_trees[i] = parse(m_sources[i]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws ParseException {
+        for (byte[] source : m_sources) {
+            blackhole.consume(Parser.ParseTree(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Benchmark
+    public void semantic(Blackhole blackhole) {
+        for (ASTProgram tree : m_trees) {
+            SemantiqueVisitor visitor = new SemantiqueVisitor(m_nullWriter);
+            tree.jjtAccept(visitor, null);
+            blackhole.consume(visitor.SymbolTable);
+        }
+    }
+
+    @Benchmark
+    public void codegen(Blackhole blackhole) {
+        for (ASTProgram tree : m_trees) {
+            IntermediateCodeGenVisitor visitor = new IntermediateCodeGenVisitor(null);
+            tree.jjtAccept(visitor, null);
+            blackhole.consume(visitor.getCode());
+        }
+    }
+
+    // The two-pass pipeline, compared with fusedCodegen
+    @Benchmark
+    public void semanticThenCodegen(Blackhole blackhole) {
+        for (ASTProgram tree : m_trees) {
+            tree.jjtAccept(new SemantiqueVisitor(m_nullWriter), null);
+            IntermediateCodeGenVisitor visitor = new IntermediateCodeGenVisitor(null);
+            tree.jjtAccept(visitor, null);
+            blackhole.consume(visitor.getCode());
+        }
+    }
+
+    @Benchmark
+    public void fusedCodegen(Blackhole blackhole) {
+        for (ASTProgram tree : m_trees) {
+            IntermediateCodeGenVisitor visitor = new IntermediateCodeGenVisitor(null, false, true);
+            tree.jjtAccept(visitor, null);
+            blackhole.consume(visitor.getCode());
+        }
+    }
+
+    @Benchmark
+    public void codegenFall(Blackhole blackhole) {
+        for (ASTProgram tree : m_trees) {
+            IntermediateCodeGenFallVisitor visitor = new IntermediateCodeGenFallVisitor(null);
+            tree.jjtAccept(visitor, null);
+            blackhole.consume(visitor.getCode());
+        }
+    }
+
+    private byte[] synthetic() {
+        ProgramGenerator.Shape programShape = ProgramGenerator.Shape.valueOf(shape);
+        return ProgramGenerator.generate(programShape, ProgramGenerator.defaultWidth(programShape), 0, syntheticBytes).getBytes();
+    }
+
+    // The files of every test suite that go through the whole pipeline
+    private static List<byte[]> corpus() throws IOException {
+        List<byte[]> sources = new ArrayList<>();
+        File[] suites = new File("./test-suite").listFiles(File::isDirectory);
+        Arrays.sort(suites);
+        for (File suite : suites) {
+            File[] files = new File(suite, "data").listFiles();
+            if (files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                byte[] source = Files.readAllBytes(file.toPath());
+                try {
+                    ASTProgram tree = parse(source);
+                    tree.jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+                    sources.add(source);
+                } catch (RuntimeException | Error e) {
+                    // Parse or semantic error: only valid programs are measured
+                }
+            }
+        }
+        return sources;
+    }
+
+    private static ASTProgram parse(byte[] source) {
+        try {
+            return Parser.ParseTree(new ByteArrayInputStream(source));
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package analyzer;
+
+import analyzer.ast.*;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.ir.PeepholeOptimizer;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Description: Entry point of the batch compiler. It compiles every input file
+ * (parse -> semantic check -> code generation) on a ForkJoin pool inside a single JVM,
+ * writes one output per input and prints a throughput summary.
+ */
+
+public class BatchMain {
+
+    private static final int CACHE_ENTRIES = 1024;
+
+    // The arguments are:
+    // -o <dir>     (Optional): The output folder, ./out/batch by default
+    // -j <n>       (Optional): The number of worker threads, the number of processors by default
+    // --fall       (Optional): Use IntermediateCodeGenFallVisitor instead of IntermediateCodeGenVisitor
+    // -O           (Optional): Run the PeepholeOptimizer on the generated code
+    // --cache <dir> (Optional): Reuse the results stored in this folder by previous runs (see CompilationCache)
+    // --cache-mb <n> (Optional): The size bound of the cache folder in MB, 64 by default
+    // <path>...    (Required): Directories (compiled recursively), files, or @list where list contains one path per line
+    public static void main(String[] args) throws IOException {
+        Path outDir = Paths.get("out", "batch");
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean fall = false;
+        boolean optimize = false;
+        Path cacheDir = null;
+        long cacheBytes = 64L << 20;
+        List<Job> jobs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--fall")) {
+                fall = true;
+            } else if (args[i].equals("-O")) {
+                optimize = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-mb") && i + 1 < args.length) {
+                cacheBytes = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].startsWith("@")) {
+                for (String line : Files.readAllLines(Paths.get(args[i].substring(1)))) {
+                    if (!line.trim().isEmpty()) {
+                        addInput(jobs, Paths.get(line.trim()));
+                    }
+                }
+            } else {
+                addInput(jobs, Paths.get(args[i]));
+            }
+        }
+
+        if (jobs.isEmpty()) {
+            System.err.println("Usage: BatchMain [-o outDir] [-j threads] [--fall] [-O] [--cache dir [--cache-mb n]] <dir|file|@list>...");
+            return;
+        }
+
+        CompilationCache cache = cacheDir == null ? null : new CompilationCache(cacheDir, cacheBytes, CACHE_ENTRIES);
+        Summary summary = compileAll(jobs, outDir, fall, optimize, cache, threads);
+        summary.print(System.out, System.err);
+        if (cache != null) {
+            System.out.println(cache.getStats());
+        }
+        if (summary.failures.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Compiles all the jobs on a ForkJoin pool of the given size
+    // cache can be null
+    public static Summary compileAll(List<Job> jobs, Path outDir, boolean fall, boolean optimize,
+                                     CompilationCache cache, int threads) {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new CompileTask(jobs, 0, jobs.size(), outDir, fall, optimize, cache, summary));
+        } finally {
+            pool.shutdown();
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    // Same as compile, but the generated code or the semantic error is taken from the cache when possible
+    public static String compile(byte[] source, boolean fall, boolean optimize, CompilationCache cache) throws ParseException {
+        if (cache == null) {
+            return compile(source, fall, optimize);
+        }
+        String key = CompilationCache.key(source, (fall ? "fall" : "jump") + (optimize ? "-O" : ""));
+        CompilationCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            try {
+                entry = new CompilationCache.Entry(false, compile(source, fall, optimize));
+            } catch (SemantiqueError e) {
+                entry = new CompilationCache.Entry(true, e.getMessage());
+            }
+            cache.put(key, entry);
+        }
+        if (entry.error) {
+            throw new SemantiqueError(entry.text);
+        }
+        return entry.text;
+    }
+
+    // Runs the whole pipeline on one source and returns the generated code
+    public static String compile(byte[] source, boolean fall, boolean optimize) throws ParseException {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source), true);
+
+        IrProgram code;
+        if (fall) {
+            // The semantic visitor only prints "all good", its output is discarded
+            root.jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+            IntermediateCodeGenFallVisitor codegen = new IntermediateCodeGenFallVisitor(null);
+            root.jjtAccept(codegen, null);
+            code = codegen.getCode();
+        } else {
+            // The jump generator checks the program in the same traversal
+            IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null, false, true);
+            root.jjtAccept(codegen, null);
+            code = codegen.getCode();
+        }
+        if (optimize) {
+            new PeepholeOptimizer().optimize(code);
+        }
+
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        new IrPrinter(writer).print(code);
+        writer.flush();
+        return result.toString();
+    }
+
+    private static void addInput(List<Job> jobs, Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                    jobs.add(new Job(file, path.relativize(file)));
+                }
+            }
+        } else {
+            jobs.add(new Job(path, path.getFileName()));
+        }
+    }
+
+    // One input file and the path of its output, relative to the output folder
+    public static class Job {
+        public final Path input;
+        public final Path output;
+
+        public Job(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    public static class Summary {
+        public final AtomicLong files = new AtomicLong();
+        public final AtomicLong bytes = new AtomicLong();
+        public final AtomicLong failures = new AtomicLong();
+        public final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+        public long elapsedNanos;
+
+        // One line per error on err, then the totals on out
+        public void print(PrintStream out, PrintStream err) {
+            double seconds = elapsedNanos / 1e9;
+            for (String error : errors) {
+                err.println(error);
+            }
+            out.println(String.format("%d files, %d failures, %.3f s, %.1f files/s, %.2f MB/s",
+                    files.get(), failures.get(), seconds,
+                    files.get() / seconds, bytes.get() / 1e6 / seconds));
+        }
+    }
+
+    // Splits the job list in halves until it is small enough to be compiled by one worker
+    private static class CompileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 8;
+
+        private final List<Job> m_jobs;
+        private final int m_from;
+        private final int m_to;
+        private final Path m_outDir;
+        private final boolean m_fall;
+        private final boolean m_optimize;
+        private final CompilationCache m_cache;
+        private final Summary m_summary;
+
+        CompileTask(List<Job> jobs, int from, int to, Path outDir, boolean fall, boolean optimize,
+                    CompilationCache cache, Summary summary) {
+            m_jobs = jobs;
+            m_from = from;
+            m_to = to;
+            m_outDir = outDir;
+            m_fall = fall;
+            m_optimize = optimize;
+            m_cache = cache;
+            m_summary = summary;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from > THRESHOLD) {
+                int middle = (m_from + m_to) >>> 1;
+                invokeAll(new CompileTask(m_jobs, m_from, middle, m_outDir, m_fall, m_optimize, m_cache, m_summary),
+                        new CompileTask(m_jobs, middle, m_to, m_outDir, m_fall, m_optimize, m_cache, m_summary));
+                return;
+            }
+            for (int i = m_from; i < m_to; i++) {
+                compileJob(m_jobs.get(i));
+            }
+        }
+
+        private void compileJob(Job job) {
+            m_summary.files.incrementAndGet();
+            try {
+                byte[] source = Files.readAllBytes(job.input);
+                m_summary.bytes.addAndGet(source.length);
+                String code = compile(source, m_fall, m_optimize, m_cache);
+
+                Path output = m_outDir.resolve(job.output);
+                Files.createDirectories(output.toAbsolutePath().getParent());
+                Files.write(output, code.getBytes());
+            } catch (ParseException | TokenMgrError | SemantiqueError | IOException | RuntimeException e) {
+                m_summary.failures.incrementAndGet();
+                m_summary.errors.add(job.input + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package analyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Description: Cache of compilation results keyed by the SHA-256 of the source bytes, the name of the
+ * visitor that produced them (see Main.Run(String, ...)) and the VERSION of the compiler. A result is either the text written by the
+ * visitor or the message of the SemantiqueError it threw.
+ * It has two tiers:
+ * - a small LRU map in memory, checked first
+ * - an optional folder on disk, bounded in bytes, where the least recently used entries are deleted first.
+ *   The last modified time of each file is its last use, so the order survives a restart.
+ * One instance can be shared by many threads. Files are written to a temporary name then moved, so a
+ * reader never sees a partial entry, even from another process using the same folder.
+ */
+public class CompilationCache {
+
+    // Version of the compiler output, part of every key. Bump it whenever a change can alter what a visitor
+    // writes for the same source (code generation, lowering, line numbers, error messages, IrPrinter format):
+    // the entries of older versions then become misses, and are evicted from the disk tier as they age.
+    public static final int VERSION = 3;
+
+    private final Path m_directory;
+    private final long m_maxDiskBytes;
+    private final LinkedHashMap<String, Entry> m_memory;
+
+    // Index of the disk tier: key -> {size, last use}
+    private final ConcurrentHashMap<String, long[]> m_disk = new ConcurrentHashMap<>();
+    private final AtomicLong m_diskBytes = new AtomicLong();
+    private final AtomicLong m_tmpCounter = new AtomicLong();
+
+    public final AtomicLong memoryHits = new AtomicLong();
+    public final AtomicLong diskHits = new AtomicLong();
+    public final AtomicLong misses = new AtomicLong();
+    public final AtomicLong evictions = new AtomicLong();
+
+    // Memory tier only
+    public CompilationCache(int maxMemoryEntries) {
+        this(null, 0, maxMemoryEntries);
+    }
+
+    // directory can be null for a memory only cache
+    public CompilationCache(Path directory, long maxDiskBytes, int maxMemoryEntries) {
+        m_directory = directory;
+        m_maxDiskBytes = maxDiskBytes;
+        m_memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        if (directory != null) {
+            loadIndex();
+        }
+    }
+
+    // One compilation result
+    public static class Entry {
+        public final boolean error;
+        public final String text;
+
+        public Entry(boolean error, String text) {
+            this.error = error;
+            this.text = text;
+        }
+    }
+
+    public static String key(byte[] source, String visitor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("v" + VERSION + " " + visitor).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns null on a miss
+    public Entry get(String key) {
+        synchronized (m_memory) {
+            Entry entry = m_memory.get(key);
+            if (entry != null) {
+                memoryHits.incrementAndGet();
+                return entry;
+            }
+        }
+        Entry entry = readDisk(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        synchronized (m_memory) {
+            m_memory.put(key, entry);
+        }
+        return entry;
+    }
+
+    public void put(String key, Entry entry) {
+        synchronized (m_memory) {
+            m_memory.put(key, entry);
+        }
+        if (m_directory != null) {
+            writeDisk(key, entry);
+        }
+    }
+
+    public long getDiskBytes() {
+        return m_diskBytes.get();
+    }
+
+    public String getStats() {
+        return String.format("cache: %d memory hits, %d disk hits, %d misses, %d evictions, %d bytes on disk",
+                memoryHits.get(), diskHits.get(), misses.get(), evictions.get(), m_diskBytes.get());
+    }
+
+    // ----- Disk tier -----
+
+    private void loadIndex() {
+        try {
+            Files.createDirectories(m_directory);
+            try (Stream<Path> files = Files.list(m_directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".tmp")) {
+                        // Left by a crash, unless another process is writing it right now
+                        if (Files.getLastModifiedTime(file).toMillis() < System.currentTimeMillis() - 3600_000) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else {
+                        long size = Files.size(file);
+                        m_disk.put(name, new long[]{size, Files.getLastModifiedTime(file).toMillis()});
+                        m_diskBytes.addAndGet(size);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        evict();
+    }
+
+    private Entry readDisk(String key) {
+        if (m_directory == null) {
+            return null;
+        }
+        long[] info = m_disk.get(key);
+        Path file = m_directory.resolve(key);
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            long now = System.currentTimeMillis();
+            if (info == null) {
+                // Written by another process sharing the folder
+                long[] added = new long[]{Files.size(file), now};
+                info = m_disk.putIfAbsent(key, added);
+                if (info == null) {
+                    info = added;
+                    m_diskBytes.addAndGet(added[0]);
+                }
+            }
+            info[1] = now;
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            // First line: OK or ERROR, then the text
+            int newline = content.indexOf('\n');
+            return new Entry(content.startsWith("ERROR"), content.substring(newline + 1));
+        } catch (NoSuchFileException e) {
+            // Never written, or evicted by another thread or process
+            if (info != null && m_disk.remove(key, info)) {
+                m_diskBytes.addAndGet(-info[0]);
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        byte[] content = ((entry.error ? "ERROR\n" : "OK\n") + entry.text).getBytes(StandardCharsets.UTF_8);
+        Path file = m_directory.resolve(key);
+        Path tmp = m_directory.resolve(key + "." + m_tmpCounter.incrementAndGet() + ".tmp");
+        try {
+            Files.write(tmp, content);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache is only an optimization: the entry stays in memory
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        long[] previous = m_disk.put(key, new long[]{content.length, System.currentTimeMillis()});
+        m_diskBytes.addAndGet(content.length - (previous == null ? 0 : previous[0]));
+        if (m_diskBytes.get() > m_maxDiskBytes) {
+            evict();
+        }
+    }
+
+    // Deletes the least recently used files until the folder fits in m_maxDiskBytes
+    private synchronized void evict() {
+        if (m_diskBytes.get() <= m_maxDiskBytes) {
+            return;
+        }
+        // The last use times are copied first: readers keep updating them during the sort
+        List<Object[]> entries = new ArrayList<>();
+        for (Map.Entry<String, long[]> e : m_disk.entrySet()) {
+            entries.add(new Object[]{e.getKey(), e.getValue(), e.getValue()[1]});
+        }
+        entries.sort(Comparator.comparingLong(e -> (Long) e[2]));
+        for (Object[] e : entries) {
+            if (m_diskBytes.get() <= m_maxDiskBytes) {
+                break;
+            }
+            String key = (String) e[0];
+            long[] info = (long[]) e[1];
+            if (m_disk.remove(key, info)) {
+                m_diskBytes.addAndGet(-info[0]);
+                evictions.incrementAndGet();
+                try {
+                    Files.deleteIfExists(m_directory.resolve(key));
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package analyzer;
+
+import analyzer.ast.SegmentedStack;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description: Statistics of one compilation, filled by Main.Run(..., CompileStats, ...).
+ * Each phase (parse, every visitor pass, output) records its wall time and the bytes allocated
+ * by the current thread, as reported by com.sun.management.ThreadMXBean (-1 when the JVM does
+ * not support it), plus the bytes of the stack segments it ran deep recursions on, which measure
+ * themselves with the same bean (see SegmentedStack.segmentBytes()). The AST nodes, the
+ * temporaries (newID) and the labels (newLabel) are counted too.
+ * The lexer is driven by the parser, so lexing is part of the parse phase.
+ */
+public class CompileStats {
+
+    private static final com.sun.management.ThreadMXBean m_threads = threadBean();
+
+    static {
+        if (m_threads != null) {
+            SegmentedStack.setMeter(CompileStats::threadBytes);
+        }
+    }
+
+    private final List<Phase> m_phases = new ArrayList<>();
+    private String m_current;
+    private long m_startNanos;
+    private long m_startBytes;
+
+    public int astNodes;
+    public int temporaries;
+    public int labels;
+
+    // One measured phase
+    public static class Phase {
+        public final String name;
+        public final long wallNanos;
+        public final long allocatedBytes;
+
+        public Phase(String name, long wallNanos, long allocatedBytes) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    // Starts a phase, the previous one must have been ended
+    public void begin(String name) {
+        if (m_current != null) {
+            throw new IllegalStateException("Phase " + m_current + " is not ended");
+        }
+        m_current = name;
+        m_startBytes = allocatedBytes();
+        m_startNanos = System.nanoTime();
+    }
+
+    public void end() {
+        long nanos = System.nanoTime() - m_startNanos;
+        long bytes = allocatedBytes();
+        if (m_current == null) {
+            throw new IllegalStateException("No phase is started");
+        }
+        m_phases.add(new Phase(m_current, nanos, bytes < 0 ? -1 : bytes - m_startBytes));
+        m_current = null;
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(m_phases);
+    }
+
+    // Returns null if there is no phase with this name
+    public Phase getPhase(String name) {
+        for (Phase phase : m_phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (Phase phase : m_phases) {
+            total += phase.wallNanos;
+        }
+        return total;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":[");
+        for (int i = 0; i < m_phases.size(); i++) {
+            Phase phase = m_phases.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(phase.name)
+                    .append("\",\"wallNanos\":").append(phase.wallNanos)
+                    .append(",\"allocatedBytes\":").append(phase.allocatedBytes).append('}');
+        }
+        json.append("],\"totalNanos\":").append(getTotalNanos())
+                .append(",\"astNodes\":").append(astNodes)
+                .append(",\"temporaries\":").append(temporaries)
+                .append(",\"labels\":").append(labels).append('}');
+        return json.toString();
+    }
+
+    // Bytes allocated so far by the current thread and its stack segments, -1 if unknown
+    private static long allocatedBytes() {
+        if (m_threads == null) {
+            return -1;
+        }
+        return threadBytes() + SegmentedStack.segmentBytes();
+    }
+
+    private static long threadBytes() {
+        return m_threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+}
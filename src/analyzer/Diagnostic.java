@@ -0,0 +1,44 @@
+package analyzer;
+
+import analyzer.ast.ParseException;
+import analyzer.ast.ParserConstants;
+import analyzer.ast.Token;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Description: One problem found by the semantic analysis when it collects every error (see SemantiqueVisitor):
+ * its message, the same as the one of the SemantiqueError it replaces, and where the faulty node starts in the
+ * source. A syntax error noted by the recovering parser becomes one too (see of()). The line and the column
+ * start at 1; both are 0 when the position is unknown.
+ */
+public final class Diagnostic {
+
+    public final int line;
+    public final int column;
+    public final String message;
+
+    public Diagnostic(int line, int column, String message) {
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    // The syntax error e, placed on the token it did not expect: "Syntax error at "x", expecting ";" or "}""
+    public static Diagnostic of(ParseException e) {
+        Token token = e.currentToken.next;
+        Set<String> expected = new LinkedHashSet<>();
+        for (int[] sequence : e.expectedTokenSequences) {
+            expected.add(e.tokenImage[sequence[0]]);
+        }
+        String found = token.kind == ParserConstants.EOF ? "end of file" : "\"" + token.image + "\"";
+        return new Diagnostic(token.beginLine, token.beginColumn,
+                "Syntax error at " + found + ", expecting " + String.join(" or ", expected));
+    }
+
+    @Override
+    public String toString() {
+        return line + ":" + column + ": " + message;
+    }
+}
@@ -1,36 +1,78 @@
 package analyzer;
 
 import analyzer.ast.*;
+import analyzer.ir.IrPrinter;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
 import analyzer.visitors.SemantiqueVisitor;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * Created: 17-08-02
  * Last Changed: 17-08-02
  * Author: Nicolas Cloutier
  *
- * Description: This class contains one of the two entry points of the program.
- * (The other one is TestRunner.main()). But Main.Run() is used by both entries.
+ * Description: This class contains one of the entry points of the program.
+ * (The others are TestRunner.main() and BatchMain.main() for whole directories).
+ * But Main.Run() is used by both Main and TestRunner.
  */
 
 public class Main {
 
     // It is the entry point of the programs
     // The arguments are:
+    // --stats (Optional): Print the CompileStats of the run as JSON on System.err
+    // --all-errors (Optional): With the semantic visitor, print every syntax and semantic error with its line and
+    //                          column instead of stopping at the first one
+    // --check (Optional): Run the semantic visitor before the jump or fall code generator, which reuses its types
+    // --lines (Optional): With a code generator, print the source line of each instruction before it
+    // --visitor <name> (Optional): semantic (default), jump, fall or fused (jump that also does the semantic checks)
     // arg[0] (Required): The path of the input file to parse
     // arg[1] (Optional): The path of the output file, will print to System.out if missing.
     public static void main(String[] args) {
-        if(args.length <= 0) {
+        boolean stats = false;
+        boolean check = false;
+        boolean allErrors = false;
+        boolean lines = false;
+        String visitorName = "semantic";
+        int first = 0;
+        while (first < args.length && args[first].startsWith("--")) {
+            if (args[first].equals("--stats")) {
+                stats = true;
+            } else if (args[first].equals("--all-errors")) {
+                allErrors = true;
+            } else if (args[first].equals("--check")) {
+                check = true;
+            } else if (args[first].equals("--lines")) {
+                lines = true;
+            } else if (args[first].equals("--visitor") && first + 1 < args.length) {
+                visitorName = args[++first];
+            } else {
+                System.err.println("Unknown option " + args[first]);
+                return;
+            }
+            first++;
+        }
+
+        if(args.length <= first) {
             System.err.println("args[0] is missing! (The file to read)");
             return;
         }
 
         InputStream file;
         try {
-            file = new java.io.FileInputStream(args[0]);
+            file = new java.io.FileInputStream(args[first]);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             return;
@@ -39,19 +81,68 @@ public class Main {
         // For this test we are using the print visitor, but you can change this
         // to whatever you want.
         PrintWriter pw = new PrintWriter(System.out);
+        // With --lines, the code generator keeps its code and it is printed with the lines below
+        PrintWriter codeWriter = lines ? null : pw;
+        ParserVisitor visitor;
+        if (visitorName.equals("jump")) {
+            visitor = new IntermediateCodeGenVisitor(codeWriter);
+        } else if (visitorName.equals("fall")) {
+            visitor = new IntermediateCodeGenFallVisitor(codeWriter);
+        } else if (visitorName.equals("fused")) {
+            visitor = new IntermediateCodeGenVisitor(codeWriter, false, true);
+        } else {
+            visitor = new SemantiqueVisitor(pw);
+        }
+        CompileStats compileStats = stats ? new CompileStats() : null;
+        ParserVisitor[] visitors = {visitor};
+        if (check && !(visitor instanceof SemantiqueVisitor)) {
+            // The checker only annotates the tree, its "all good" is not printed
+            visitors = new ParserVisitor[]{new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), visitor};
+        }
         try {
-            Run(new SemantiqueVisitor(pw), file, pw);
+            if (allErrors && visitor instanceof SemantiqueVisitor) {
+                Diagnose(file, pw);
+            } else {
+                Run(file, pw, false, compileStats, visitors);
+            }
+            if (lines && visitor instanceof IntermediateCodeGenVisitor) {
+                new IrPrinter(pw, true).print(((IntermediateCodeGenVisitor) visitor).getCode());
+            } else if (lines && visitor instanceof IntermediateCodeGenFallVisitor) {
+                new IrPrinter(pw, true).print(((IntermediateCodeGenFallVisitor) visitor).getCode());
+            }
+            pw.flush();
         } catch (ParseException e) {
             e.printStackTrace();
         }
+        if (compileStats != null) {
+            System.err.println(compileStats.toJson());
+        }
     }
 
     // This is the main function of the program, it is used by main and it is used
     // by the test cases.
     public static void Run(ParserVisitor visitor, InputStream input, PrintWriter output) throws ParseException {
+        Run(visitor, input, output, false);
+    }
+
+    // Same as Run, but when collapseExpr is true the parser only builds the expression
+    // nodes (BoolExpr, CompExpr, AddExpr, MulExpr, UnaExpr, NotExpr) that hold an operator.
+    public static void Run(ParserVisitor visitor, InputStream input, PrintWriter output, boolean collapseExpr) throws ParseException {
+        Run(visitor, input, output, collapseExpr, false);
+    }
+
+    // Same as Run, but when flatTree is true the parser builds a FlatTree (Parser.ParseFlat) instead of
+    // the object tree, and the visitor runs on views of its nodes.
+    public static void Run(ParserVisitor visitor, InputStream input, PrintWriter output, boolean collapseExpr,
+                           boolean flatTree) throws ParseException {
+        if (flatTree) {
+            Parser.ParseFlat(input, collapseExpr).accept(visitor, null);
+            output.flush();
+            return;
+        }
 
         // This line ask the parser built from the jjt file to read & parse the input file
-        ASTProgram root = Parser.ParseTree(input);
+        ASTProgram root = Parser.ParseTree(input, collapseExpr);
 
         // After this we pass the visitor to the root of the parsed tree
         root.jjtAccept(visitor, null);
@@ -59,4 +150,134 @@ public class Main {
         // If the visitor has printed in the output, make sure everything is flushed
         output.flush();
     }
+
+    // Same as Run, but the tree is first checked by checker, which writes the resolved types on its nodes.
+    // The generator (IntermediateCodeGenVisitor or IntermediateCodeGenFallVisitor) then reads them instead of
+    // resolving every identifier again. A SemantiqueError is thrown before any code is generated.
+    public static void Run(SemantiqueVisitor checker, ParserVisitor generator, InputStream input, PrintWriter output)
+            throws ParseException {
+        Run(input, output, false, null, checker, generator);
+    }
+
+    // Same as Run, but the visitors are applied in order on the same tree and, when stats is not null,
+    // every phase is measured: "parse", one phase per visitor (named after its class) and "output", which prints
+    // the code of the generators.
+    // The AST nodes are counted after the parse, the temporaries and labels after a code generator.
+    public static void Run(InputStream input, PrintWriter output, boolean collapseExpr, CompileStats stats,
+                           ParserVisitor... visitors) throws ParseException {
+        if (stats == null) {
+            ASTProgram root = Parser.ParseTree(input, collapseExpr);
+            for (ParserVisitor visitor : visitors) {
+                root.jjtAccept(visitor, null);
+            }
+            output.flush();
+            return;
+        }
+
+        stats.begin("parse");
+        ASTProgram root = Parser.ParseTree(input, collapseExpr);
+        stats.end();
+        stats.astNodes = countNodes(root);
+
+        for (ParserVisitor visitor : visitors) {
+            if (visitor instanceof IntermediateCodeGenVisitor) {
+                ((IntermediateCodeGenVisitor) visitor).deferPrint();
+            } else if (visitor instanceof IntermediateCodeGenFallVisitor) {
+                ((IntermediateCodeGenFallVisitor) visitor).deferPrint();
+            }
+        }
+        for (ParserVisitor visitor : visitors) {
+            stats.begin(visitor.getClass().getSimpleName());
+            root.jjtAccept(visitor, null);
+            stats.end();
+            if (visitor instanceof IntermediateCodeGenVisitor) {
+                stats.temporaries += ((IntermediateCodeGenVisitor) visitor).getTempCount();
+                stats.labels += ((IntermediateCodeGenVisitor) visitor).getLabelCount();
+            } else if (visitor instanceof IntermediateCodeGenFallVisitor) {
+                stats.temporaries += ((IntermediateCodeGenFallVisitor) visitor).getTempCount();
+                stats.labels += ((IntermediateCodeGenFallVisitor) visitor).getLabelCount();
+            }
+        }
+
+        // The generators only built their IrProgram during their phase: printing it is part of the output
+        stats.begin("output");
+        for (ParserVisitor visitor : visitors) {
+            if (visitor instanceof IntermediateCodeGenVisitor) {
+                ((IntermediateCodeGenVisitor) visitor).print();
+            } else if (visitor instanceof IntermediateCodeGenFallVisitor) {
+                ((IntermediateCodeGenFallVisitor) visitor).print();
+            }
+        }
+        output.flush();
+        stats.end();
+    }
+
+    // Reports every error of the program instead of stopping at the first one. The parser recovers from its
+    // syntax errors (see Parser.ParseTree), then the semantic visitor collects its errors on the partial tree.
+    // The diagnostics are printed one per line, the syntax errors first, or "all good" if there are none.
+    public static List<Diagnostic> Diagnose(InputStream input, PrintWriter output) throws ParseException {
+        List<ParseException> syntaxErrors = new ArrayList<>();
+        ASTProgram root = Parser.ParseTree(input, false, syntaxErrors);
+        SemantiqueVisitor checker = new SemantiqueVisitor(new PrintWriter(Writer.nullWriter()), true);
+        root.jjtAccept(checker, null);
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (ParseException e : syntaxErrors) {
+            diagnostics.add(Diagnostic.of(e));
+        }
+        diagnostics.addAll(checker.getDiagnostics());
+        if (diagnostics.isEmpty()) {
+            output.print("all good");
+        }
+        for (Diagnostic diagnostic : diagnostics) {
+            output.println(diagnostic);
+        }
+        output.flush();
+        return diagnostics;
+    }
+
+    // Number of nodes in the tree, the root included
+    public static int countNodes(Node root) {
+        int count = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            count++;
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                stack.push(node.jjtGetChild(i));
+            }
+        }
+        return count;
+    }
+
+    // Same as Run, but the result is looked up in the cache first. The key is the hash of the source
+    // and the name of the visitor (for example "semantic", "jump" or "fall"), so the same name must
+    // always mean the same visitor. On a miss, the visitor built by newVisitor writes into a buffer;
+    // its text, or the message of the SemantiqueError it throws, is stored and then replayed.
+    // Parse errors are not cached.
+    public static void Run(String visitorName, Function<PrintWriter, ParserVisitor> newVisitor, InputStream input,
+                           PrintWriter output, CompilationCache cache) throws ParseException, IOException {
+        byte[] source = input.readAllBytes();
+        String key = CompilationCache.key(source, visitorName);
+
+        CompilationCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            StringWriter buffer = new StringWriter();
+            PrintWriter writer = new PrintWriter(buffer);
+            try {
+                Run(newVisitor.apply(writer), new ByteArrayInputStream(source), writer);
+                entry = new CompilationCache.Entry(false, buffer.toString());
+            } catch (SemantiqueError e) {
+                entry = new CompilationCache.Entry(true, e.getMessage());
+            }
+            cache.put(key, entry);
+        }
+
+        if (entry.error) {
+            throw new SemantiqueError(entry.text);
+        }
+        output.print(entry.text);
+        output.flush();
+    }
 }
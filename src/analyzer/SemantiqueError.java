@@ -2,9 +2,10 @@ package analyzer;
 
 /**
  * Created by febru on 19-02-01.
+ * Sans trace de pile : l'erreur vient du programme analysé, pas du compilateur, et la remplir coûte cher.
  */
 public class SemantiqueError extends Error {
     public SemantiqueError(String message) {
-        super(message);
+        super(message, null, true, false);
     }
 }
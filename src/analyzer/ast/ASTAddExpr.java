@@ -1,9 +1,7 @@
 package analyzer.ast;/* Generated By:JJTree: Do not edit this line. ASTAddExpr.java */
 
-import java.util.Vector;
 
-
-public class ASTAddExpr extends SimpleNode {
+public class ASTAddExpr extends OperatorNode {
   public ASTAddExpr(int id) {
     super(id);
   }
@@ -18,8 +16,4 @@ public class ASTAddExpr extends SimpleNode {
     return visitor.visit(this, data);
   }
 
-  // PLB
-  private Vector<String> m_ops = new Vector<>();
-  public void addOp(String o) { m_ops.add(o); }
-  public Vector getOps() { return m_ops; }
 }
@@ -19,8 +19,8 @@ class ASTCompExpr extends SimpleNode {
     return visitor.visit(this, data);
   }
 
-  // PLB
-  private String m_value = null;
-  public void setValue(String v) { m_value = v; }
-  public String getValue() { return m_value; }
+  // PLB : code de Operator, NONE sans comparaison
+  private byte m_op = Operator.NONE;
+  public void setOp(byte o) { m_op = o; }
+  public byte getOp() { return m_op; }
 }
\ No newline at end of file
@@ -27,4 +27,26 @@ public class ASTIdentifier extends SimpleNode {
     public String getValue() {
         return m_value;
     }
+
+    // Numéro de symbole du nom dans le programme (voir Symbols)
+    private int m_symbol = -1;
+
+    public void setSymbol(int s) {
+        m_symbol = s;
+    }
+
+    public int getSymbol() {
+        return m_symbol;
+    }
+
+    // Ordinal de la valeur d'enum nommée, écrit par SemantiqueVisitor (-1 si ce n'en est pas une)
+    private int m_enumValue = -1;
+
+    public void setEnumValue(int v) {
+        m_enumValue = v;
+    }
+
+    public int getEnumValue() {
+        return m_enumValue;
+    }
 }
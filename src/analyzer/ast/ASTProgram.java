@@ -0,0 +1,28 @@
+/* Generated By:JJTree: Do not edit this line. ASTProgram.java Version 7.0 */
+/* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=false,NODE_PREFIX=AST,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_CLASS_VISIBILITY_PUBLIC=true */
+package analyzer.ast;
+
+public
+class ASTProgram extends SimpleNode {
+  public ASTProgram(int id) {
+    super(id);
+  }
+
+  public ASTProgram(Parser p, int id) {
+    super(p, id);
+  }
+
+
+  /** Accept the visitor. **/
+  public Object jjtAccept(ParserVisitor visitor, Object data) {
+
+    return
+    visitor.visit(this, data);
+  }
+
+  // PLB : les identificateurs du programme, numérotés par le parseur (voir ASTIdentifier.getSymbol())
+  private Symbols m_symbols = new Symbols();
+  public void setSymbols(Symbols s) { m_symbols = s; }
+  public Symbols getSymbols() { return m_symbols; }
+}
+/* JavaCC - OriginalChecksum=6b74dd959497ec2efa41a075092b82f7 (do not edit this line) */
@@ -2,10 +2,8 @@
 /* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=false,NODE_PREFIX=AST,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_CLASS_VISIBILITY_PUBLIC=true */
 package analyzer.ast;
 
-import java.util.Vector;
-
 public
-class ASTUnaExpr extends SimpleNode {
+class ASTUnaExpr extends OperatorNode {
   public ASTUnaExpr(int id) {
     super(id);
   }
@@ -20,8 +18,4 @@ class ASTUnaExpr extends SimpleNode {
     return visitor.visit(this, data);
   }
 
-  // PLB
-  private Vector<String> m_ops = new Vector<>();
-  public void addOp(String o) { m_ops.add(o); }
-  public Vector getOps() { return m_ops; }
 }
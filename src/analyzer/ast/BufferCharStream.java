@@ -0,0 +1,191 @@
+package analyzer.ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Flux de caractères du parseur lu directement dans les octets de la source, chargée d'un coup dans un seul
+ * tableau. Il remplace JavaCharStream quand la source n'est que de l'ASCII sans échappement unicode : chaque
+ * octet est alors un caractère, sans décodage, sans traitement des échappements et sans tampon circulaire à
+ * remplir. open() vérifie ces conditions en un passage et retourne sinon un JavaCharStream habituel.
+ *
+ * Les lignes et colonnes ne sont pas notées pour chaque caractère lu : elles sont retrouvées à la demande par un
+ * curseur qui suit la lecture (voir locate()). Comme dans JavaCharStream, une tabulation compte pour une colonne.
+ */
+public final class BufferCharStream extends JavaCharStream {
+
+    private final byte[] m_source;
+    private final int m_length;
+
+    // La ligne m_line commence à m_lineStart et contient la position m_cursor
+    private int m_cursor = 0;
+    private int m_line = 1;
+    private int m_lineStart = 0;
+
+    private BufferCharStream(byte[] source) {
+        super((java.io.Reader) null, 1, 1, 0);
+        m_source = source;
+        m_length = source.length;
+    }
+
+    // Flux pour le fichier, lu d'un coup
+    public static JavaCharStream open(Path file) throws IOException {
+        return open(Files.readAllBytes(file));
+    }
+
+    // Flux pour les octets de source, qui ne doivent plus changer pendant l'analyse
+    public static JavaCharStream open(byte[] source) {
+        if (isPlain(source)) {
+            return new BufferCharStream(source);
+        }
+        // Autre chose que de l'ASCII ou des échappements unicode : décodage et échappements de JavaCharStream
+        return new JavaCharStream(new ByteArrayInputStream(source));
+    }
+
+    // Vrai si la source n'a que des octets ASCII et aucune barre oblique inverse suivie d'un u
+    static boolean isPlain(byte[] source) {
+        boolean backslash = false;
+        for (byte b : source) {
+            if (b < 0 || (backslash && b == 'u')) {
+                return false;
+            }
+            backslash = b == '\\';
+        }
+        return true;
+    }
+
+    @Override
+    public char BeginToken() throws IOException {
+        if (bufpos + 1 >= m_length) {
+            // Le jeton EOF prend la position du dernier caractère, comme dans JavaCharStream
+            tokenBegin = bufpos;
+            throw new IOException();
+        }
+        tokenBegin = ++bufpos;
+        return (char) m_source[bufpos];
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        if (bufpos + 1 >= m_length) {
+            throw new IOException();
+        }
+        return (char) m_source[++bufpos];
+    }
+
+    @Override
+    public void backup(int amount) {
+        bufpos -= amount;
+    }
+
+    // Saute un commentaire // dont les deux barres viennent d'être lues : avance jusqu'à sa fin de ligne, lue
+    // aussi, ou jusqu'à la fin de la source. Les octets sont parcourus dans le tableau, sans BeginToken().
+    public void skipLineComment() {
+        int i = bufpos + 1;
+        while (i < m_length && m_source[i] != '\n' && m_source[i] != '\r') {
+            i++;
+        }
+        bufpos = Math.min(i, m_length - 1);
+        tokenBegin = bufpos;
+    }
+
+    // Saute un commentaire /* dont l'ouverture vient d'être lue : avance jusqu'à son */. Faux si la source
+    // finit avant, le flux est alors à sa fin.
+    public boolean skipBlockComment() {
+        for (int i = bufpos + 1; i + 1 < m_length; i++) {
+            if (m_source[i] == '*' && m_source[i + 1] == '/') {
+                bufpos = i + 1;
+                tokenBegin = bufpos;
+                return true;
+            }
+        }
+        bufpos = m_length - 1;
+        tokenBegin = bufpos;
+        return false;
+    }
+
+    @Override
+    public String GetImage() {
+        return new String(m_source, tokenBegin, bufpos - tokenBegin + 1, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public char[] GetSuffix(int len) {
+        char[] suffix = new char[len];
+        for (int i = 0; i < len; i++) {
+            suffix[i] = (char) m_source[bufpos - len + 1 + i];
+        }
+        return suffix;
+    }
+
+    @Override
+    public int getBeginLine() {
+        locate(tokenBegin);
+        return m_line;
+    }
+
+    @Override
+    public int getBeginColumn() {
+        locate(tokenBegin);
+        return tokenBegin - m_lineStart + 1;
+    }
+
+    @Override
+    public int getEndLine() {
+        locate(bufpos);
+        return m_line;
+    }
+
+    @Override
+    public int getEndColumn() {
+        locate(bufpos);
+        return bufpos - m_lineStart + 1;
+    }
+
+    @Override
+    @Deprecated
+    public int getLine() {
+        return getEndLine();
+    }
+
+    @Override
+    @Deprecated
+    public int getColumn() {
+        return getEndColumn();
+    }
+
+    @Override
+    public void adjustBeginLineColumn(int newLine, int newCol) {
+        throw new UnsupportedOperationException("BufferCharStream computes its lines from the source");
+    }
+
+    // Déplace le curseur sur pos en comptant les fins de ligne franchies. La lecture avance presque toujours :
+    // un retour en arrière ne remonte que dans le jeton courant.
+    private void locate(int pos) {
+        while (pos < m_lineStart && m_lineStart > 0) {
+            // m_lineStart - 1 termine la ligne précédente, qui commence après la fin de ligne d'avant
+            int start = m_lineStart - 1;
+            while (start > 0 && !endsLine(start - 1)) {
+                start--;
+            }
+            m_lineStart = start;
+            m_line--;
+        }
+        for (int i = Math.max(m_cursor, 0); i < pos; i++) {
+            if (endsLine(i)) {
+                m_line++;
+                m_lineStart = i + 1;
+            }
+        }
+        m_cursor = pos;
+    }
+
+    // Vrai si le caractère à i termine sa ligne : \n, ou \r qui n'est pas suivi d'un \n
+    private boolean endsLine(int i) {
+        byte b = m_source[i];
+        return b == '\n' || (b == '\r' && (i + 1 == m_length || m_source[i + 1] != '\n'));
+    }
+}
@@ -0,0 +1,819 @@
+package analyzer.ast;
+
+import analyzer.SemantiqueError;
+import analyzer.ir.IrProgram;
+import analyzer.ir.SwitchLowering;
+
+import java.util.Arrays;
+
+/**
+ * Génération du code intermédiaire pendant l'analyse, sans AST : les actions des règles Code* de Parser
+ * (voir Parser.ParseCode()) appellent ces méthodes au fil des jetons. Le code est celui
+ * d'IntermediateCodeGenVisitor avec vérification (check) : mêmes instructions, mêmes numéros de newID() et
+ * newLabel(), mêmes BoolLabel passés aux expressions et mêmes SemantiqueError, lancées dans le même ordre.
+ *
+ * Le visiteur numérote souvent un temporaire ou une étiquette avant de visiter un enfant dont le parseur n'a
+ * pas encore vu la fin : le temporaire d'un opérateur avant son opérande gauche, la sortie d'une instruction
+ * avant de savoir si c'est la dernière du bloc, l'étiquette d'un && ou d'un || avant de savoir lequel des deux
+ * suit l'opérande. Ici, chaque étiquette et chaque temporaire est une entrée d'une Numbering, insérée dans la
+ * liste à l'endroit où le visiteur l'aurait créée, ou l'alias d'une autre entrée. Le code émis porte les
+ * entrées, remplacées par leur numéro dans finish().
+ *
+ * La mise à jour d'un for, émise après le corps, et l'aiguillage d'un switch, qui dépend de toutes ses valeurs
+ * mais précède les blocs, sont les seuls codes émis dans un autre ordre que le source : le code déjà émis est
+ * retiré (IrProgram.truncate()) puis émis de nouveau à sa place.
+ *
+ * Le visiteur plante sur une conversion (ClassCastException, NullPointerException) quand une expression
+ * booléenne sert de valeur ou sort d'une condition dans un programme que la vérification accepte : comparée
+ * avec ==, valeur de case, ou dans un for, qui n'est pas vérifié. Ici, c'est une SemantiqueError qui donne la
+ * ligne de l'instruction, notée sans être lancée (voir fail()) : l'analyse continue, et une SemantiqueError
+ * plus loin passe avant elle, comme dans le visiteur.
+ */
+final class DirectCodeGen {
+
+    // Pas de valeur : le null que le visiteur retourne pour une expression booléenne
+    static final int NO_VALUE = -1;
+
+    // Le data d'une expression hors d'un contexte booléen, l'Integer du visiteur
+    static final Object NOT_BOOLEAN = new Object();
+
+    // Cases par opérande d'une chaîne d'opérateurs dans m_chains
+    private static final int OPERAND = 4;
+
+    private final IrProgram m_code = new IrProgram();
+    private final Symbols m_symbols;
+
+    // Indexés par numéro de symbole : la sorte déclarée (SymbolTable du visiteur, Type.NONE pour null), le
+    // type selon la vérification, l'ordinal de chaque valeur d'enum (-1 sinon) et l'opérande de chaque
+    // variable déjà utilisée (-1 sinon)
+    private byte[] m_kinds = new byte[0];
+    private byte[] m_types = new byte[0];
+    private int[] m_enumValues = new int[0];
+    private int[] m_variables = new int[0];
+
+    // Faux dans un for, comme dans le visiteur ; le type de la dernière expression et la première erreur notée
+    private boolean m_check = true;
+    private byte m_type = Type.NONE;
+    private SemantiqueError m_failure = null;
+
+    private final Numbering m_labels = new Numbering();
+    private final Numbering m_temps = new Numbering();
+    // L'étiquette 0 du visiteur, la fin du programme, et le BoolLabel(0, 0) des expressions mortes
+    private final int m_end;
+    private final BoolLabel m_endLabels;
+
+    // Opérandes des chaînes d'opérateurs en cours, OPERAND cases chacun. Pour + - * / % : la fin de m_temps
+    // avant l'opérande (puis son temporaire), sa valeur, son type et l'opérateur qui le suit. Pour && || : la
+    // fin de m_labels avant l'opérande, ses deux étiquettes en attente (-1 sans) et son type.
+    private int[] m_chains = new int[16 * OPERAND];
+    private int m_chainTop = 0;
+
+    DirectCodeGen(Symbols symbols) {
+        m_symbols = symbols;
+        m_end = m_labels.append();
+        m_endLabels = new BoolLabel(m_end, m_end);
+    }
+
+    int endLabel() {
+        return m_end;
+    }
+
+    int getLine() {
+        return m_code.getLine();
+    }
+
+    void setLine(int line) {
+        m_code.setLine(line);
+    }
+
+    byte getType() {
+        return m_type;
+    }
+
+    int newLabel() {
+        return m_labels.append();
+    }
+
+    private int newID() {
+        return IrProgram.temp(m_temps.append());
+    }
+
+    void label(int label) {
+        m_code.label(label);
+    }
+
+    void jump(int label) {
+        m_code.jump(label);
+    }
+
+    // Numéro de symbole du nom, avec sa case dans chaque table
+    int symbol(String name) {
+        int symbol = m_symbols.intern(name);
+        if (symbol == m_kinds.length) {
+            int length = Math.max(16, symbol * 2);
+            m_kinds = Arrays.copyOf(m_kinds, length);
+            m_types = Arrays.copyOf(m_types, length);
+            m_enumValues = Arrays.copyOf(m_enumValues, length);
+            m_variables = Arrays.copyOf(m_variables, length);
+            Arrays.fill(m_enumValues, symbol, length, -1);
+            Arrays.fill(m_variables, symbol, length, -1);
+        }
+        return symbol;
+    }
+
+    private int variable(int symbol) {
+        if (m_variables[symbol] < 0) {
+            m_variables[symbol] = m_code.variable(m_symbols.name(symbol));
+        }
+        return m_variables[symbol];
+    }
+
+    // Le code du programme, une fois lu en entier. line est sa dernière ligne, celle de l'étiquette de fin.
+    IrProgram finish(int line) {
+        if (m_failure != null) {
+            throw m_failure;
+        }
+        m_code.setLine(line);
+        m_code.label(m_end);
+        int[] labels = m_labels.numbers();
+        int[] temps = m_temps.numbers();
+        for (int i = 0; i < m_code.size(); i++) {
+            int opcode = m_code.opcode(i);
+            int target = m_code.target(i);
+            int a = temp(m_code.a(i), temps);
+            int b = m_code.b(i);
+            switch (opcode) {
+                case IrProgram.LABEL:
+                case IrProgram.GOTO:
+                case IrProgram.IF:
+                case IrProgram.IF_FALSE:
+                    m_code.set(i, opcode, m_code.operator(i), labels[target], a, temp(b, temps));
+                    break;
+                case IrProgram.GOTO_TABLE:
+                    // b est la position de la table
+                    m_code.set(i, opcode, m_code.operator(i), labels[target], a, b);
+                    for (int k = 0; k < m_code.tableSize(i); k++) {
+                        m_code.setTableLabel(i, k, labels[m_code.tableLabel(i, k)]);
+                    }
+                    break;
+                default:
+                    m_code.set(i, opcode, m_code.operator(i), temp(target, temps), a, temp(b, temps));
+                    break;
+            }
+        }
+        return m_code;
+    }
+
+    private static int temp(int operand, int[] temps) {
+        return IrProgram.kind(operand) == IrProgram.KIND_TEMP ? IrProgram.temp(temps[IrProgram.index(operand)]) : operand;
+    }
+
+    // ----- Déclarations -----
+
+    // « num a » ou « bool a »
+    void declare(String type, int symbol) {
+        byte kind = type.equals("num") ? Type.NUMBER : Type.BOOL;
+        m_kinds[symbol] = kind;
+        m_types[symbol] = kind;
+    }
+
+    // « E a », une variable du type enum E
+    void declareEnum(int type, int symbol) {
+        if (m_check && m_types[type] != Type.ENUM_TYPE) {
+            throw new SemantiqueError("Invalid use of undefined Identifier " + m_symbols.name(type));
+        }
+        m_kinds[symbol] = Type.ENUM;
+        m_types[symbol] = Type.ENUM;
+    }
+
+    void enumType(int symbol) {
+        m_kinds[symbol] = Type.ENUM_TYPE;
+        m_types[symbol] = Type.ENUM_TYPE;
+    }
+
+    void enumValue(int symbol, int ordinal) {
+        m_enumValues[symbol] = ordinal;
+        m_types[symbol] = Type.ENUM;
+    }
+
+    // ----- Instructions -----
+
+    // Point d'insertion et étiquette en attente d'une instruction d'un bloc, avant de la lire
+    int labelMark() {
+        return m_labels.tail();
+    }
+
+    int pendingLabel() {
+        return m_labels.pending();
+    }
+
+    // Après l'instruction : si une autre la suit, label est son étiquette de sortie, créée avant elle (après
+    // mark) et émise sur sa dernière ligne ; sinon, c'est la sortie du bloc, next
+    void blockEnd(int label, int mark, boolean more, int endLine, int line, int next) {
+        if (more) {
+            m_labels.place(label, mark);
+            m_code.setLine(endLine);
+            m_code.label(label);
+            m_code.setLine(line);
+        } else {
+            m_labels.alias(label, next);
+        }
+    }
+
+    // Début d'une affectation : sa cible doit être définie. Retourne le data de l'expression affectée.
+    Object assignBegin(int symbol) {
+        if (m_check) {
+            checkDefined(symbol);
+        }
+        variable(symbol);
+        return m_kinds[symbol] == Type.BOOL ? new BoolLabel(newLabel(), newLabel()) : NOT_BOOLEAN;
+    }
+
+    void assignEnd(int symbol, Object context, int value, int next) {
+        if (m_check && m_type != m_types[symbol]) {
+            throw new SemantiqueError("Invalid type in assignment");
+        }
+        int dst = variable(symbol);
+        if (m_kinds[symbol] == Type.BOOL) {
+            BoolLabel labels = (BoolLabel) context;
+            m_code.label(labels.lTrue);
+            m_code.copy(dst, m_code.constant(1));
+            m_code.jump(next);
+            m_code.label(labels.lFalse);
+            m_code.copy(dst, m_code.constant(0));
+        } else {
+            // Les valeurs d'enum sont déjà remplacées par leur ordinal dans identifier()
+            m_code.copy(dst, operand(value));
+        }
+    }
+
+    // Les étiquettes d'un if ; celle du faux attend de savoir s'il y a un else
+    BoolLabel ifBegin() {
+        return new BoolLabel(newLabel(), m_labels.pending());
+    }
+
+    // Après la condition d'un if ou d'un while
+    void condition(BoolLabel labels) {
+        if (m_check && m_type != Type.BOOL) {
+            throw new SemantiqueError("Invalid type in condition");
+        }
+        m_code.label(labels.lTrue);
+    }
+
+    // Le visiteur a créé l'étiquette du else juste après celle du vrai
+    void elseBegin(BoolLabel labels, int next) {
+        m_code.jump(next);
+        m_labels.place(labels.lFalse, labels.lTrue);
+        m_code.label(labels.lFalse);
+    }
+
+    void ifEnd(BoolLabel labels, int next) {
+        if (m_labels.isPending(labels.lFalse)) {
+            m_labels.alias(labels.lFalse, next);
+        }
+    }
+
+    // Début d'un for, dont le contenu n'est pas vérifié
+    Loop forBegin(int next) {
+        Loop loop = new Loop();
+        loop.start = newLabel();
+        loop.body = newLabel();
+        loop.condition = new BoolLabel(newLabel(), next);
+        loop.check = m_check;
+        m_check = false;
+        return loop;
+    }
+
+    // Après la condition : la mise à jour, lue avant le corps, sera émise après lui avec ses étiquettes
+    // et ses temporaires
+    void forUpdate(Loop loop) {
+        m_code.label(loop.condition.lTrue);
+        loop.from = m_code.size();
+        loop.labels = m_labels.marker();
+        loop.temps = m_temps.marker();
+    }
+
+    void forBody(Loop loop) {
+        loop.update = m_code.truncate(loop.from);
+        loop.lastLabel = m_labels.tail();
+        loop.lastTemp = m_temps.tail();
+    }
+
+    void forEnd(Loop loop) {
+        m_code.label(loop.body);
+        m_labels.moveToEnd(loop.labels, loop.lastLabel);
+        m_temps.moveToEnd(loop.temps, loop.lastTemp);
+        m_code.append(loop.update, 0, loop.update.length / IrProgram.STRIDE);
+        m_code.jump(loop.start);
+        m_check = loop.check;
+    }
+
+    Switch switchBegin(int symbol) {
+        Switch s = new Switch();
+        s.variable = identifier(symbol, NOT_BOOLEAN);
+        s.from = m_code.size();
+        return s;
+    }
+
+    // Valeur d'un case. En vérification, une valeur non définie n'est signalée qu'au début de son bloc
+    // (caseBlock()), comme dans le visiteur ; les autres sont générées sans vérification.
+    void caseIdentifier(Switch s, int symbol) {
+        if (m_check && m_types[symbol] == Type.NONE) {
+            s.add(variable(symbol), "Invalid use of undefined Identifier " + m_symbols.name(symbol));
+            return;
+        }
+        boolean check = m_check;
+        m_check = false;
+        try {
+            s.add(identifier(symbol, NOT_BOOLEAN), null);
+        } finally {
+            m_check = check;
+        }
+    }
+
+    void caseInteger(Switch s, int value) {
+        s.add(integer(value), null);
+    }
+
+    void caseBlock(Switch s) {
+        int i = s.size - 1;
+        if (s.errors[i] != null) {
+            throw new SemantiqueError(s.errors[i]);
+        }
+        s.labels[i] = m_labels.marker();
+        s.starts[i] = m_code.size();
+    }
+
+    void caseBreak(Switch s) {
+        s.breaks[s.size - 1] = true;
+        m_code.jump(m_end);
+    }
+
+    // Fin d'un switch : les blocs déjà émis sont retirés, puis émis de nouveau après l'aiguillage (ou entre
+    // les tests de la chaîne linéaire), avec les étiquettes que le visiteur crée avant chacun
+    void switchEnd(Switch s) {
+        int n = s.size;
+        int[] values = Arrays.copyOf(s.values, n);
+        int strategy = SwitchLowering.choose(m_code, values);
+        int[] blocks = m_code.truncate(s.from);
+        int end = blocks.length / IrProgram.STRIDE;
+
+        if (strategy != SwitchLowering.LINEAR) {
+            int[] labels = new int[n];
+            int[] after = {s.labels[0]};
+            for (int i = 0; i < n; i++) {
+                labels[i] = after[0] = m_labels.insert(after[0]);
+            }
+            new SwitchLowering(m_code, () -> after[0] = m_labels.insert(after[0]))
+                    .dispatch(strategy, s.variable, values, labels, m_end);
+            for (int i = 0; i < n; i++) {
+                m_code.label(labels[i]);
+                m_code.append(blocks, s.starts[i] - s.from, i + 1 < n ? s.starts[i + 1] - s.from : end);
+            }
+            return;
+        }
+
+        int gotoLabel = -1;
+        for (int i = 0; i < n; i++) {
+            boolean last = i == n - 1;
+            int nextLabel = last ? m_end : m_labels.insert(gotoLabel != -1 ? gotoLabel : s.labels[i]);
+            m_code.ifGoto(s.variable, IrProgram.NE, values[i], nextLabel);
+            if (gotoLabel != -1) {
+                m_code.label(gotoLabel);
+                gotoLabel = -1;
+            }
+            m_code.append(blocks, s.starts[i] - s.from, last ? end : s.starts[i + 1] - s.from);
+            if (!s.breaks[i] && !last) {
+                gotoLabel = m_labels.insert(s.labels[i + 1]);
+                m_code.jump(gotoLabel);
+            }
+            if (!last) {
+                m_code.label(nextLabel);
+            }
+        }
+    }
+
+    // ----- Expressions -----
+
+    // Chaîne a + b - c (ou a * b / c) : associative à droite, comme codeExtAddMul() du visiteur. Le temporaire
+    // de chaque opérateur est créé avant son opérande gauche, les calculs sont émis à la fin.
+    int chainBegin() {
+        int base = m_chainTop;
+        push(m_temps.tail());
+        return base;
+    }
+
+    void chainOperand(int value) {
+        m_chains[m_chainTop - OPERAND + 1] = value;
+        m_chains[m_chainTop - OPERAND + 2] = m_type;
+    }
+
+    void chainOperator(byte op) {
+        int e = m_chainTop - OPERAND;
+        m_chains[e] = m_temps.insert(m_chains[e]);
+        m_chains[e + 3] = op;
+        push(m_temps.tail());
+    }
+
+    int chainEnd(int base) {
+        int n = (m_chainTop - base) / OPERAND;
+        m_chainTop = base;
+        if (n == 1) {
+            return m_chains[base + 1];
+        }
+        if (m_check) {
+            checkChain(base, n, Type.NUMBER);
+        }
+        int right = operand(m_chains[base + (n - 1) * OPERAND + 1]);
+        for (int i = n - 2; i >= 0; i--) {
+            int e = base + i * OPERAND;
+            int addr = IrProgram.temp(m_chains[e]);
+            m_code.binary(addr, operand(m_chains[e + 1]), m_chains[e + 3], right);
+            right = addr;
+        }
+        return IrProgram.temp(m_chains[base]);
+    }
+
+    // Chaîne a && b || c : le data de chaque opérande est un BoolLabel dont les deux étiquettes attendent
+    // l'opérateur qui le suit. Hors d'un contexte booléen, le premier reçoit le data de la chaîne.
+    int boolBegin() {
+        return m_chainTop;
+    }
+
+    Object boolOperand(int base, Object data) {
+        push(m_labels.tail());
+        int e = m_chainTop - OPERAND;
+        if (e == base && !(data instanceof BoolLabel)) {
+            m_chains[e + 1] = -1;
+            m_chains[e + 2] = -1;
+            return data;
+        }
+        BoolLabel labels = new BoolLabel(m_labels.pending(), m_labels.pending());
+        m_chains[e + 1] = labels.lTrue;
+        m_chains[e + 2] = labels.lFalse;
+        return labels;
+    }
+
+    void boolOperator(Object data, byte op) {
+        int e = m_chainTop - OPERAND;
+        m_chains[e + 3] = m_type;
+        BoolLabel labels = isDead(data) ? m_endLabels : labels(data);
+        int lTrue = m_chains[e + 1];
+        int lFalse = m_chains[e + 2];
+        if (lTrue < 0) {
+            m_code.label(m_labels.insert(m_chains[e]));
+        } else if (op == Operator.AND) {
+            m_labels.place(lTrue, m_chains[e]);
+            m_labels.alias(lFalse, labels.lFalse);
+            m_code.label(lTrue);
+        } else if (op == Operator.OR) {
+            m_labels.alias(lTrue, labels.lTrue);
+            m_labels.place(lFalse, m_chains[e]);
+            m_code.label(lFalse);
+        }
+    }
+
+    int boolEnd(int base, Object data, int value) {
+        int n = (m_chainTop - base) / OPERAND;
+        int e = m_chainTop - OPERAND;
+        m_chains[e + 3] = m_type;
+        m_chainTop = base;
+        BoolLabel labels;
+        if (n == 1) {
+            if (m_chains[e + 1] >= 0) {
+                labels = (BoolLabel) data;
+                m_labels.alias(m_chains[e + 1], labels.lTrue);
+                m_labels.alias(m_chains[e + 2], labels.lFalse);
+            }
+            return value;
+        }
+        labels = isDead(data) ? m_endLabels : labels(data);
+        m_labels.alias(m_chains[e + 1], labels.lTrue);
+        m_labels.alias(m_chains[e + 2], labels.lFalse);
+        if (m_check) {
+            checkChain(base, n, Type.BOOL);
+        }
+        return NO_VALUE;
+    }
+
+    // a op b, une fois b lu ; first est le type de a
+    int compare(Object data, int a, byte first, int b, byte op) {
+        if (m_check) {
+            // == et != comparent deux valeurs du même type, les autres deux nombres
+            byte expected = op == Operator.EQ || op == Operator.NE ? first : Type.NUMBER;
+            checkPair(first, m_type, expected);
+            m_type = Type.BOOL;
+            if (isDead(data)) {
+                return NO_VALUE;
+            }
+        }
+        int left = operand(a);
+        int right = operand(b);
+        BoolLabel labels = labels(data);
+        m_code.ifGoto(left, op, right, labels.lTrue);
+        m_code.jump(labels.lFalse);
+        return NO_VALUE;
+    }
+
+    // count signes - devant value
+    int negate(int value, int count) {
+        checkType(Type.NUMBER);
+        int addr = 0;
+        for (int i = 0; i < count; i++) {
+            int tmp = newID();
+            m_code.unary(tmp, IrProgram.NEG, i == 0 ? operand(value) : addr);
+            addr = tmp;
+        }
+        return addr;
+    }
+
+    // Le data de l'opérande d'un nombre impair de !
+    Object negation(Object data) {
+        if (isDead(data)) {
+            return m_endLabels;
+        }
+        BoolLabel labels = labels(data);
+        return new BoolLabel(labels.lFalse, labels.lTrue);
+    }
+
+    // L'opérande d'un opérateur unaire, la dernière expression lue
+    void checkType(byte expected) {
+        if (m_check && m_type != expected) {
+            throw new SemantiqueError("Invalid type in expression got " + Type.name(m_type) + " was expecting " + Type.name(expected));
+        }
+    }
+
+    int boolValue(Object data, boolean value) {
+        if (m_check) {
+            m_type = Type.BOOL;
+            if (isDead(data)) {
+                return NO_VALUE;
+            }
+        }
+        BoolLabel labels = labels(data);
+        m_code.jump(value ? labels.lTrue : labels.lFalse);
+        return NO_VALUE;
+    }
+
+    int identifier(int symbol, Object data) {
+        if (m_check) {
+            m_type = checkDefined(symbol);
+        }
+        byte kind = m_kinds[symbol];
+        int enumValue = m_enumValues[symbol];
+        if (kind == Type.NONE && enumValue >= 0) {
+            return m_code.constant(enumValue);
+        }
+        int var = variable(symbol);
+        if (kind == Type.BOOL && !isDead(data)) {
+            int one = m_code.constant(1);
+            BoolLabel labels = labels(data);
+            m_code.ifGoto(var, IrProgram.EQ, one, labels.lTrue);
+            m_code.jump(labels.lFalse);
+        }
+        return var;
+    }
+
+    int integer(int value) {
+        m_type = Type.NUMBER;
+        return m_code.constant(value);
+    }
+
+    // ----- Vérifications et erreurs, comme dans le visiteur -----
+
+    private byte checkDefined(int symbol) {
+        byte type = m_types[symbol];
+        if (type == Type.NONE) {
+            throw new SemantiqueError("Invalid use of undefined Identifier " + m_symbols.name(symbol));
+        }
+        return type;
+    }
+
+    private static void checkPair(byte a, byte b, byte expected) {
+        if (a != expected || b != expected) {
+            throw new SemantiqueError("Invalid type in expression got " + Type.name(a) + " and " + Type.name(b) + " was expecting " + Type.name(expected));
+        }
+    }
+
+    // Les types des n opérandes de la chaîne, vérifiés par paire de la plus à droite à la plus à gauche
+    private void checkChain(int base, int n, byte expected) {
+        // Le type est dans la troisième case d'un opérande de + - * / %, dans la quatrième pour && ||
+        int type = base + (expected == Type.BOOL ? 3 : 2);
+        for (int i = n - 2; i >= 0; i--) {
+            checkPair((byte) m_chains[type + i * OPERAND], (byte) m_chains[type + (i + 1) * OPERAND], expected);
+        }
+        m_type = expected;
+    }
+
+    private boolean isDead(Object data) {
+        return m_check && !(data instanceof BoolLabel);
+    }
+
+    // Le (BoolLabel) data du visiteur. Hors d'un contexte booléen, l'erreur est notée et la fin du programme
+    // sert d'étiquette pour continuer.
+    private BoolLabel labels(Object data) {
+        if (data instanceof BoolLabel) {
+            return (BoolLabel) data;
+        }
+        fail("Invalid use of a boolean expression outside of a condition");
+        return m_endLabels;
+    }
+
+    // Le (Integer) value du visiteur. Pour une expression booléenne, l'erreur est notée et 0 sert de valeur.
+    private int operand(int value) {
+        if (value == NO_VALUE) {
+            fail("Invalid use of a boolean expression as a value");
+            return m_code.constant(0);
+        }
+        return value;
+    }
+
+    // Là où le visiteur plante : lancée à la fin si aucune SemantiqueError ne l'a devancée
+    private void fail(String message) {
+        if (m_failure == null) {
+            m_failure = new SemantiqueError(message + " at line " + m_code.getLine());
+        }
+    }
+
+    private void push(int value) {
+        if (m_chainTop + OPERAND > m_chains.length) {
+            m_chains = Arrays.copyOf(m_chains, m_chains.length * 2);
+        }
+        m_chains[m_chainTop] = value;
+        m_chainTop += OPERAND;
+    }
+
+    static final class BoolLabel {
+        final int lTrue;
+        final int lFalse;
+
+        BoolLabel(int lTrue, int lFalse) {
+            this.lTrue = lTrue;
+            this.lFalse = lFalse;
+        }
+    }
+
+    // Un for en cours : ses étiquettes, et le code de sa mise à jour, retiré jusqu'à la fin du corps avec
+    // ses entrées dans m_labels et m_temps (après les marqueurs labels et temps, jusqu'à lastLabel et lastTemp)
+    static final class Loop {
+        int start;
+        int body;
+        BoolLabel condition;
+        private boolean check;
+        private int from;
+        private int[] update;
+        private int labels;
+        private int temps;
+        private int lastLabel;
+        private int lastTemp;
+    }
+
+    // Un switch en cours : pour chaque case, sa valeur, son erreur différée, le marqueur de m_labels et la
+    // position dans le code au début de son bloc, et s'il finit par un break
+    static final class Switch {
+        private int variable;
+        private int from;
+        private int size = 0;
+        private int[] values = new int[4];
+        private String[] errors = new String[4];
+        private int[] labels = new int[4];
+        private int[] starts = new int[4];
+        private boolean[] breaks = new boolean[4];
+
+        private void add(int value, String error) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                errors = Arrays.copyOf(errors, size * 2);
+                labels = Arrays.copyOf(labels, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                breaks = Arrays.copyOf(breaks, size * 2);
+            }
+            values[size] = value;
+            errors[size] = error;
+            size++;
+        }
+    }
+
+    /**
+     * Étiquettes ou temporaires, numérotés seulement à la fin. Chaque entrée est placée dans une liste chaînée,
+     * dans l'ordre de numérotation du visiteur, ou l'alias d'une autre entrée, ou en attente de l'un ou
+     * l'autre. Les marqueurs sont placés sans recevoir de numéro : ils ne servent que de points d'insertion.
+     * L'entrée 0 est le marqueur du début de la liste.
+     */
+    private static final class Numbering {
+        private static final byte PENDING = 0;
+        private static final byte PLACED = 1;
+        private static final byte MARKER = 2;
+        private static final byte ALIAS = 3;
+
+        private byte[] m_state = new byte[64];
+        // L'entrée suivante dans la liste (-1 à la fin) ou, pour un alias, l'entrée visée
+        private int[] m_next = new int[64];
+        private int m_size = 0;
+        private int m_tail;
+
+        Numbering() {
+            m_tail = add(MARKER);
+            m_next[m_tail] = -1;
+        }
+
+        int tail() {
+            return m_tail;
+        }
+
+        int pending() {
+            return add(PENDING);
+        }
+
+        boolean isPending(int entry) {
+            return m_state[entry] == PENDING;
+        }
+
+        // Nouvelle entrée en fin de liste : le newLabel() ou le newID() du visiteur
+        int append() {
+            int entry = add(PLACED);
+            place(entry, m_tail);
+            return entry;
+        }
+
+        int marker() {
+            int entry = add(MARKER);
+            link(entry, m_tail);
+            return entry;
+        }
+
+        // Nouvelle entrée juste après after
+        int insert(int after) {
+            int entry = add(PLACED);
+            place(entry, after);
+            return entry;
+        }
+
+        void place(int entry, int after) {
+            m_state[entry] = PLACED;
+            link(entry, after);
+        }
+
+        void alias(int entry, int target) {
+            m_state[entry] = ALIAS;
+            m_next[entry] = target;
+        }
+
+        // Déplace les entrées qui suivent after, jusqu'à last, à la fin de la liste
+        void moveToEnd(int after, int last) {
+            if (last == after || last == m_tail) {
+                return;
+            }
+            int first = m_next[after];
+            m_next[after] = m_next[last];
+            m_next[m_tail] = first;
+            m_next[last] = -1;
+            m_tail = last;
+        }
+
+        // Le numéro de chaque entrée : son rang parmi les entrées placées, ou celui de l'entrée qu'elle vise
+        int[] numbers() {
+            int[] numbers = new int[m_size];
+            Arrays.fill(numbers, -1);
+            int count = 0;
+            for (int entry = 0; entry != -1; entry = m_next[entry]) {
+                if (m_state[entry] == PLACED) {
+                    numbers[entry] = count++;
+                }
+            }
+            for (int entry = 0; entry < m_size; entry++) {
+                if (m_state[entry] != ALIAS || numbers[entry] >= 0) {
+                    continue;
+                }
+                int target = entry;
+                while (m_state[target] == ALIAS && numbers[target] < 0) {
+                    target = m_next[target];
+                }
+                if (numbers[target] < 0) {
+                    throw new IllegalStateException("Label or temporary never placed");
+                }
+                for (int alias = entry; alias != target; alias = m_next[alias]) {
+                    numbers[alias] = numbers[target];
+                }
+            }
+            return numbers;
+        }
+
+        private void link(int entry, int after) {
+            m_next[entry] = m_next[after];
+            m_next[after] = entry;
+            if (after == m_tail) {
+                m_tail = entry;
+            }
+        }
+
+        private int add(byte state) {
+            if (m_size == m_state.length) {
+                m_state = Arrays.copyOf(m_state, m_size * 2);
+                m_next = Arrays.copyOf(m_next, m_size * 2);
+            }
+            m_state[m_size] = state;
+            return m_size++;
+        }
+    }
+}
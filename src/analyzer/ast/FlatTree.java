@@ -0,0 +1,335 @@
+package analyzer.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Arbre syntaxique à plat, construit par Parser.ParseFlat() sans garder de noeud objet.
+ * Chaque noeud est un index dans des tableaux parallèles : son type (les constantes de ParserTreeConstants),
+ * son premier enfant, son frère suivant et l'index de sa valeur dans un réservoir partagé. Les valeurs
+ * identiques n'y sont stockées qu'une fois. Pour un identificateur, cet index est plutôt son numéro de symbole
+ * (voir Symbols) et, pour un noeud à opérateurs, la position de leurs codes (voir Operator) dans un tableau d'octets.
+ * Les noeuds sont numérotés dans l'ordre où le parseur les ferme : les enfants avant leur parent, la racine
+ * en dernier.
+ *
+ * Les visiteurs existants s'appliquent avec accept() : ils reçoivent des vues (les noeuds AST habituels)
+ * créées à la demande par node() et oubliées dès que la visite les quitte.
+ */
+public final class FlatTree implements ParserTreeConstants {
+
+    // Pas d'enfant, pas de frère ou pas de valeur
+    public static final int NONE = -1;
+
+    private final int[] m_kind;
+    private final int[] m_firstChild;
+    private final int[] m_nextSibling;
+    private final int[] m_value;
+    private final Object[] m_pool;
+    // Pour chaque noeud à opérateurs : leurs codes, suivis de Operator.NONE
+    private final byte[] m_ops;
+    private final Symbols m_symbols;
+    private final int m_root;
+
+    private FlatTree(int[] kind, int[] firstChild, int[] nextSibling, int[] value, Object[] pool, byte[] ops,
+                     Symbols symbols, int root) {
+        m_kind = kind;
+        m_firstChild = firstChild;
+        m_nextSibling = nextSibling;
+        m_value = value;
+        m_pool = pool;
+        m_ops = ops;
+        m_symbols = symbols;
+        m_root = root;
+    }
+
+    public int size() {
+        return m_kind.length;
+    }
+
+    public int root() {
+        return m_root;
+    }
+
+    public int kind(int node) {
+        return m_kind[node];
+    }
+
+    public int firstChild(int node) {
+        return m_firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return m_nextSibling[node];
+    }
+
+    public int valueIndex(int node) {
+        return m_value[node];
+    }
+
+    // La valeur du noeud : String, Integer ou Boolean, null s'il n'en a pas ou si c'est un noeud à opérateurs
+    public Object value(int node) {
+        if (m_value[node] == NONE || hasOps(m_kind[node])) {
+            return null;
+        }
+        return m_kind[node] == JJTIDENTIFIER ? m_symbols.name(m_value[node]) : m_pool[m_value[node]];
+    }
+
+    public Symbols symbols() {
+        return m_symbols;
+    }
+
+    public int opCount(int node) {
+        if (!hasOps(m_kind[node]) || m_value[node] == NONE) {
+            return 0;
+        }
+        int count = 0;
+        while (m_ops[m_value[node] + count] != Operator.NONE) {
+            count++;
+        }
+        return count;
+    }
+
+    public byte op(int node, int i) {
+        return m_ops[m_value[node] + i];
+    }
+
+    private static boolean hasOps(int kind) {
+        switch (kind) {
+            case JJTBOOLEXPR:
+            case JJTCOMPEXPR:
+            case JJTADDEXPR:
+            case JJTMULEXPR:
+            case JJTUNAEXPR:
+            case JJTNOTEXPR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public int poolSize() {
+        return m_pool.length;
+    }
+
+    public int[] children(int node) {
+        int count = 0;
+        for (int child = m_firstChild[node]; child != NONE; child = m_nextSibling[child]) {
+            count++;
+        }
+        int[] children = new int[count];
+        count = 0;
+        for (int child = m_firstChild[node]; child != NONE; child = m_nextSibling[child]) {
+            children[count++] = child;
+        }
+        return children;
+    }
+
+    // Applique le visiteur sur la racine, comme ASTProgram.jjtAccept()
+    public Object accept(ParserVisitor visitor, Object data) {
+        return node(m_root).jjtAccept(visitor, data);
+    }
+
+    // Crée une vue sur le noeud : un noeud AST du bon type, avec sa valeur, dont les enfants sont lus dans l'arbre
+    public SimpleNode node(int index) {
+        int kind = m_kind[index];
+        Object value = value(index);
+        SimpleNode node;
+        switch (kind) {
+            case JJTPROGRAM: {
+                ASTProgram program = new ASTProgram(kind);
+                program.setSymbols(m_symbols);
+                node = program;
+                break;
+            }
+            case JJTDECLARATION: {
+                ASTDeclaration declaration = new ASTDeclaration(kind);
+                declaration.setValue((String) value);
+                node = declaration;
+                break;
+            }
+            case JJTBLOCK: node = new ASTBlock(kind); break;
+            case JJTSTMT: node = new ASTStmt(kind); break;
+            case JJTIFSTMT: node = new ASTIfStmt(kind); break;
+            case JJTWHILESTMT: node = new ASTWhileStmt(kind); break;
+            case JJTFORSTMT: node = new ASTForStmt(kind); break;
+            case JJTASSIGNSTMT: node = new ASTAssignStmt(kind); break;
+            case JJTENUMSTMT: node = new ASTEnumStmt(kind); break;
+            case JJTSWITCHSTMT: node = new ASTSwitchStmt(kind); break;
+            case JJTBREAKSTMT: node = new ASTBreakStmt(kind); break;
+            case JJTCASESTMT: node = new ASTCaseStmt(kind); break;
+            case JJTEXPR: node = new ASTExpr(kind); break;
+            case JJTBOOLEXPR: node = new ASTBoolExpr(kind); break;
+            case JJTCOMPEXPR: {
+                ASTCompExpr expr = new ASTCompExpr(kind);
+                if (opCount(index) > 0) {
+                    expr.setOp(op(index, 0));
+                }
+                node = expr;
+                break;
+            }
+            case JJTADDEXPR: node = new ASTAddExpr(kind); break;
+            case JJTMULEXPR: node = new ASTMulExpr(kind); break;
+            case JJTUNAEXPR: node = new ASTUnaExpr(kind); break;
+            case JJTNOTEXPR: node = new ASTNotExpr(kind); break;
+            case JJTGENVALUE: node = new ASTGenValue(kind); break;
+            case JJTBOOLVALUE: {
+                ASTBoolValue bool = new ASTBoolValue(kind);
+                bool.setValue((Boolean) value);
+                node = bool;
+                break;
+            }
+            case JJTIDENTIFIER: {
+                ASTIdentifier identifier = new ASTIdentifier(kind);
+                identifier.setValue((String) value);
+                identifier.setSymbol(m_value[index]);
+                node = identifier;
+                break;
+            }
+            case JJTINTVALUE: {
+                ASTIntValue integer = new ASTIntValue(kind);
+                integer.setValue((Integer) value);
+                node = integer;
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown node kind " + kind);
+        }
+        if (node instanceof OperatorNode) {
+            for (int i = 0, n = opCount(index); i < n; i++) {
+                ((OperatorNode) node).addOp(op(index, i));
+            }
+        }
+        node.flat = this;
+        node.flatIndex = index;
+        return node;
+    }
+
+    /**
+     * Construit un FlatTree pendant l'analyse : JJTParserState lui passe chaque noeud fermé au lieu de
+     * le lier à ses enfants. Les index des noeuds encore sans parent sont gardés dans une pile.
+     */
+    static final class Builder {
+
+        private int[] m_kind = new int[256];
+        private int[] m_firstChild = new int[256];
+        private int[] m_nextSibling = new int[256];
+        private int[] m_value = new int[256];
+        private int m_size = 0;
+
+        private int[] m_stack = new int[64];
+        private int m_top = 0;
+
+        private final ArrayList<Object> m_pool = new ArrayList<>();
+        private final HashMap<Object, Integer> m_poolIndex = new HashMap<>();
+        private byte[] m_ops = new byte[64];
+        private int m_opsSize = 0;
+
+        // Dernier noeud fermé. JJTree exécute l'action finale d'une règle (souvent un setValue()) après
+        // avoir fermé son noeud : sa valeur n'est lue qu'à la fermeture suivante ou dans build().
+        private SimpleNode m_last = null;
+        private int m_lastIndex = NONE;
+
+        // Ajoute le noeud, dont les arity enfants sont au sommet de la pile, et le met à leur place
+        void close(SimpleNode node, int arity) {
+            readLast();
+            if (m_size == m_kind.length) {
+                int length = m_size * 2;
+                m_kind = Arrays.copyOf(m_kind, length);
+                m_firstChild = Arrays.copyOf(m_firstChild, length);
+                m_nextSibling = Arrays.copyOf(m_nextSibling, length);
+                m_value = Arrays.copyOf(m_value, length);
+            }
+            int index = m_size++;
+            m_kind[index] = node.getId();
+            m_value[index] = NONE;
+            m_nextSibling[index] = NONE;
+
+            int first = m_top - arity;
+            m_firstChild[index] = arity > 0 ? m_stack[first] : NONE;
+            for (int i = first; i < m_top - 1; i++) {
+                m_nextSibling[m_stack[i]] = m_stack[i + 1];
+            }
+            m_top = first;
+
+            if (m_top == m_stack.length) {
+                m_stack = Arrays.copyOf(m_stack, m_top * 2);
+            }
+            m_stack[m_top++] = index;
+            m_last = node;
+            m_lastIndex = index;
+        }
+
+        // Retire le noeud au sommet de la pile, il ne fera pas partie de l'arbre
+        void pop() {
+            m_top--;
+        }
+
+        FlatTree build(Symbols symbols) {
+            readLast();
+            if (m_top != 1) {
+                throw new IllegalStateException("The tree has " + m_top + " roots");
+            }
+            return new FlatTree(Arrays.copyOf(m_kind, m_size), Arrays.copyOf(m_firstChild, m_size),
+                    Arrays.copyOf(m_nextSibling, m_size), Arrays.copyOf(m_value, m_size), m_pool.toArray(),
+                    Arrays.copyOf(m_ops, m_opsSize), symbols, m_stack[0]);
+        }
+
+        private void readLast() {
+            if (m_last != null) {
+                m_value[m_lastIndex] = valueOf(m_last);
+                m_last = null;
+            }
+        }
+
+        private int valueOf(SimpleNode node) {
+            switch (node.getId()) {
+                case JJTDECLARATION: return intern(((ASTDeclaration) node).getValue());
+                case JJTIDENTIFIER: return ((ASTIdentifier) node).getSymbol();
+                case JJTINTVALUE: return intern(((ASTIntValue) node).getValue());
+                case JJTBOOLVALUE: return intern(((ASTBoolValue) node).getValue());
+                case JJTCOMPEXPR: {
+                    ASTCompExpr expr = (ASTCompExpr) node;
+                    return addOps(expr.getOp() == Operator.NONE ? 0 : 1, i -> expr.getOp());
+                }
+                case JJTBOOLEXPR:
+                case JJTADDEXPR:
+                case JJTMULEXPR:
+                case JJTUNAEXPR:
+                case JJTNOTEXPR:
+                    return addOps(((OperatorNode) node).getOpCount(), ((OperatorNode) node)::getOp);
+                default: return NONE;
+            }
+        }
+
+        // Copie les count codes donnés par op à la fin de m_ops et retourne leur position
+        private int addOps(int count, IntUnaryOperator op) {
+            if (count == 0) {
+                return NONE;
+            }
+            if (m_opsSize + count + 1 > m_ops.length) {
+                m_ops = Arrays.copyOf(m_ops, Math.max(m_ops.length * 2, m_opsSize + count + 1));
+            }
+            int offset = m_opsSize;
+            for (int i = 0; i < count; i++) {
+                m_ops[m_opsSize++] = (byte) op.applyAsInt(i);
+            }
+            m_ops[m_opsSize++] = Operator.NONE;
+            return offset;
+        }
+
+        private int intern(Object value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer index = m_poolIndex.get(value);
+            if (index == null) {
+                index = m_pool.size();
+                m_pool.add(value);
+                m_poolIndex.put(value, index);
+            }
+            return index;
+        }
+    }
+}
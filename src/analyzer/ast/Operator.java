@@ -0,0 +1,56 @@
+package analyzer.ast;
+
+/**
+ * Codes des opérateurs gardés dans les noeuds de l'AST (ASTBoolExpr, ASTCompExpr, ASTAddExpr, ASTMulExpr,
+ * ASTUnaExpr et ASTNotExpr) à la place des chaînes lues par le parseur.
+ * Les opérateurs arithmétiques et de comparaison ont les mêmes valeurs que ceux d'IrProgram :
+ * les générateurs de code les émettent tels quels.
+ */
+public final class Operator {
+
+    public static final byte NONE = 0;
+    public static final byte ADD = 1;
+    public static final byte SUB = 2;
+    public static final byte MUL = 3;
+    public static final byte DIV = 4;
+    public static final byte MOD = 5;
+    public static final byte LT = 6;
+    public static final byte LE = 7;
+    public static final byte GT = 8;
+    public static final byte GE = 9;
+    public static final byte EQ = 10;
+    public static final byte NE = 11;
+    public static final byte NEG = 12;
+    public static final byte AND = 13;
+    public static final byte OR = 14;
+    public static final byte NOT = 15;
+
+    private static final String[] SYMBOLS = {"", "+", "-", "*", "/", "%", "<", "<=", ">", ">=", "==", "!=", "-", "&&", "||", "!"};
+
+    private Operator() {
+    }
+
+    // Opérateur binaire du symbole ("-" est donc SUB, jamais NEG)
+    public static byte of(String symbol) {
+        switch (symbol) {
+            case "+": return ADD;
+            case "-": return SUB;
+            case "*": return MUL;
+            case "/": return DIV;
+            case "%": return MOD;
+            case "<": return LT;
+            case "<=": return LE;
+            case ">": return GT;
+            case ">=": return GE;
+            case "==": return EQ;
+            case "!=": return NE;
+            case "&&": return AND;
+            case "||": return OR;
+            default: throw new IllegalArgumentException("Unknown operator " + symbol);
+        }
+    }
+
+    public static String symbol(byte op) {
+        return SYMBOLS[op];
+    }
+}
@@ -0,0 +1,39 @@
+package analyzer.ast;
+
+import java.util.Arrays;
+
+/**
+ * Noeud qui porte une suite d'opérateurs, sous forme de codes de Operator : ASTBoolExpr, ASTAddExpr, ASTMulExpr,
+ * ASTUnaExpr et ASTNotExpr. Le tableau n'est alloué qu'au premier opérateur ; les noeuds qui n'en ont pas
+ * partagent un tableau vide.
+ */
+public abstract class OperatorNode extends SimpleNode {
+
+    private static final byte[] NO_OPS = new byte[0];
+
+    private byte[] m_ops = NO_OPS;
+    private int m_opCount = 0;
+
+    public OperatorNode(int id) {
+        super(id);
+    }
+
+    public OperatorNode(Parser p, int id) {
+        super(p, id);
+    }
+
+    public void addOp(byte op) {
+        if (m_opCount == m_ops.length) {
+            m_ops = Arrays.copyOf(m_ops, Math.max(2, m_opCount * 2));
+        }
+        m_ops[m_opCount++] = op;
+    }
+
+    public int getOpCount() {
+        return m_opCount;
+    }
+
+    public byte getOp(int i) {
+        return m_ops[i];
+    }
+}
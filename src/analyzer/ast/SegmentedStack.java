@@ -0,0 +1,113 @@
+package analyzer.ast;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Pile segmentée pour les descentes récursives profondes du parseur et des visiteurs.
+ * La pile Java d'un fil d'exécution est petite (souvent 1 Mo, parfois moins) : un programme imbriqué sur des
+ * milliers de niveaux la ferait déborder (StackOverflowError). Les appelants estiment le nombre d'appels Java
+ * de chaque niveau et, avant de dépasser SEGMENT_FRAMES dans le segment courant, continuent la descente avec
+ * call() sur un nouveau segment : un fil avec sa propre pile, que l'appelant attend. Un programme peu profond
+ * ne change jamais de fil.
+ *
+ * Les piles des segments vivants, tous fils confondus, sont bornées par MAX_BYTES : au-delà, call() lance une
+ * StackOverflowError, comme une descente sans segments. Si une mesure est installée (setMeter()), chaque
+ * segment rapporte à sa fin les octets qu'il a alloués au fil qui l'attend (voir segmentBytes()), pour que les
+ * mesures par fil, comme CompileStats, les ajoutent aux leurs.
+ */
+public final class SegmentedStack {
+
+    // Appels Java par segment : assez peu pour tenir dans la pile du fil appelant, même petite
+    public static final int SEGMENT_FRAMES = 600;
+
+    // Taille de la pile de chaque nouveau segment, largement plus que SEGMENT_FRAMES appels
+    public static final long SEGMENT_BYTES = 256L << 10;
+
+    // Piles de tous les segments vivants : 2048 segments, de quoi imbriquer environ 200 000 blocs
+    public static final long MAX_BYTES = 512L << 20;
+
+    private static final AtomicLong m_reserved = new AtomicLong();
+
+    // Octets alloués par les segments que chaque fil a attendus, y compris leurs propres segments
+    private static final ThreadLocal<long[]> m_segmentAllocated = ThreadLocal.withInitial(() -> new long[1]);
+
+    // Octets alloués jusqu'ici par le fil courant, null si personne ne mesure les segments
+    private static volatile LongSupplier m_meter;
+
+    public interface Segment<T, E extends Throwable> {
+        T run() throws E;
+    }
+
+    private SegmentedStack() {
+    }
+
+    // Vrai si un niveau de cost appels ne tient plus dans le segment qui en contient déjà frames
+    public static boolean isFull(int frames, int cost) {
+        return frames + cost > SEGMENT_FRAMES;
+    }
+
+    // Exécute segment sur un nouveau fil et attend son résultat. Ses exceptions, y compris les Error
+    // comme SemantiqueError, sont relancées telles quelles dans l'appelant.
+    @SuppressWarnings("unchecked")
+    public static <T, E extends Throwable> T call(Segment<T, E> segment) throws E {
+        if (m_reserved.addAndGet(SEGMENT_BYTES) > MAX_BYTES) {
+            m_reserved.addAndGet(-SEGMENT_BYTES);
+            throw new StackOverflowError("Stack segments exceed " + (MAX_BYTES >> 20) + " MB");
+        }
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        long[] allocated = {-1};
+        try {
+            Thread thread = new Thread(null, () -> {
+                try {
+                    result[0] = segment.run();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                } finally {
+                    LongSupplier meter = m_meter;
+                    long bytes = meter == null ? -1 : meter.getAsLong();
+                    if (bytes >= 0) {
+                        allocated[0] = bytes + segmentBytes();
+                    }
+                }
+            }, "stack-segment", SEGMENT_BYTES);
+            thread.setDaemon(true);
+            thread.start();
+
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    // Le segment doit finir : l'état du parseur ou du visiteur est partagé avec lui
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            m_reserved.addAndGet(-SEGMENT_BYTES);
+        }
+        if (allocated[0] > 0) {
+            m_segmentAllocated.get()[0] += allocated[0];
+        }
+
+        if (failure[0] != null) {
+            throw (E) failure[0];
+        }
+        return (T) result[0];
+    }
+
+    // Installe la mesure des octets alloués par le fil courant, appelée par chaque segment juste avant sa fin
+    public static void setMeter(LongSupplier meter) {
+        m_meter = meter;
+    }
+
+    // Octets alloués par les segments que le fil courant a attendus, y compris leurs propres segments
+    public static long segmentBytes() {
+        return m_segmentAllocated.get()[0];
+    }
+}
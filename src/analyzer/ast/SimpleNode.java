@@ -0,0 +1,143 @@
+/* Generated By:JJTree: Do not edit this line. SimpleNode.java Version 7.0 */
+/* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=false,NODE_PREFIX=AST,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_CLASS_VISIBILITY_PUBLIC=true */
+package analyzer.ast;
+
+public
+class SimpleNode implements Node {
+
+  protected Node parent;
+  protected Node[] children;
+  protected int id;
+  protected Object value;
+  protected Parser parser;
+
+  // PLB : vue sur le noeud flatIndex d'un FlatTree (voir FlatTree.node()). Les enfants ne sont pas
+  // gardés : chaque appel à jjtGetChild() crée une nouvelle vue, seuls leurs index sont conservés.
+  protected FlatTree flat;
+  protected int flatIndex;
+  private int[] flatChildren;
+
+  // PLB : type résolu par SemantiqueVisitor (voir Type). Il n'est pas gardé sur les vues d'un FlatTree.
+  private byte type = Type.NONE;
+
+  public void setType(byte t) { type = t; }
+  public byte getType() { return type; }
+
+  // PLB : début (premier jeton) et fin (dernier jeton) du noeud dans le source, écrits par le parseur
+  // (voir Parser.jjtreeOpenNodeScope()). Chacun est packé en un long, ligne << 32 | colonne, à partir de 1 ;
+  // 0 si la position est inconnue, comme sur les vues d'un FlatTree.
+  private long begin;
+  private long end;
+
+  public static long pack(int line, int column) { return (long) line << 32 | column; }
+  public static int lineOf(long position) { return (int) (position >>> 32); }
+  public static int columnOf(long position) { return (int) position; }
+
+  public void setBegin(long position) { begin = position; }
+  public void setEnd(long position) { end = position; }
+  public long getBegin() { return begin; }
+  public long getEnd() { return end; }
+
+  public int getLine() { return lineOf(begin); }
+  public int getColumn() { return columnOf(begin); }
+  public int getEndLine() { return lineOf(end); }
+  public int getEndColumn() { return columnOf(end); }
+
+  public SimpleNode(int i) {
+    id = i;
+  }
+
+  public SimpleNode(Parser p, int i) {
+    this(i);
+    parser = p;
+  }
+
+  public void jjtOpen() {
+  }
+
+  public void jjtClose() {
+  }
+
+  public void jjtSetParent(Node n) { parent = n; }
+  public Node jjtGetParent() { return parent; }
+
+  public void jjtAddChild(Node n, int i) {
+    if (children == null) {
+      children = new Node[i + 1];
+    } else if (i >= children.length) {
+      Node c[] = new Node[i + 1];
+      System.arraycopy(children, 0, c, 0, children.length);
+      children = c;
+    }
+    children[i] = n;
+  }
+
+  public Node jjtGetChild(int i) {
+    if (flat != null) {
+      return flat.node(flatChildren()[i]);
+    }
+    return children[i];
+  }
+
+  public int jjtGetNumChildren() {
+    if (flat != null) {
+      return flatChildren().length;
+    }
+    return (children == null) ? 0 : children.length;
+  }
+
+  private int[] flatChildren() {
+    if (flatChildren == null) {
+      flatChildren = flat.children(flatIndex);
+    }
+    return flatChildren;
+  }
+
+  public void jjtSetValue(Object value) { this.value = value; }
+  public Object jjtGetValue() { return value; }
+
+  /** Accept the visitor. **/
+  public Object jjtAccept(ParserVisitor visitor, Object data)
+{
+    return visitor.visit(this, data);
+  }
+
+  /** Accept the visitor. **/
+  public Object childrenAccept(ParserVisitor visitor, Object data)
+{
+    for (int i = 0; i < jjtGetNumChildren(); ++i) {
+      jjtGetChild(i).jjtAccept(visitor, data);
+    }
+    return data;
+  }
+
+  /* You can override these two methods in subclasses of SimpleNode to
+     customize the way the node appears when the tree is dumped.  If
+     your output uses more than one line you should override
+     toString(String), otherwise overriding toString() is probably all
+     you need to do. */
+
+  public String toString() {
+    return ParserTreeConstants.jjtNodeName[id];
+  }
+  public String toString(String prefix) { return prefix + toString(); }
+
+  /* Override this method if you want to customize how the node dumps
+     out its children. */
+
+  public void dump(String prefix) {
+    System.out.println(toString(prefix));
+    for (int i = 0; i < jjtGetNumChildren(); ++i) {
+      SimpleNode n = (SimpleNode)jjtGetChild(i);
+      if (n != null) {
+        n.dump(prefix + " ");
+      }
+    }
+  }
+
+  public int getId() {
+    return id;
+  }
+}
+
+/* JavaCC - OriginalChecksum=6f9aeb8fe347b5774584d58dcc38a7c4 (do not edit this line) */
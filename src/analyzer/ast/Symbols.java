@@ -0,0 +1,40 @@
+package analyzer.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Identificateurs d'un programme. Le parseur donne à chaque nom un numéro de symbole dense (0, 1, 2, ...)
+ * à sa première occurrence et le garde dans ASTIdentifier.getSymbol() : c'est la seule recherche par nom.
+ * Les visiteurs indexent ensuite leurs tables (types, ordinaux d'enum, valeurs, ...) par ce numéro,
+ * dans des tableaux de size() cases.
+ */
+public final class Symbols {
+
+    private final ArrayList<String> m_names = new ArrayList<>();
+    private final HashMap<String, Integer> m_ids = new HashMap<>();
+
+    // Numéro du nom, ajouté au besoin
+    public int intern(String name) {
+        Integer id = m_ids.get(name);
+        if (id == null) {
+            id = m_names.size();
+            m_names.add(name);
+            m_ids.put(name, id);
+        }
+        return id;
+    }
+
+    // Numéro du nom, -1 s'il n'apparaît pas dans le programme
+    public int find(String name) {
+        return m_ids.getOrDefault(name, -1);
+    }
+
+    public String name(int id) {
+        return m_names.get(id);
+    }
+
+    public int size() {
+        return m_names.size();
+    }
+}
@@ -0,0 +1,242 @@
+package analyzer.ast;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Jetons d'une source codés en entiers, sans objet Token ni String par jeton. Le gestionnaire de jetons généré
+ * fait l'analyse sur un BufferCharStream, mais chaque jeton reconnu est écrit dans des tableaux parallèles au
+ * lieu d'être créé : son type (les constantes de ParserConstants), sa position dans la source, sa longueur et
+ * une valeur décodée directement dans la source :
+ * - INTEGER : l'entier ;
+ * - IDENTIFIER : son numéro de symbole (voir Symbols), le nom n'est créé qu'à sa première occurrence ;
+ * - BOOLEAN : 1 pour true, 0 pour false ;
+ * - COMPARE, MULOP et BOOLOP : le code de l'opérateur (voir Operator) ;
+ * - les autres : NONE.
+ * Le dernier jeton est EOF, à la fin de la source. text() recrée le texte d'un jeton à la demande.
+ */
+public final class TokenArray implements ParserConstants {
+
+    // Pas de valeur
+    public static final int NONE = -1;
+
+    private final byte[] m_source;
+    private byte[] m_kind;
+    private int[] m_start;
+    private int[] m_length;
+    private int[] m_value;
+    private int m_size = 0;
+
+    // Table de hachage des identificateurs, adressage ouvert : numéro de symbole + 1, 0 pour une case vide.
+    // Chaque symbole est comparé à sa première occurrence dans la source.
+    private final Symbols m_symbols = new Symbols();
+    private int[] m_table = new int[1024];
+    private int[] m_symbolStart = new int[256];
+    private int[] m_symbolLength = new int[256];
+
+    private TokenArray(byte[] source) {
+        m_source = source;
+        // Un jeton pour 4 octets environ dans les programmes générés : les tableaux ne sont pas recopiés
+        int capacity = Math.max(16, source.length / 4);
+        m_kind = new byte[capacity];
+        m_start = new int[capacity];
+        m_length = new int[capacity];
+        m_value = new int[capacity];
+    }
+
+    public static TokenArray lex(Path file) throws IOException {
+        return lex(Files.readAllBytes(file));
+    }
+
+    // Jetons de la source, qui doit être de l'ASCII sans échappement unicode (voir BufferCharStream). Une erreur
+    // lexicale lance TokenMgrError, comme avec le parseur ; un entier trop grand lance NumberFormatException,
+    // comme Integer.parseInt().
+    public static TokenArray lex(byte[] source) {
+        JavaCharStream stream = BufferCharStream.open(source);
+        if (!(stream instanceof BufferCharStream)) {
+            throw new IllegalArgumentException("TokenArray needs an ASCII source without unicode escapes");
+        }
+        TokenArray tokens = new TokenArray(source);
+        Lexer lexer = new Lexer((BufferCharStream) stream, tokens);
+        while (lexer.getNextToken().kind != EOF) {
+        }
+        return tokens;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public int kind(int token) {
+        return m_kind[token];
+    }
+
+    public int start(int token) {
+        return m_start[token];
+    }
+
+    public int length(int token) {
+        return m_length[token];
+    }
+
+    public int value(int token) {
+        return m_value[token];
+    }
+
+    public Symbols symbols() {
+        return m_symbols;
+    }
+
+    public String text(int token) {
+        return new String(m_source, m_start[token], m_length[token], StandardCharsets.ISO_8859_1);
+    }
+
+    private void add(int kind, int start, int length) {
+        if (m_size == m_kind.length) {
+            int capacity = m_size + (m_size >> 1);
+            m_kind = Arrays.copyOf(m_kind, capacity);
+            m_start = Arrays.copyOf(m_start, capacity);
+            m_length = Arrays.copyOf(m_length, capacity);
+            m_value = Arrays.copyOf(m_value, capacity);
+        }
+        m_kind[m_size] = (byte) kind;
+        m_start[m_size] = start;
+        m_length[m_size] = length;
+        m_value[m_size] = valueOf(kind, start, length);
+        m_size++;
+    }
+
+    private int valueOf(int kind, int start, int length) {
+        switch (kind) {
+            case INTEGER: return integer(start, length);
+            case IDENTIFIER: return symbol(start, length);
+            case BOOLEAN: return m_source[start] == 't' ? 1 : 0;
+            case COMPARE:
+            case MULOP:
+            case BOOLOP:
+                return operator(start, length);
+            default: return NONE;
+        }
+    }
+
+    private int integer(int start, int length) {
+        long value = 0;
+        for (int i = start; i < start + length; i++) {
+            value = value * 10 + (m_source[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("For input string: \"" + text(start, length) + "\"");
+            }
+        }
+        return (int) value;
+    }
+
+    private int operator(int start, int length) {
+        byte first = m_source[start];
+        if (length == 1) {
+            switch (first) {
+                case '<': return Operator.LT;
+                case '>': return Operator.GT;
+                case '*': return Operator.MUL;
+                case '/': return Operator.DIV;
+                default: return Operator.MOD;
+            }
+        }
+        switch (first) {
+            case '<': return Operator.LE;
+            case '>': return Operator.GE;
+            case '=': return Operator.EQ;
+            case '!': return Operator.NE;
+            case '&': return Operator.AND;
+            default: return Operator.OR;
+        }
+    }
+
+    // Numéro de symbole de l'identificateur, ajouté à m_symbols à sa première occurrence
+    private int symbol(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + m_source[i];
+        }
+        int mask = m_table.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = m_table[slot];
+            if (entry == 0) {
+                int symbol = m_symbols.intern(text(start, length));
+                m_table[slot] = symbol + 1;
+                remember(symbol, start, length);
+                return symbol;
+            }
+            int symbol = entry - 1;
+            if (m_symbolLength[symbol] == length && Arrays.equals(m_source, m_symbolStart[symbol],
+                    m_symbolStart[symbol] + length, m_source, start, start + length)) {
+                return symbol;
+            }
+        }
+    }
+
+    private void remember(int symbol, int start, int length) {
+        if (symbol == m_symbolStart.length) {
+            m_symbolStart = Arrays.copyOf(m_symbolStart, symbol * 2);
+            m_symbolLength = Arrays.copyOf(m_symbolLength, symbol * 2);
+        }
+        m_symbolStart[symbol] = start;
+        m_symbolLength[symbol] = length;
+        // La table reste au plus à moitié pleine
+        if ((symbol + 1) * 2 > m_table.length) {
+            int[] table = new int[m_table.length * 2];
+            int mask = table.length - 1;
+            for (int s = 0; s <= symbol; s++) {
+                int hash = 0;
+                for (int i = m_symbolStart[s]; i < m_symbolStart[s] + m_symbolLength[s]; i++) {
+                    hash = 31 * hash + m_source[i];
+                }
+                int slot = mix(hash) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = s + 1;
+            }
+            m_table = table;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private String text(int start, int length) {
+        return new String(m_source, start, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gestionnaire de jetons généré dont chaque jeton reconnu est ajouté au TokenArray. Il rend toujours le
+     * même Token, dont seul le type est à jour.
+     */
+    private static final class Lexer extends ParserTokenManager {
+
+        private final TokenArray m_tokens;
+        private final int m_end;
+        private final Token m_token = new Token();
+
+        Lexer(BufferCharStream stream, TokenArray tokens) {
+            super(stream);
+            m_tokens = tokens;
+            m_end = tokens.m_source.length;
+        }
+
+        @Override
+        protected Token jjFillToken() {
+            if (jjmatchedKind == EOF) {
+                m_tokens.add(EOF, m_end, 0);
+            } else {
+                int start = input_stream.tokenBegin;
+                m_tokens.add(jjmatchedKind, start, input_stream.bufpos - start + 1);
+            }
+            m_token.kind = jjmatchedKind;
+            return m_token;
+        }
+    }
+}
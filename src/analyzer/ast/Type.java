@@ -0,0 +1,30 @@
+package analyzer.ast;
+
+/**
+ * Codes des types que SemantiqueVisitor écrit sur l'AST (voir SimpleNode.getType()) une fois un noeud
+ * vérifié : le type de chaque expression et celui de chaque identificateur utilisé. Une valeur d'enum
+ * porte aussi son ordinal (ASTIdentifier.getEnumValue()).
+ */
+public final class Type {
+
+    // Noeud pas encore vérifié, ou sans type (instruction, déclaration)
+    public static final byte NONE = 0;
+    public static final byte BOOL = 1;
+    public static final byte NUMBER = 2;
+    // Nom d'un type enum
+    public static final byte ENUM_TYPE = 3;
+    // Variable d'un type enum
+    public static final byte ENUM = 4;
+    // Valeur d'un type enum
+    public static final byte ENUM_VALUE = 5;
+
+    // Les noms de SemantiqueVisitor.VarType, ceux de ses messages d'erreur
+    private static final String[] NAMES = {"", "Bool", "Number", "EnumType", "Enum", "EnumValue"};
+
+    private Type() {
+    }
+
+    public static String name(byte type) {
+        return NAMES[type];
+    }
+}
@@ -0,0 +1,108 @@
+package analyzer.ir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relit le format texte écrit par IrPrinter (une instruction par ligne) pour reconstruire
+ * l'IrProgram correspondant. Les lignes vides sont ignorées.
+ */
+public class IrParser {
+
+    public static IrProgram parse(Reader reader) throws IOException {
+        IrProgram program = new IrProgram();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                parseLine(program, line);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Line " + number + ": cannot parse \"" + line + "\"", e);
+            }
+        }
+        return program;
+    }
+
+    private static void parseLine(IrProgram program, String line) {
+        String[] t = line.split("\\s+");
+        if (t.length == 1) {
+            program.label(label(t[0]));
+        } else if (t[0].equals("goto") && t[1].startsWith("[")) {
+            parseTable(program, line);
+        } else if (t[0].equals("goto") && t.length == 2) {
+            program.jump(label(t[1]));
+        } else if ((t[0].equals("if") || t[0].equals("ifFalse")) && t.length == 6 && t[4].equals("goto")) {
+            int operator = IrProgram.operatorOf(t[2]);
+            if (t[0].equals("if")) {
+                program.ifGoto(operand(program, t[1]), operator, operand(program, t[3]), label(t[5]));
+            } else {
+                program.ifFalseGoto(operand(program, t[1]), operator, operand(program, t[3]), label(t[5]));
+            }
+        } else if (t.length == 3 && t[1].equals("=")) {
+            program.copy(operand(program, t[0]), operand(program, t[2]));
+        } else if (t.length == 4 && t[1].equals("=") && t[2].equals("-")) {
+            program.unary(operand(program, t[0]), IrProgram.NEG, operand(program, t[3]));
+        } else if (t.length == 5 && t[1].equals("=")) {
+            program.binary(operand(program, t[0]), operand(program, t[2]), IrProgram.operatorOf(t[3]), operand(program, t[4]));
+        } else {
+            throw new IllegalArgumentException("Unknown instruction");
+        }
+    }
+
+    // goto [_La, _Lb, ...][x - low] else _Ld
+    private static void parseTable(IrProgram program, String line) {
+        int close = line.indexOf(']');
+        int indexOpen = line.indexOf('[', close);
+        int indexClose = line.indexOf(']', indexOpen);
+        int elseAt = line.indexOf(" else ", indexClose);
+        if (close < 0 || indexOpen != close + 1 || indexClose < 0 || elseAt < 0) {
+            throw new IllegalArgumentException("Malformed table");
+        }
+
+        List<Integer> labels = new ArrayList<>();
+        for (String entry : line.substring(line.indexOf('[') + 1, close).split(",")) {
+            labels.add(label(entry.trim()));
+        }
+        int[] table = new int[labels.size()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = labels.get(i);
+        }
+
+        String[] index = line.substring(indexOpen + 1, indexClose).trim().split("\\s+");
+        int low = 0;
+        if (index.length == 3) {
+            low = Integer.parseInt(index[2]);
+            low = index[1].equals("-") ? low : -low;
+        } else if (index.length != 1) {
+            throw new IllegalArgumentException("Malformed table index");
+        }
+        program.gotoTable(operand(program, index[0]), low, table, label(line.substring(elseAt + 6).trim()));
+    }
+
+    private static int label(String token) {
+        if (!token.startsWith("_L")) {
+            throw new IllegalArgumentException("Not a label " + token);
+        }
+        return Integer.parseInt(token.substring(2));
+    }
+
+    private static int operand(IrProgram program, String token) {
+        char first = token.charAt(0);
+        if (first == '-' || Character.isDigit(first)) {
+            return program.constant(Integer.parseInt(token));
+        }
+        if (token.startsWith("_t") && token.length() > 2 && Character.isDigit(token.charAt(2))) {
+            return IrProgram.temp(Integer.parseInt(token.substring(2)));
+        }
+        return program.variable(token);
+    }
+}
@@ -0,0 +1,114 @@
+package analyzer.ir;
+
+import java.io.PrintWriter;
+
+/**
+ * Écrit un IrProgram dans le format texte produit historiquement par les visiteurs
+ * de génération de code (une instruction par ligne).
+ */
+public class IrPrinter {
+    private final PrintWriter m_writer;
+    private final StringBuilder m_line = new StringBuilder();
+    // Si vrai, chaque instruction est précédée de sa ligne source et d'une tabulation
+    private final boolean m_sourceLines;
+
+    public IrPrinter(PrintWriter writer) {
+        this(writer, false);
+    }
+
+    public IrPrinter(PrintWriter writer, boolean sourceLines) {
+        m_writer = writer;
+        m_sourceLines = sourceLines;
+    }
+
+    public void print(IrProgram program) {
+        for (int i = 0; i < program.size(); i++) {
+            m_line.setLength(0);
+            if (m_sourceLines) {
+                m_line.append(program.line(i)).append('\t');
+            }
+            appendInstruction(program, i, m_line);
+            m_writer.println(m_line);
+        }
+    }
+
+    public static String toString(IrProgram program, int i) {
+        StringBuilder sb = new StringBuilder();
+        appendInstruction(program, i, sb);
+        return sb.toString();
+    }
+
+    public static void appendInstruction(IrProgram program, int i, StringBuilder sb) {
+        switch (program.opcode(i)) {
+            case IrProgram.LABEL:
+                appendLabel(program.target(i), sb);
+                break;
+            case IrProgram.GOTO:
+                sb.append("goto ");
+                appendLabel(program.target(i), sb);
+                break;
+            case IrProgram.IF:
+            case IrProgram.IF_FALSE:
+                sb.append(program.opcode(i) == IrProgram.IF ? "if " : "ifFalse ");
+                appendOperand(program, program.a(i), sb);
+                sb.append(' ').append(IrProgram.operatorSymbol(program.operator(i))).append(' ');
+                appendOperand(program, program.b(i), sb);
+                sb.append(" goto ");
+                appendLabel(program.target(i), sb);
+                break;
+            case IrProgram.COPY:
+                appendOperand(program, program.target(i), sb);
+                sb.append(" = ");
+                appendOperand(program, program.a(i), sb);
+                break;
+            case IrProgram.BINARY:
+                appendOperand(program, program.target(i), sb);
+                sb.append(" = ");
+                appendOperand(program, program.a(i), sb);
+                sb.append(' ').append(IrProgram.operatorSymbol(program.operator(i))).append(' ');
+                appendOperand(program, program.b(i), sb);
+                break;
+            case IrProgram.UNARY:
+                appendOperand(program, program.target(i), sb);
+                sb.append(" = ").append(IrProgram.operatorSymbol(program.operator(i))).append(' ');
+                appendOperand(program, program.a(i), sb);
+                break;
+            case IrProgram.GOTO_TABLE:
+                sb.append("goto [");
+                for (int k = 0; k < program.tableSize(i); k++) {
+                    if (k > 0) {
+                        sb.append(", ");
+                    }
+                    appendLabel(program.tableLabel(i, k), sb);
+                }
+                sb.append("][");
+                appendOperand(program, program.a(i), sb);
+                int low = program.tableLow(i);
+                if (low != 0) {
+                    sb.append(low > 0 ? " - " : " + ").append(Math.abs((long) low));
+                }
+                sb.append("] else ");
+                appendLabel(program.target(i), sb);
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode " + program.opcode(i));
+        }
+    }
+
+    public static void appendLabel(int label, StringBuilder sb) {
+        sb.append("_L").append(label);
+    }
+
+    public static void appendOperand(IrProgram program, int operand, StringBuilder sb) {
+        switch (IrProgram.kind(operand)) {
+            case IrProgram.KIND_VAR:
+                sb.append(program.name(operand));
+                break;
+            case IrProgram.KIND_TEMP:
+                sb.append("_t").append(IrProgram.index(operand));
+                break;
+            default:
+                sb.append(program.constantValue(operand));
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package analyzer.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Code à trois adresses en mémoire, produit par les visiteurs de génération de code.
+ * <p>
+ * Chaque instruction occupe STRIDE cases consécutives d'un seul tableau d'entiers :
+ * [opcode, opérateur, cible (étiquette ou destination), opérande a, opérande b, ligne source].
+ * La ligne source est celle donnée par setLine() au moment de l'émission (0 si inconnue).
+ * Un opérande est un entier dont les 2 bits de poids faible donnent la sorte
+ * (variable, temporaire, constante) et les autres bits l'indice ou la valeur.
+ * Aucune chaîne n'est construite ici : voir IrPrinter.
+ */
+public class IrProgram {
+    // Opcodes
+    public static final int LABEL = 0;      // _Lx
+    public static final int GOTO = 1;       // goto _Lx
+    public static final int IF = 2;         // if a op b goto _Lx
+    public static final int IF_FALSE = 3;   // ifFalse a op b goto _Lx
+    public static final int COPY = 4;       // dst = a
+    public static final int BINARY = 5;     // dst = a op b
+    public static final int UNARY = 6;      // dst = op a
+    public static final int GOTO_TABLE = 7; // goto [_L..., _L...][a - low] else _Lx
+
+    // Opérateurs, avec les mêmes valeurs que ceux de analyzer.ast.Operator
+    public static final int NONE = 0;
+    public static final int ADD = 1;
+    public static final int SUB = 2;
+    public static final int MUL = 3;
+    public static final int DIV = 4;
+    public static final int MOD = 5;
+    public static final int LT = 6;
+    public static final int LE = 7;
+    public static final int GT = 8;
+    public static final int GE = 9;
+    public static final int EQ = 10;
+    public static final int NE = 11;
+    public static final int NEG = 12;
+
+    private static final String[] OPERATOR_SYMBOLS = {"", "+", "-", "*", "/", "%", "<", "<=", ">", ">=", "==", "!=", "-"};
+
+    // Sortes d'opérandes
+    public static final int KIND_VAR = 0;
+    public static final int KIND_TEMP = 1;
+    public static final int KIND_CONST = 2;     // valeur dans l'opérande
+    public static final int KIND_POOL = 3;      // valeur dans m_constants
+
+    // Étiquette de l'IntermediateCodeGenFallVisitor qui signifie « continuer à l'instruction suivante »
+    public static final int FALL = -1;
+
+    public static final int STRIDE = 6;
+    private static final int OPCODE = 0;
+    private static final int OPERATOR = 1;
+    private static final int TARGET = 2;
+    private static final int A = 3;
+    private static final int B = 4;
+    private static final int LINE = 5;
+
+    private int[] m_code = new int[STRIDE * 64];
+    private int m_size = 0;
+
+    // Ligne source des prochaines instructions émises
+    private int m_line = 0;
+
+    private final ArrayList<String> m_names = new ArrayList<>();
+    private final HashMap<String, Integer> m_nameIndex = new HashMap<>();
+    private int[] m_constants = new int[8];
+    private int m_constantCount = 0;
+
+    // Tables de GOTO_TABLE : [low, n, étiquette 0, ..., étiquette n-1] à la suite les unes des autres
+    private int[] m_tables = new int[16];
+    private int m_tablesSize = 0;
+
+    // ----- Opérandes -----
+
+    public int variable(String name) {
+        Integer index = m_nameIndex.get(name);
+        if (index == null) {
+            index = m_names.size();
+            m_names.add(name);
+            m_nameIndex.put(name, index);
+        }
+        return index << 2 | KIND_VAR;
+    }
+
+    public static int temp(int id) {
+        return id << 2 | KIND_TEMP;
+    }
+
+    public int constant(int value) {
+        if ((value << 2) >> 2 == value) {
+            return value << 2 | KIND_CONST;
+        }
+        if (m_constantCount == m_constants.length) {
+            m_constants = Arrays.copyOf(m_constants, m_constantCount * 2);
+        }
+        m_constants[m_constantCount] = value;
+        return m_constantCount++ << 2 | KIND_POOL;
+    }
+
+    public static int kind(int operand) {
+        return operand & 3;
+    }
+
+    public static int index(int operand) {
+        return operand >>> 2;
+    }
+
+    public static boolean isConstant(int operand) {
+        return kind(operand) >= KIND_CONST;
+    }
+
+    public int constantValue(int operand) {
+        return kind(operand) == KIND_CONST ? operand >> 2 : m_constants[operand >>> 2];
+    }
+
+    public String name(int operand) {
+        return m_names.get(operand >>> 2);
+    }
+
+    public int variableCount() {
+        return m_names.size();
+    }
+
+    public static String operatorSymbol(int operator) {
+        return OPERATOR_SYMBOLS[operator];
+    }
+
+    // Opérateur de comparaison contraire : a op b est faux ssi a negate(op) b est vrai
+    public static int negate(int operator) {
+        switch (operator) {
+            case LT: return GE;
+            case LE: return GT;
+            case GT: return LE;
+            case GE: return LT;
+            case EQ: return NE;
+            case NE: return EQ;
+            default: throw new IllegalArgumentException("Not a comparison " + operator);
+        }
+    }
+
+    public static int operatorOf(String symbol) {
+        switch (symbol) {
+            case "+": return ADD;
+            case "-": return SUB;
+            case "*": return MUL;
+            case "/": return DIV;
+            case "%": return MOD;
+            case "<": return LT;
+            case "<=": return LE;
+            case ">": return GT;
+            case ">=": return GE;
+            case "==": return EQ;
+            case "!=": return NE;
+            default: throw new IllegalArgumentException("Unknown operator " + symbol);
+        }
+    }
+
+    // ----- Émission -----
+
+    // Les instructions émises ensuite viennent de cette ligne du source
+    public void setLine(int line) {
+        m_line = line;
+    }
+
+    public int getLine() {
+        return m_line;
+    }
+
+    public void label(int label) {
+        emit(LABEL, NONE, label, 0, 0);
+    }
+
+    public void jump(int label) {
+        emit(GOTO, NONE, label, 0, 0);
+    }
+
+    public void ifGoto(int a, int operator, int b, int label) {
+        emit(IF, operator, label, a, b);
+    }
+
+    public void ifFalseGoto(int a, int operator, int b, int label) {
+        emit(IF_FALSE, operator, label, a, b);
+    }
+
+    public void copy(int dst, int a) {
+        emit(COPY, NONE, dst, a, 0);
+    }
+
+    public void binary(int dst, int a, int operator, int b) {
+        emit(BINARY, operator, dst, a, b);
+    }
+
+    public void unary(int dst, int operator, int a) {
+        emit(UNARY, operator, dst, a, 0);
+    }
+
+    // Saute à labels[a - low] si a est dans [low, low + labels.length[, sinon à defaultLabel
+    public void gotoTable(int a, int low, int[] labels, int defaultLabel) {
+        while (m_tablesSize + labels.length + 2 > m_tables.length) {
+            m_tables = Arrays.copyOf(m_tables, m_tables.length * 2);
+        }
+        int offset = m_tablesSize;
+        m_tables[offset] = low;
+        m_tables[offset + 1] = labels.length;
+        System.arraycopy(labels, 0, m_tables, offset + 2, labels.length);
+        m_tablesSize += labels.length + 2;
+        emit(GOTO_TABLE, NONE, defaultLabel, a, offset);
+    }
+
+    public void emit(int opcode, int operator, int target, int a, int b) {
+        if (m_size * STRIDE == m_code.length) {
+            m_code = Arrays.copyOf(m_code, m_code.length * 2);
+        }
+        int base = m_size++ * STRIDE;
+        m_code[base + OPCODE] = opcode;
+        m_code[base + OPERATOR] = operator;
+        m_code[base + TARGET] = target;
+        m_code[base + A] = a;
+        m_code[base + B] = b;
+        m_code[base + LINE] = m_line;
+    }
+
+    // Remplace l'instruction i, qui garde sa ligne source
+    public void set(int i, int opcode, int operator, int target, int a, int b) {
+        int base = i * STRIDE;
+        m_code[base + OPCODE] = opcode;
+        m_code[base + OPERATOR] = operator;
+        m_code[base + TARGET] = target;
+        m_code[base + A] = a;
+        m_code[base + B] = b;
+    }
+
+    // Remplace l'entrée k de la table du GOTO_TABLE i
+    public void setTableLabel(int i, int k, int label) {
+        m_tables[b(i) + 2 + k] = label;
+    }
+
+    // Garde seulement les instructions i telles que keep[i], dans le même ordre
+    public void retain(boolean[] keep) {
+        int size = 0;
+        for (int i = 0; i < m_size; i++) {
+            if (keep[i]) {
+                System.arraycopy(m_code, i * STRIDE, m_code, size * STRIDE, STRIDE);
+                size++;
+            }
+        }
+        m_size = size;
+    }
+
+    // Retire les instructions à partir de from et les rend, STRIDE cases chacune avec leur ligne source,
+    // pour les émettre de nouveau plus loin avec append()
+    public int[] truncate(int from) {
+        int[] code = Arrays.copyOfRange(m_code, from * STRIDE, m_size * STRIDE);
+        m_size = from;
+        return code;
+    }
+
+    // Émet de nouveau les instructions [from, to[ de code, rendu par truncate(), chacune avec sa ligne source
+    public void append(int[] code, int from, int to) {
+        int length = (to - from) * STRIDE;
+        while (m_size * STRIDE + length > m_code.length) {
+            m_code = Arrays.copyOf(m_code, m_code.length * 2);
+        }
+        System.arraycopy(code, from * STRIDE, m_code, m_size * STRIDE, length);
+        m_size += to - from;
+    }
+
+    // ----- Lecture -----
+
+    public int size() {
+        return m_size;
+    }
+
+    public int opcode(int i) {
+        return m_code[i * STRIDE + OPCODE];
+    }
+
+    public int operator(int i) {
+        return m_code[i * STRIDE + OPERATOR];
+    }
+
+    // Étiquette pour LABEL, GOTO, IF et IF_FALSE, étiquette par défaut pour GOTO_TABLE ;
+    // destination pour COPY, BINARY et UNARY
+    public int target(int i) {
+        return m_code[i * STRIDE + TARGET];
+    }
+
+    public int a(int i) {
+        return m_code[i * STRIDE + A];
+    }
+
+    public int b(int i) {
+        return m_code[i * STRIDE + B];
+    }
+
+    // Ligne source de l'instruction i, 0 si inconnue
+    public int line(int i) {
+        return m_code[i * STRIDE + LINE];
+    }
+
+    // Première valeur couverte par la table du GOTO_TABLE i
+    public int tableLow(int i) {
+        return m_tables[b(i)];
+    }
+
+    public int tableSize(int i) {
+        return m_tables[b(i) + 1];
+    }
+
+    public int tableLabel(int i, int k) {
+        return m_tables[b(i) + 2 + k];
+    }
+
+    // Vrai pour les sauts à une seule cible (GOTO, IF, IF_FALSE) ; GOTO_TABLE est traité à part
+    public boolean isJump(int i) {
+        int opcode = opcode(i);
+        return opcode == GOTO || opcode == IF || opcode == IF_FALSE;
+    }
+
+    // Plus grand numéro d'étiquette utilisé, -1 s'il n'y en a aucun
+    public int maxLabel() {
+        int max = -1;
+        for (int i = 0; i < m_size; i++) {
+            if ((opcode(i) == LABEL || isJump(i) || opcode(i) == GOTO_TABLE) && target(i) > max) {
+                max = target(i);
+            }
+            if (opcode(i) == GOTO_TABLE) {
+                for (int k = 0; k < tableSize(i); k++) {
+                    max = Math.max(max, tableLabel(i, k));
+                }
+            }
+        }
+        return max;
+    }
+}
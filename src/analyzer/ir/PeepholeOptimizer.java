@@ -0,0 +1,222 @@
+package analyzer.ir;
+
+import java.util.Arrays;
+
+/**
+ * Optimisation à lucarne (peephole) du code à sauts, appliquée entre la génération de code
+ * et l'impression. Les passes suivantes sont répétées jusqu'à ce que plus rien ne change :
+ * <ul>
+ * <li>enfilage des sauts : un saut (ou une entrée de GOTO_TABLE) vers une étiquette suivie
+ * de « goto L » saute directement à L ;</li>
+ * <li>inversion : « if c goto L1 / goto L2 / L1 » devient « if !c goto L2 / L1 » ;</li>
+ * <li>sauts redondants : un saut vers l'étiquette qui le suit immédiatement est retiré ;</li>
+ * <li>code mort : les instructions entre un goto et la prochaine étiquette sont retirées ;</li>
+ * <li>étiquettes mortes : une étiquette que plus aucun saut ne vise est retirée.</li>
+ * </ul>
+ */
+public class PeepholeOptimizer {
+
+    private int m_threaded = 0;
+    private int m_inverted = 0;
+    private int m_removedJumps = 0;
+    private int m_removedUnreachable = 0;
+    private int m_removedLabels = 0;
+
+    // Optimise le programme sur place et retourne le nombre d'instructions retirées
+    public int optimize(IrProgram program) {
+        int before = program.size();
+        boolean changed = true;
+        while (changed) {
+            changed = threadJumps(program);
+            changed |= invertConditions(program);
+            changed |= removeRedundantJumps(program);
+            changed |= removeUnreachable(program);
+            changed |= removeDeadLabels(program);
+        }
+        return before - program.size();
+    }
+
+    public int getThreaded() {
+        return m_threaded;
+    }
+
+    public int getInverted() {
+        return m_inverted;
+    }
+
+    public int getRemovedJumps() {
+        return m_removedJumps;
+    }
+
+    public int getRemovedUnreachable() {
+        return m_removedUnreachable;
+    }
+
+    public int getRemovedLabels() {
+        return m_removedLabels;
+    }
+
+    private static int[] labelPositions(IrProgram program) {
+        int[] positions = new int[program.maxLabel() + 1];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < program.size(); i++) {
+            if (program.opcode(i) == IrProgram.LABEL) {
+                positions[program.target(i)] = i;
+            }
+        }
+        return positions;
+    }
+
+    // Instruction de l'étiquette label, qui doit être définie
+    private static int position(int[] positions, int label) {
+        if (label < 0 || label >= positions.length || positions[label] < 0) {
+            throw new IllegalArgumentException("Undefined label _L" + label);
+        }
+        return positions[label];
+    }
+
+    // Vrai si on arrive à l'étiquette label en partant de l'instruction from sans rien exécuter
+    private static boolean fallsInto(IrProgram program, int[] positions, int from, int label) {
+        if (label < 0 || positions[label] < from) {
+            return false;
+        }
+        for (int i = from; i < positions[label]; i++) {
+            if (program.opcode(i) != IrProgram.LABEL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean threadJumps(IrProgram program) {
+        int[] positions = labelPositions(program);
+        boolean changed = false;
+        for (int i = 0; i < program.size(); i++) {
+            if (program.opcode(i) == IrProgram.GOTO_TABLE) {
+                for (int k = 0; k < program.tableSize(i); k++) {
+                    int target = threadedTarget(program, positions, program.tableLabel(i, k));
+                    if (target != program.tableLabel(i, k)) {
+                        program.setTableLabel(i, k, target);
+                        m_threaded++;
+                        changed = true;
+                    }
+                }
+            } else if (!program.isJump(i) || program.target(i) < 0) {
+                continue;
+            }
+            int target = threadedTarget(program, positions, program.target(i));
+            if (target != program.target(i)) {
+                program.set(i, program.opcode(i), program.operator(i), target, program.a(i), program.b(i));
+                m_threaded++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Dernière étiquette d'une suite de « L: goto L' »
+    private static int threadedTarget(IrProgram program, int[] positions, int target) {
+        // Le nombre de sauts suivis est borné pour ne pas tourner sur « L: goto L »
+        for (int hops = 0; hops < positions.length; hops++) {
+            int next = position(positions, target) + 1;
+            while (next < program.size() && program.opcode(next) == IrProgram.LABEL) {
+                next++;
+            }
+            if (next >= program.size() || program.opcode(next) != IrProgram.GOTO || program.target(next) == target) {
+                break;
+            }
+            target = program.target(next);
+        }
+        return target;
+    }
+
+    private boolean invertConditions(IrProgram program) {
+        int[] positions = labelPositions(program);
+        boolean[] keep = new boolean[program.size()];
+        Arrays.fill(keep, true);
+        boolean changed = false;
+        for (int i = 0; i + 1 < program.size(); i++) {
+            int opcode = program.opcode(i);
+            if ((opcode != IrProgram.IF && opcode != IrProgram.IF_FALSE) || program.opcode(i + 1) != IrProgram.GOTO
+                    || !keep[i] || !fallsInto(program, positions, i + 2, program.target(i))) {
+                continue;
+            }
+            int operator = opcode == IrProgram.IF ? IrProgram.negate(program.operator(i)) : program.operator(i);
+            program.set(i, IrProgram.IF, operator, program.target(i + 1), program.a(i), program.b(i));
+            keep[i + 1] = false;
+            m_inverted++;
+            changed = true;
+        }
+        if (changed) {
+            program.retain(keep);
+        }
+        return changed;
+    }
+
+    private boolean removeRedundantJumps(IrProgram program) {
+        int[] positions = labelPositions(program);
+        boolean[] keep = new boolean[program.size()];
+        boolean changed = false;
+        for (int i = 0; i < program.size(); i++) {
+            keep[i] = !(program.isJump(i) && fallsInto(program, positions, i + 1, program.target(i)));
+            if (!keep[i]) {
+                m_removedJumps++;
+                changed = true;
+            }
+        }
+        if (changed) {
+            program.retain(keep);
+        }
+        return changed;
+    }
+
+    private boolean removeUnreachable(IrProgram program) {
+        boolean[] keep = new boolean[program.size()];
+        boolean reachable = true;
+        boolean changed = false;
+        for (int i = 0; i < program.size(); i++) {
+            if (program.opcode(i) == IrProgram.LABEL) {
+                reachable = true;
+            }
+            keep[i] = reachable;
+            if (!reachable) {
+                m_removedUnreachable++;
+                changed = true;
+            }
+            if (program.opcode(i) == IrProgram.GOTO || program.opcode(i) == IrProgram.GOTO_TABLE) {
+                reachable = false;
+            }
+        }
+        if (changed) {
+            program.retain(keep);
+        }
+        return changed;
+    }
+
+    private boolean removeDeadLabels(IrProgram program) {
+        int[] references = new int[program.maxLabel() + 1];
+        for (int i = 0; i < program.size(); i++) {
+            if ((program.isJump(i) || program.opcode(i) == IrProgram.GOTO_TABLE) && program.target(i) >= 0) {
+                references[program.target(i)]++;
+            }
+            if (program.opcode(i) == IrProgram.GOTO_TABLE) {
+                for (int k = 0; k < program.tableSize(i); k++) {
+                    references[program.tableLabel(i, k)]++;
+                }
+            }
+        }
+        boolean[] keep = new boolean[program.size()];
+        boolean changed = false;
+        for (int i = 0; i < program.size(); i++) {
+            keep[i] = program.opcode(i) != IrProgram.LABEL || references[program.target(i)] > 0;
+            if (!keep[i]) {
+                m_removedLabels++;
+                changed = true;
+            }
+        }
+        if (changed) {
+            program.retain(keep);
+        }
+        return changed;
+    }
+}
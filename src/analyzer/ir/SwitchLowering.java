@@ -0,0 +1,120 @@
+package analyzer.ir;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+/**
+ * Choix de la traduction d'un switch dont toutes les valeurs de case sont des constantes
+ * (entiers ou membres d'enum, dont les ordinaux sont denses).
+ * <ul>
+ * <li>LINEAR : la chaîne de tests historique des visiteurs, une comparaison par case ;</li>
+ * <li>TABLE : un seul GOTO_TABLE indexé par la valeur, quand les cases sont assez denses ;</li>
+ * <li>BINARY : une recherche dichotomique sur les valeurs triées, dont les intervalles
+ * assez denses deviennent à leur tour des GOTO_TABLE.</li>
+ * </ul>
+ * La densité est évaluée avec les coûts qu'utilise javac pour choisir entre tableswitch
+ * et lookupswitch.
+ */
+public class SwitchLowering {
+    public static final int LINEAR = 0;
+    public static final int TABLE = 1;
+    public static final int BINARY = 2;
+
+    // En dessous, la chaîne linéaire est aussi courte et garde la forme attendue par les tests
+    public static final int MIN_CASES = 5;
+    // Taille d'un intervalle de la recherche dichotomique testé linéairement
+    private static final int LEAF_CASES = 3;
+
+    private final IrProgram m_code;
+    private final IntSupplier m_newLabel;
+
+    public SwitchLowering(IrProgram code, IntSupplier newLabel) {
+        m_code = code;
+        m_newLabel = newLabel;
+    }
+
+    // values sont des opérandes ; retourne LINEAR si l'un d'eux n'est pas une constante
+    public static int choose(IrProgram code, int[] values) {
+        if (values.length < MIN_CASES) {
+            return LINEAR;
+        }
+        int[] keys = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (!IrProgram.isConstant(values[i])) {
+                return LINEAR;
+            }
+            keys[i] = code.constantValue(values[i]);
+        }
+        Arrays.sort(keys);
+        return isDense(keys, 0, keys.length) ? TABLE : BINARY;
+    }
+
+    private static boolean isDense(int[] keys, int from, int to) {
+        long count = to - from;
+        long range = (long) keys[to - 1] - keys[from] + 1;
+        long tableCost = 4 + range + 3 * 3;
+        long lookupCost = 3 + 2 * count + 3 * count;
+        return range <= Integer.MAX_VALUE && tableCost <= lookupCost;
+    }
+
+    /**
+     * Émet le saut vers labels[i] lorsque value vaut la constante values[i], et vers
+     * defaultLabel si aucune ne correspond. Pour une valeur répétée, le premier case gagne,
+     * comme dans la chaîne linéaire.
+     */
+    public void dispatch(int strategy, int value, int[] values, int[] labels, int defaultLabel) {
+        int n = values.length;
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Valeur dans les 32 bits de poids fort, rang du case dans les autres pour un tri stable
+            sorted[i] = (long) m_code.constantValue(values[i]) << 32 | i;
+        }
+        Arrays.sort(sorted);
+
+        int[] keys = new int[n];
+        int[] targets = new int[n];
+        int size = 0;
+        for (long entry : sorted) {
+            int key = (int) (entry >> 32);
+            if (size > 0 && keys[size - 1] == key) {
+                continue;
+            }
+            keys[size] = key;
+            targets[size] = labels[(int) entry];
+            size++;
+        }
+
+        if (strategy == TABLE) {
+            table(value, keys, targets, 0, size, defaultLabel);
+        } else {
+            search(value, keys, targets, 0, size, defaultLabel);
+        }
+    }
+
+    private void table(int value, int[] keys, int[] targets, int from, int to, int defaultLabel) {
+        int[] table = new int[keys[to - 1] - keys[from] + 1];
+        Arrays.fill(table, defaultLabel);
+        for (int i = from; i < to; i++) {
+            table[keys[i] - keys[from]] = targets[i];
+        }
+        m_code.gotoTable(value, keys[from], table, defaultLabel);
+    }
+
+    private void search(int value, int[] keys, int[] targets, int from, int to, int defaultLabel) {
+        if (to - from <= LEAF_CASES) {
+            for (int i = from; i < to; i++) {
+                m_code.ifGoto(value, IrProgram.EQ, m_code.constant(keys[i]), targets[i]);
+            }
+            m_code.jump(defaultLabel);
+        } else if (isDense(keys, from, to)) {
+            table(value, keys, targets, from, to, defaultLabel);
+        } else {
+            int middle = (from + to) >>> 1;
+            int upper = m_newLabel.getAsInt();
+            m_code.ifGoto(value, IrProgram.GE, m_code.constant(keys[middle]), upper);
+            search(value, keys, targets, from, middle, defaultLabel);
+            m_code.label(upper);
+            search(value, keys, targets, middle, to, defaultLabel);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package analyzer.jvm;
+
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Programme compilé par JvmCompiler. L'état est un int[] avec une case par variable, dans
+ * l'ordre de getVariables() ; run(state) l'utilise comme valeurs initiales et y laisse les
+ * valeurs finales. Une division ou un modulo par zéro lève l'ArithmeticException de Java.
+ */
+public class CompiledProgram {
+    private final MethodHandle m_run;
+    private final String[] m_variables;
+
+    CompiledProgram(MethodHandle run, String[] variables) {
+        m_run = run;
+        m_variables = variables;
+    }
+
+    public String[] getVariables() {
+        return m_variables.clone();
+    }
+
+    // État initial : toutes les variables à 0
+    public int[] newState() {
+        return new int[m_variables.length];
+    }
+
+    public void run(int[] state) {
+        try {
+            m_run.invokeExact(state);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Indice de la variable dans l'état, -1 si elle n'apparaît pas dans le programme
+    public int indexOf(String name) {
+        for (int i = 0; i < m_variables.length; i++) {
+            if (m_variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Écrit « nom = valeur » pour chaque variable, dans l'ordre donné ; une variable absente vaut 0
+    public void printState(int[] state, PrintWriter writer, String[] variables) {
+        for (String variable : variables) {
+            int index = indexOf(variable);
+            writer.println(variable + " = " + (index < 0 ? 0 : state[index]));
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package analyzer.jvm;
+
+import analyzer.ir.IrProgram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Traduit un IrProgram en une méthode JVM « static void run(int[] variables) », écrite
+ * directement en bytecode puis chargée avec MethodHandles.Lookup.defineHiddenClass.
+ * <p>
+ * Les variables sont copiées du tableau dans des variables locales à l'entrée et y sont
+ * recopiées à la sortie ; les temporaires _t sont aussi des variables locales et les constantes
+ * sont mises directement dans le code. Un GOTO_TABLE devient un tableswitch et une suite d'au
+ * moins MIN_LOOKUP tests « if x == k goto L » sur le même opérande devient un lookupswitch.
+ * <p>
+ * Le fichier de classe est en version 49 : la JVM le vérifie par inférence de types et n'a
+ * donc pas besoin de StackMapTable. Les branchements sont sur 16 bits ; un programme dont le
+ * code dépasse MAX_CODE octets est refusé (IllegalArgumentException), la Vm reste alors le
+ * moyen de l'exécuter.
+ */
+public class JvmCompiler {
+    public static final int MIN_LOOKUP = 3;
+    public static final int MAX_CODE = 32767;
+
+    private static final String CLASS_NAME = "analyzer/jvm/CompiledCode";
+
+    // Opcodes JVM utilisés
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE = 0x36;
+    private static final int IASTORE = 0x4f;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6c;
+    private static final int IREM = 0x70;
+    private static final int INEG = 0x74;
+    private static final int IFEQ = 0x99;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int GOTO = 0xa7;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int RETURN = 0xb1;
+    private static final int WIDE = 0xc4;
+
+    private final IrProgram m_program;
+    private final int m_variableCount;
+    private int m_localCount;
+
+    // Code de la méthode, avec les déplacements des sauts complétés à la fin
+    private byte[] m_code = new byte[256];
+    private int m_length = 0;
+    private int[] m_labelPositions;
+    private final List<int[]> m_fixups = new ArrayList<>();     // {début de l'instruction, champ, étiquette, taille}
+
+    private final ConstantPool m_pool = new ConstantPool();
+
+    private JvmCompiler(IrProgram program) {
+        m_program = program;
+        m_variableCount = program.variableCount();
+    }
+
+    public static CompiledProgram compile(IrProgram program) {
+        JvmCompiler compiler = new JvmCompiler(program);
+        byte[] classFile = compiler.classFile();
+        String[] variables = new String[program.variableCount()];
+        for (int v = 0; v < variables.length; v++) {
+            variables[v] = program.name(v << 2);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle run = lookup.findStatic(lookup.lookupClass(), "run", MethodType.methodType(void.class, int[].class));
+            return new CompiledProgram(run, variables);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Fichier de classe généré, sans le charger (utile pour l'inspecter avec javap)
+    public static byte[] classFile(IrProgram program) {
+        return new JvmCompiler(program).classFile();
+    }
+
+    private byte[] classFile() {
+        generateCode();
+
+        int thisClass = m_pool.classRef(CLASS_NAME);
+        int superClass = m_pool.classRef("java/lang/Object");
+        int name = m_pool.utf8("run");
+        int descriptor = m_pool.utf8("([I)V");
+        int codeAttribute = m_pool.utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            m_pool.write(out);
+            out.writeShort(0x0031);     // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);          // interfaces
+            out.writeShort(0);          // fields
+            out.writeShort(1);          // methods
+            out.writeShort(0x0009);     // public static
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + m_length);
+            out.writeShort(4);          // max_stack : tableau, indice, valeur (+1 pour les comparaisons)
+            out.writeShort(m_localCount);
+            out.writeInt(m_length);
+            out.write(m_code, 0, m_length);
+            out.writeShort(0);          // exceptions
+            out.writeShort(0);          // attributs du code
+            out.writeShort(0);          // attributs de la classe
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // ----- Traduction -----
+
+    private void generateCode() {
+        int tempCount = 0;
+        for (int i = 0; i < m_program.size(); i++) {
+            int opcode = m_program.opcode(i);
+            if (opcode == IrProgram.LABEL || opcode == IrProgram.GOTO) {
+                continue;
+            }
+            // La cible n'est un opérande que pour COPY, BINARY et UNARY ; b est inutilisé pour GOTO_TABLE
+            int[] operands = opcode == IrProgram.GOTO_TABLE ? new int[]{m_program.a(i)}
+                    : m_program.isJump(i) ? new int[]{m_program.a(i), m_program.b(i)}
+                    : new int[]{m_program.target(i), m_program.a(i), m_program.b(i)};
+            for (int operand : operands) {
+                if (IrProgram.kind(operand) == IrProgram.KIND_TEMP) {
+                    tempCount = Math.max(tempCount, IrProgram.index(operand) + 1);
+                }
+            }
+        }
+        m_localCount = 1 + m_variableCount + tempCount;
+        m_labelPositions = new int[m_program.maxLabel() + 1];
+        Arrays.fill(m_labelPositions, -1);
+
+        // Entrée : variables chargées du tableau, temporaires à 0 pour le vérificateur
+        for (int v = 0; v < m_variableCount; v++) {
+            emit(ALOAD_0);
+            pushConstant(v);
+            emit(IALOAD);
+            local(ISTORE, 1 + v);
+        }
+        for (int t = 0; t < tempCount; t++) {
+            emit(ICONST_0);
+            local(ISTORE, 1 + m_variableCount + t);
+        }
+
+        for (int i = 0; i < m_program.size(); i++) {
+            i = translate(i);
+        }
+
+        // Sortie : variables recopiées dans le tableau
+        for (int v = 0; v < m_variableCount; v++) {
+            emit(ALOAD_0);
+            pushConstant(v);
+            local(ILOAD, 1 + v);
+            emit(IASTORE);
+        }
+        emit(RETURN);
+
+        if (m_length > MAX_CODE) {
+            throw new IllegalArgumentException("Program too large for a JVM method: " + m_length + " bytes");
+        }
+        for (int[] fixup : m_fixups) {
+            int target = m_labelPositions[fixup[2]];
+            if (target < 0) {
+                throw new IllegalArgumentException("Undefined label _L" + fixup[2]);
+            }
+            int offset = target - fixup[0];
+            if (fixup[3] == 2) {
+                m_code[fixup[1]] = (byte) (offset >> 8);
+                m_code[fixup[1] + 1] = (byte) offset;
+            } else {
+                putInt(fixup[1], offset);
+            }
+        }
+    }
+
+    // Traduit l'instruction i et retourne l'indice de la dernière instruction consommée
+    private int translate(int i) {
+        switch (m_program.opcode(i)) {
+            case IrProgram.LABEL:
+                m_labelPositions[m_program.target(i)] = m_length;
+                return i;
+            case IrProgram.GOTO:
+                branch(GOTO, m_program.target(i));
+                return i;
+            case IrProgram.IF:
+            case IrProgram.IF_FALSE:
+                int run = lookupRun(i);
+                if (run >= MIN_LOOKUP) {
+                    lookupSwitch(i, run);
+                    return i + run - 1;
+                }
+                int operator = m_program.opcode(i) == IrProgram.IF ? m_program.operator(i) : IrProgram.negate(m_program.operator(i));
+                load(m_program.a(i));
+                if (IrProgram.isConstant(m_program.b(i)) && m_program.constantValue(m_program.b(i)) == 0) {
+                    branch(IFEQ + condition(operator), m_program.target(i));
+                } else {
+                    load(m_program.b(i));
+                    branch(IF_ICMPEQ + condition(operator), m_program.target(i));
+                }
+                return i;
+            case IrProgram.COPY:
+                load(m_program.a(i));
+                store(m_program.target(i));
+                return i;
+            case IrProgram.BINARY:
+                load(m_program.a(i));
+                load(m_program.b(i));
+                emit(arithmetic(m_program.operator(i)));
+                store(m_program.target(i));
+                return i;
+            case IrProgram.UNARY:
+                load(m_program.a(i));
+                emit(INEG);
+                store(m_program.target(i));
+                return i;
+            case IrProgram.GOTO_TABLE:
+                tableSwitch(i);
+                return i;
+            default:
+                throw new IllegalArgumentException("Unknown opcode " + m_program.opcode(i));
+        }
+    }
+
+    // Décalage depuis IFEQ / IF_ICMPEQ : eq, ne, lt, ge, gt, le
+    private static int condition(int operator) {
+        switch (operator) {
+            case IrProgram.EQ: return 0;
+            case IrProgram.NE: return 1;
+            case IrProgram.LT: return 2;
+            case IrProgram.GE: return 3;
+            case IrProgram.GT: return 4;
+            case IrProgram.LE: return 5;
+            default: throw new IllegalArgumentException("Not a comparison " + operator);
+        }
+    }
+
+    private static int arithmetic(int operator) {
+        switch (operator) {
+            case IrProgram.ADD: return IADD;
+            case IrProgram.SUB: return ISUB;
+            case IrProgram.MUL: return IMUL;
+            case IrProgram.DIV: return IDIV;
+            case IrProgram.MOD: return IREM;
+            default: throw new IllegalArgumentException("Not an arithmetic operator " + operator);
+        }
+    }
+
+    // Nombre d'instructions « if x == k goto L » consécutives à partir de i, même x et k distincts
+    private int lookupRun(int i) {
+        int operand = m_program.a(i);
+        HashMap<Integer, Boolean> keys = new HashMap<>();
+        int run = 0;
+        while (i + run < m_program.size()
+                && m_program.opcode(i + run) == IrProgram.IF
+                && m_program.operator(i + run) == IrProgram.EQ
+                && m_program.a(i + run) == operand
+                && !IrProgram.isConstant(operand)
+                && IrProgram.isConstant(m_program.b(i + run))
+                && keys.put(m_program.constantValue(m_program.b(i + run)), true) == null) {
+            run++;
+        }
+        return run;
+    }
+
+    private void lookupSwitch(int first, int run) {
+        int[][] cases = new int[run][];
+        for (int k = 0; k < run; k++) {
+            cases[k] = new int[]{m_program.constantValue(m_program.b(first + k)), m_program.target(first + k)};
+        }
+        Arrays.sort(cases, (x, y) -> Integer.compare(x[0], y[0]));
+
+        // Aucun case ne correspond : on continue après la suite de tests
+        int next = newLocalLabel();
+        load(m_program.a(first));
+        int start = m_length;
+        emit(LOOKUPSWITCH);
+        align();
+        switchTarget(start, next);
+        emitInt(run);
+        for (int[] entry : cases) {
+            emitInt(entry[0]);
+            switchTarget(start, entry[1]);
+        }
+        m_labelPositions[next] = m_length;
+    }
+
+    private void tableSwitch(int i) {
+        int size = m_program.tableSize(i);
+        load(m_program.a(i));
+        int start = m_length;
+        emit(TABLESWITCH);
+        align();
+        switchTarget(start, m_program.target(i));
+        emitInt(m_program.tableLow(i));
+        emitInt(m_program.tableLow(i) + size - 1);
+        for (int k = 0; k < size; k++) {
+            switchTarget(start, m_program.tableLabel(i, k));
+        }
+    }
+
+    // Étiquette réservée au compilateur, après celles du programme
+    private int newLocalLabel() {
+        m_labelPositions = Arrays.copyOf(m_labelPositions, m_labelPositions.length + 1);
+        m_labelPositions[m_labelPositions.length - 1] = -1;
+        return m_labelPositions.length - 1;
+    }
+
+    // ----- Émission -----
+
+    private void load(int operand) {
+        switch (IrProgram.kind(operand)) {
+            case IrProgram.KIND_VAR:
+                local(ILOAD, 1 + IrProgram.index(operand));
+                break;
+            case IrProgram.KIND_TEMP:
+                local(ILOAD, 1 + m_variableCount + IrProgram.index(operand));
+                break;
+            default:
+                pushConstant(m_program.constantValue(operand));
+        }
+    }
+
+    private void store(int operand) {
+        if (IrProgram.kind(operand) == IrProgram.KIND_VAR) {
+            local(ISTORE, 1 + IrProgram.index(operand));
+        } else {
+            local(ISTORE, 1 + m_variableCount + IrProgram.index(operand));
+        }
+    }
+
+    private void local(int opcode, int index) {
+        if (index > 255) {
+            emit(WIDE);
+            emit(opcode);
+            emit(index >> 8);
+            emit(index);
+        } else {
+            emit(opcode);
+            emit(index);
+        }
+    }
+
+    private void pushConstant(int value) {
+        if (value >= -1 && value <= 5) {
+            emit(ICONST_0 + value);
+        } else if (value == (byte) value) {
+            emit(BIPUSH);
+            emit(value);
+        } else if (value == (short) value) {
+            emit(SIPUSH);
+            emit(value >> 8);
+            emit(value);
+        } else {
+            int index = m_pool.integer(value);
+            if (index < 256) {
+                emit(LDC);
+                emit(index);
+            } else {
+                emit(LDC_W);
+                emit(index >> 8);
+                emit(index);
+            }
+        }
+    }
+
+    private void branch(int opcode, int label) {
+        m_fixups.add(new int[]{m_length, m_length + 1, label, 2});
+        emit(opcode);
+        emit(0);
+        emit(0);
+    }
+
+    private void switchTarget(int start, int label) {
+        m_fixups.add(new int[]{start, m_length, label, 4});
+        emitInt(0);
+    }
+
+    private void align() {
+        while (m_length % 4 != 0) {
+            emit(0);
+        }
+    }
+
+    private void emit(int b) {
+        if (m_length == m_code.length) {
+            m_code = Arrays.copyOf(m_code, m_length * 2);
+        }
+        m_code[m_length++] = (byte) b;
+    }
+
+    private void emitInt(int value) {
+        emit(value >> 24);
+        emit(value >> 16);
+        emit(value >> 8);
+        emit(value);
+    }
+
+    private void putInt(int position, int value) {
+        m_code[position] = (byte) (value >> 24);
+        m_code[position + 1] = (byte) (value >> 16);
+        m_code[position + 2] = (byte) (value >> 8);
+        m_code[position + 3] = (byte) value;
+    }
+
+    // Table des constantes : seulement les entrées Utf8, Class et Integer
+    private static class ConstantPool {
+        private final ByteArrayOutputStream m_bytes = new ByteArrayOutputStream();
+        private final DataOutputStream m_out = new DataOutputStream(m_bytes);
+        private final HashMap<String, Integer> m_entries = new HashMap<>();
+        private int m_count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                m_out.writeByte(1);
+                m_out.writeUTF(value);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, () -> {
+                m_out.writeByte(7);
+                m_out.writeShort(nameIndex);
+            });
+        }
+
+        int integer(int value) {
+            return entry("I" + value, () -> {
+                m_out.writeByte(3);
+                m_out.writeInt(value);
+            });
+        }
+
+        private int entry(String key, Writer writer) {
+            Integer index = m_entries.get(key);
+            if (index == null) {
+                try {
+                    writer.write();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = m_count++;
+                m_entries.put(key, index);
+            }
+            return index;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeShort(m_count);
+            out.write(m_bytes.toByteArray());
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package analyzer.visitors;
 
 import analyzer.ast.*;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.ir.SwitchLowering;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Vector;
+import java.util.Arrays;
 
 
 /**
  * Ce visiteur explore l'AST et génère du code intermédiaire.
+ * Le code est d'abord construit dans un IrProgram (voir getCode()), puis écrit
+ * par IrPrinter à la fin de la visite du programme.
+ * Comme dans IntermediateCodeGenVisitor, les noeuds d'expression sans opérateur ne viennent que de l'arbre complet.
  *
  * @author Félix Brunet
  * @author Doriane Olewicki
@@ -16,27 +21,77 @@ import java.util.Vector;
  * @author Raphaël Tremblay
  * @version 2024.02.26
  */
-public class IntermediateCodeGenFallVisitor implements ParserVisitor {
-    public static final String FALL = "fall";
+public class IntermediateCodeGenFallVisitor extends SegmentedVisitor {
+    public static final int FALL = IrProgram.FALL;
 
     private final PrintWriter m_writer;
 
-    public HashMap<String, VarType> SymbolTable = new HashMap<>();
-    public HashMap<String, Integer> EnumValueTable = new HashMap<>();
+    // Vrai si visit(ASTProgram) laisse l'impression du code à print()
+    private boolean m_deferPrint;
+
+    // Indexés par le numéro de symbole des identificateurs (ASTIdentifier.getSymbol()), alloués dans
+    // visit(ASTProgram) : le type de chaque variable ou enum (null sinon), l'ordinal de chaque valeur d'enum
+    // (-1 sinon) et l'opérande d'IrProgram de chaque variable déjà utilisée (-1 sinon)
+    public VarType[] SymbolTable = new VarType[0];
+    public int[] EnumValueTable = new int[0];
+    private int[] m_variables = new int[0];
+    private Symbols m_symbols = new Symbols();
+
+    private final IrProgram m_code = new IrProgram();
 
     private int id = 0;
     private int label = 0;
 
+    // writer peut être null : le code reste alors seulement dans getCode()
     public IntermediateCodeGenFallVisitor(PrintWriter writer) {
         m_writer = writer;
     }
 
-    private String newID() {
-        return "_t" + id++;
+    public IrProgram getCode() {
+        return m_code;
+    }
+
+    // Le code ne sera écrit que par un appel explicite à print(), pas à la fin de visit(ASTProgram) :
+    // Main.Run mesure ainsi l'impression à part de la génération
+    public void deferPrint() {
+        m_deferPrint = true;
+    }
+
+    // Écrit le code du dernier programme visité dans le writer, s'il y en a un
+    public void print() {
+        if (m_writer != null) {
+            new IrPrinter(m_writer).print(m_code);
+        }
+    }
+
+    // Les identificateurs du dernier programme visité, qui donnent le nom de chaque case de SymbolTable
+    public Symbols getSymbols() {
+        return m_symbols;
+    }
+
+    // Opérande de la variable, créée dans m_code à sa première utilisation
+    private int variable(int symbol) {
+        if (m_variables[symbol] < 0) {
+            m_variables[symbol] = m_code.variable(m_symbols.name(symbol));
+        }
+        return m_variables[symbol];
+    }
+
+    // Nombre de temporaires (newID) et d'étiquettes (newLabel) créés jusqu'ici
+    public int getTempCount() {
+        return id;
+    }
+
+    public int getLabelCount() {
+        return label;
+    }
+
+    private int newID() {
+        return IrProgram.temp(id++);
     }
 
-    private String newLabel() {
-        return "_L" + label++;
+    private int newLabel() {
+        return label++;
     }
 
     @Override
@@ -47,49 +102,142 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTProgram node, Object data) {
         // TODO
-        String endLabel = newLabel();
-        node.childrenAccept(this, data);
-        m_writer.println(endLabel);
+        m_symbols = node.getSymbols();
+        SymbolTable = new VarType[m_symbols.size()];
+        EnumValueTable = new int[m_symbols.size()];
+        Arrays.fill(EnumValueTable, -1);
+        m_variables = new int[m_symbols.size()];
+        Arrays.fill(m_variables, -1);
+        int endLabel = newLabel();
+        acceptChildren(node, data);
+        m_code.setLine(node.getEndLine());
+        m_code.label(endLabel);
+        if (!m_deferPrint) {
+            print();
+        }
         return null;
     }
 
     @Override
     public Object visit(ASTDeclaration node, Object data) {
-        String varName = ((ASTIdentifier) node.jjtGetChild(0)).getValue();
+        int varSymbol = ((ASTIdentifier) node.jjtGetChild(0)).getSymbol();
         IntermediateCodeGenFallVisitor.VarType varType;
 
         if (node.getValue() == null) {
-            varName = ((ASTIdentifier) node.jjtGetChild(1)).getValue();
+            varSymbol = ((ASTIdentifier) node.jjtGetChild(1)).getSymbol();
             varType = IntermediateCodeGenFallVisitor.VarType.EnumVar;
         } else
             varType = node.getValue().equals("num") ? IntermediateCodeGenFallVisitor.VarType.Number : IntermediateCodeGenFallVisitor.VarType.Bool;
 
-        SymbolTable.put(varName, varType);
+        SymbolTable[varSymbol] = varType;
         return null;
     }
 
-    @Override
-    public Object visit(ASTBlock node, Object data) {
-        // TODO
-        String label;
-        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+    // Bloc : une étiquette de sortie après chaque instruction sauf la dernière, qui sort vers data
+    private final Walk m_blockWalk = new Walk() {
+        @Override
+        protected int begin(Node node, Object data) {
+            return m_code.getLine();
+        }
+
+        @Override
+        protected Object enter(Node node, Object data, int state, int i) {
+            return i != node.jjtGetNumChildren() - 1 ? newLabel() : data;
+        }
+
+        @Override
+        protected void leave(Node node, Object data, int state, int i, Object childData, Object result) {
             if (i != node.jjtGetNumChildren() - 1) {
-                label = newLabel();
-                node.jjtGetChild(i).jjtAccept(this, label);
-                m_writer.println(label);
-            } else {
-                node.jjtGetChild(i).jjtAccept(this, data);
+                // L'étiquette de sortie d'une instruction vient de sa dernière ligne
+                m_code.setLine(((SimpleNode) node.jjtGetChild(i)).getEndLine());
+                m_code.label((Integer) childData);
+                m_code.setLine(state);
             }
         }
-        return null;
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            return null;
+        }
+    };
+
+    // Instruction : son code vient de sa ligne, sauf celui des instructions qu'elle contient
+    private final Walk m_statementWalk = new Walk() {
+        @Override
+        protected int begin(Node node, Object data) {
+            int line = m_code.getLine();
+            m_code.setLine(((SimpleNode) node).getLine());
+            return line;
+        }
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            m_code.setLine(state);
+            return null;
+        }
+    };
+
+    // Négations : les étiquettes de l'enfant sont échangées si le nombre de non est impair
+    private final Walk m_notWalk = new Walk() {
+        @Override
+        protected Object enter(Node node, Object data, int state, int i) {
+            if (((ASTNotExpr) node).getOpCount() % 2 == 0) {
+                return data;
+            }
+            return new BoolLabel(((BoolLabel) data).lFalse, ((BoolLabel) data).lTrue);
+        }
+    };
+
+    // Moins unaires : un temporaire par opérateur, calculé à partir de la valeur de l'enfant
+    private final Walk m_negWalk = new Walk() {
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            int addr = (Integer) last;
+            for (int i = 0; i < ((ASTUnaExpr) node).getOpCount(); i++) {
+                int tmp = newID();
+                m_code.unary(tmp, IrProgram.NEG, addr);
+                addr = tmp;
+            }
+            return addr;
+        }
+    };
+
+    @Override
+    protected Walk walk(Node node) {
+        switch (((SimpleNode) node).getId()) {
+            case ParserTreeConstants.JJTBLOCK:
+                return m_blockWalk;
+            case ParserTreeConstants.JJTSTMT:
+                return m_statementWalk;
+            case ParserTreeConstants.JJTNOTEXPR:
+                return m_notWalk;
+            case ParserTreeConstants.JJTUNAEXPR:
+                return ((ASTUnaExpr) node).getOpCount() == 0 ? THROUGH : m_negWalk;
+            case ParserTreeConstants.JJTEXPR:
+            case ParserTreeConstants.JJTGENVALUE:
+                return THROUGH;
+            case ParserTreeConstants.JJTBOOLEXPR:
+            case ParserTreeConstants.JJTCOMPEXPR:
+            case ParserTreeConstants.JJTADDEXPR:
+            case ParserTreeConstants.JJTMULEXPR:
+                return node.jjtGetNumChildren() == 1 ? THROUGH : null;
+            default:
+                return null;
+        }
+    }
+
+    // Visité par m_blockWalk, voir walk()
+    @Override
+    public Object visit(ASTBlock node, Object data) {
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTEnumStmt node, Object data) {
         // TODO
-        SymbolTable.put(((ASTIdentifier) node.jjtGetChild(0)).getValue(), IntermediateCodeGenFallVisitor.VarType.EnumType);
+        SymbolTable[((ASTIdentifier) node.jjtGetChild(0)).getSymbol()] = IntermediateCodeGenFallVisitor.VarType.EnumType;
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            EnumValueTable.put(((ASTIdentifier) node.jjtGetChild(i)).getValue(), i - 1);
+            EnumValueTable[((ASTIdentifier) node.jjtGetChild(i)).getSymbol()] = i - 1;
         }
         return null;
     }
@@ -97,35 +245,54 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTSwitchStmt node, Object data) {
         // TODO
-        String switchVar = (String) node.jjtGetChild(0).jjtAccept(this, data);
-        String[] labels = new String[node.jjtGetNumChildren() * 2 - 1];
-        String[] caseVars = new String[node.jjtGetNumChildren() - 1];
+        int switchVar = (Integer) accept(node.jjtGetChild(0), data);
+        int[] values = new int[node.jjtGetNumChildren() - 1];
+        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+            values[i - 1] = (Integer) accept(node.jjtGetChild(i), data);
+        }
+
+        int strategy = SwitchLowering.choose(m_code, values);
+        if (strategy != SwitchLowering.LINEAR) {
+            // Aiguillage d'abord, puis les blocs dans l'ordre : un case sans break tombe dans le suivant
+            int[] caseLabels = new int[values.length];
+            for (int i = 0; i < caseLabels.length; i++) {
+                caseLabels[i] = newLabel();
+            }
+            new SwitchLowering(m_code, this::newLabel).dispatch(strategy, switchVar, values, caseLabels, 0);
+            for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+                m_code.label(caseLabels[i - 1]);
+                accept(node.jjtGetChild(i).jjtGetChild(1), data);
+                if (node.jjtGetChild(i).jjtGetNumChildren() == 3) accept(node.jjtGetChild(i).jjtGetChild(2), data);
+            }
+            return null;
+        }
+
+        int[] labels = new int[node.jjtGetNumChildren() * 2 - 1];
 
         int j = 0;
-        String label = "";
+        int label = -1;
         for (int i = 0; i < labels.length - 1; i += 2) {
             labels[i] = newLabel();
-            caseVars[j] = (String) node.jjtGetChild(j + 1).jjtAccept(this, data);
-            m_writer.println("if " + switchVar + " == " + EnumValueTable.get(caseVars[j]) + " goto " + labels[i]);
-            if (i == labels.length - 3) m_writer.println("goto _L0");
+            m_code.ifGoto(switchVar, IrProgram.EQ, values[j], labels[i]);
+            if (i == labels.length - 3) m_code.jump(0);
             else {
                 labels[i + 1] = newLabel();
-                m_writer.println("goto " + labels[i + 1]);
+                m_code.jump(labels[i + 1]);
             }
-            m_writer.println(labels[i]);
-            if (!label.equals("")) {
-                m_writer.println(label);
-                label = "";
+            m_code.label(labels[i]);
+            if (label != -1) {
+                m_code.label(label);
+                label = -1;
             }
             j++;
-            node.jjtGetChild(j).jjtGetChild(1).jjtAccept(this, data);
+            accept(node.jjtGetChild(j).jjtGetChild(1), data);
             if (node.jjtGetChild(j).jjtGetNumChildren() < 3 && i != labels.length - 3) {
                 label = newLabel();
-                m_writer.println("goto " + label);
+                m_code.jump(label);
             }
 
-            if (node.jjtGetChild(j).jjtGetNumChildren() == 3) node.jjtGetChild(j).jjtGetChild(2).jjtAccept(this, data);
-            if (i != labels.length - 3) m_writer.println(labels[i + 1]);
+            if (node.jjtGetChild(j).jjtGetNumChildren() == 3) accept(node.jjtGetChild(j).jjtGetChild(2), data);
+            if (i != labels.length - 3) m_code.label(labels[i + 1]);
         }
 
         return null;
@@ -134,35 +301,36 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTCaseStmt node, Object data) {
         // TODO
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node.jjtGetChild(0), data);
     }
 
     @Override
     public Object visit(ASTBreakStmt node, Object data) {
         // TODO
-        m_writer.println("goto _L0");
+        m_code.jump(0);
         return null;
     }
 
+    // Visité par m_statementWalk
     @Override
     public Object visit(ASTStmt node, Object data) {
-        node.childrenAccept(this, data);
-        return null;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTIfStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? (String) data : "_L0";
+        int nextLabel = data != null ? (Integer) data : 0;
         if (node.jjtGetNumChildren() == 2) {
-            node.jjtGetChild(0).jjtAccept(this, new BoolLabel(FALL, nextLabel));
-            node.jjtGetChild(1).jjtAccept(this, nextLabel);
+            accept(node.jjtGetChild(0), new BoolLabel(FALL, nextLabel));
+            accept(node.jjtGetChild(1), nextLabel);
         } else {
             BoolLabel boolLabel = new BoolLabel(FALL, newLabel());
-            node.jjtGetChild(0).jjtAccept(this, boolLabel);
-            node.jjtGetChild(1).jjtAccept(this, nextLabel);
-            m_writer.println("goto " + nextLabel + "\n" + boolLabel.lFalse);
-            node.jjtGetChild(2).jjtAccept(this, nextLabel);
+            accept(node.jjtGetChild(0), boolLabel);
+            accept(node.jjtGetChild(1), nextLabel);
+            m_code.jump(nextLabel);
+            m_code.label(boolLabel.lFalse);
+            accept(node.jjtGetChild(2), nextLabel);
         }
         return null;
     }
@@ -170,146 +338,140 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTWhileStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? (String) data : "_L0";
-        String start = newLabel();
+        int nextLabel = data != null ? (Integer) data : 0;
+        int start = newLabel();
         BoolLabel boolLabel = new BoolLabel(FALL, nextLabel);
-        m_writer.println(start);
-        node.jjtGetChild(0).jjtAccept(this, boolLabel);
-        node.jjtGetChild(1).jjtAccept(this, start);
-        m_writer.println("goto " + start);
+        m_code.label(start);
+        accept(node.jjtGetChild(0), boolLabel);
+        accept(node.jjtGetChild(1), start);
+        m_code.jump(start);
         return null;
     }
 
     @Override
     public Object visit(ASTForStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? ((IntermediateCodeGenFallVisitor.BoolLabel) data).lTrue : "_L0";
-        String start = newLabel();
+        int nextLabel = data != null ? (Integer) data : 0;
+        int start = newLabel();
         IntermediateCodeGenFallVisitor.BoolLabel boolLabel = new IntermediateCodeGenFallVisitor.BoolLabel(newLabel(), nextLabel);
         IntermediateCodeGenFallVisitor.BoolLabel startBoolLabel = new IntermediateCodeGenFallVisitor.BoolLabel(newLabel(), nextLabel);
-        node.jjtGetChild(0).jjtAccept(this, boolLabel);
-        m_writer.println(start);
-        node.jjtGetChild(1).jjtAccept(this, startBoolLabel);
-        m_writer.println(startBoolLabel.lTrue);
-        node.jjtGetChild(3).jjtAccept(this, boolLabel);
-        m_writer.println(boolLabel.lTrue);
-        node.jjtGetChild(2).jjtAccept(this, boolLabel);
-        m_writer.println("goto " + start);
+        accept(node.jjtGetChild(0), start);
+        m_code.label(start);
+        accept(node.jjtGetChild(1), startBoolLabel);
+        m_code.label(startBoolLabel.lTrue);
+        accept(node.jjtGetChild(3), boolLabel.lTrue);
+        m_code.label(boolLabel.lTrue);
+        accept(node.jjtGetChild(2), start);
+        m_code.jump(start);
         return null;
     }
 
     @Override
     public Object visit(ASTAssignStmt node, Object data) {
         // TODO
-        String identifier = ((ASTIdentifier) node.jjtGetChild(0)).getValue();
-        if (SymbolTable.get(identifier) == VarType.Number) {
-            m_writer.println(identifier + " = " + node.jjtGetChild(1).jjtAccept(this, data));
-        } else if (SymbolTable.get(identifier) == VarType.Bool) {
+        ASTIdentifier identifier = (ASTIdentifier) node.jjtGetChild(0);
+        int dst = variable(identifier.getSymbol());
+        VarType type = typeOf(identifier);
+        if (type == VarType.Number) {
+            m_code.copy(dst, (Integer) accept(node.jjtGetChild(1), data));
+        } else if (type == VarType.Bool) {
             BoolLabel boolLabel = new BoolLabel(FALL, newLabel());
-            node.jjtGetChild(1).jjtAccept(this, boolLabel);
-            m_writer.println(identifier + " = 1");
-            String nextId = data != null ? data.toString() : "_L0";
-            m_writer.println("goto " + nextId + "\n" + boolLabel.lFalse + "\n" + identifier + " = 0");
+            accept(node.jjtGetChild(1), boolLabel);
+            m_code.copy(dst, m_code.constant(1));
+            m_code.jump(data != null ? (Integer) data : 0);
+            m_code.label(boolLabel.lFalse);
+            m_code.copy(dst, m_code.constant(0));
         } else {
-            m_writer.println(identifier + " = " + EnumValueTable.get((String) node.jjtGetChild(1).jjtAccept(this, data)));
+            // Les valeurs d'enum sont déjà remplacées par leur ordinal dans visit(ASTIdentifier)
+            m_code.copy(dst, (Integer) accept(node.jjtGetChild(1), data));
         }
-        return identifier;
+        return dst;
     }
 
+    // Passé par THROUGH, voir walk()
     @Override
     public Object visit(ASTExpr node, Object data) {
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
-    public Object codeExtAddMul(SimpleNode node, Object data, Vector<String> ops) {
-        // À noter qu'il n'est pas nécessaire de boucler sur tous les enfants.
-        // La grammaire n'accepte plus que 2 enfants maximum pour certaines opérations, au lieu de plusieurs
-        // dans les TPs précédents. Vous pouvez vérifier au cas par cas dans le fichier Grammaire.jjt.
+    public Object codeExtAddMul(OperatorNode node, Object data) {
+        // La grammaire construit les chaînes d'opérateurs en un seul noeud (a + b - c a 3 enfants et 2 opérateurs),
+        // sans récursion. Elles gardent l'associativité à droite de l'ancienne grammaire : a + (b - c).
 
         // TODO
-        if (node.jjtGetNumChildren() == 1) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        } else {
-            String addr = newID();
-            String value1 = (String) node.jjtGetChild(0).jjtAccept(this, data);
-            String value2 = (String) node.jjtGetChild(1).jjtAccept(this, data);
-            String res = addr + " = " + value1 + " " + ops.firstElement() + " " + value2;
-            m_writer.println(res);
-            return addr;
+        int n = node.jjtGetNumChildren();
+        if (n == 1) {
+            return accept(node.jjtGetChild(0), data);
+        }
+        // Même ordre que la récursion : le temporaire de chaque opérateur, puis son opérande gauche
+        int[] addr = new int[n - 1];
+        int[] values = new int[n];
+        for (int i = 0; i < n - 1; i++) {
+            addr[i] = newID();
+            values[i] = (Integer) accept(node.jjtGetChild(i), data);
+        }
+        values[n - 1] = (Integer) accept(node.jjtGetChild(n - 1), data);
+        // Puis les calculs, du plus à droite au plus à gauche
+        int right = values[n - 1];
+        for (int i = n - 2; i >= 0; i--) {
+            m_code.binary(addr[i], values[i], node.getOp(i), right);
+            right = addr[i];
         }
+        return addr[0];
     }
 
     @Override
     public Object visit(ASTAddExpr node, Object data) {
-        return codeExtAddMul(node, data, node.getOps());
+        return codeExtAddMul(node, data);
     }
 
     @Override
     public Object visit(ASTMulExpr node, Object data) {
-        return codeExtAddMul(node, data, node.getOps());
+        return codeExtAddMul(node, data);
     }
 
+    // Visité par m_negWalk, ou passé par THROUGH sans opérateur
     @Override
     public Object visit(ASTUnaExpr node, Object data) {
-        // TODO
-        Vector<String> operators = node.getOps();
-        if (operators.isEmpty()) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        }
-        String addr = "";
-        for (int i = 0; i < operators.size(); i++) {
-            String tmp = "";
-            String op = operators.get(i);
-            if (i == 0) {
-                String res = (String) node.jjtGetChild(0).jjtAccept(this, data);
-                tmp = newID();
-                m_writer.println(tmp + " = " + op + " " + res);
-            } else {
-                tmp = newID();
-                m_writer.println(tmp + " = " + op + " " + addr);
-            }
-            addr = tmp;
-        }
-        return addr;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTBoolExpr node, Object data) {
         // TODO
-        if (node.jjtGetNumChildren() == 1) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
+        int n = node.jjtGetNumChildren();
+        if (n == 1) {
+            return accept(node.jjtGetChild(0), data);
         }
-        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
-            if (i % 2 == 0) {
-                String op = "";
-                if (i == 0) op = (String) node.getOps().get(0);
-                else op = (String) node.getOps().get(i - 1);
-
-                if (op.equals("&&")) {
-                    if (((BoolLabel) data).lFalse.equals(FALL)) {
-                        BoolLabel boolLabel = new BoolLabel(FALL, newLabel());
-                        node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                        node.jjtGetChild(i + 1).jjtAccept(this, data);
-                        m_writer.println(boolLabel.lFalse);
-                    } else {
-                        BoolLabel boolLabel = new BoolLabel(FALL, ((BoolLabel) data).lFalse);
-                        node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                        node.jjtGetChild(i + 1).jjtAccept(this, data);
-                    }
-                } else if (op.equals("||")) {
-                    if (((BoolLabel) data).lTrue.equals(FALL)) {
-                        BoolLabel boolLabel = new BoolLabel(newLabel(), FALL);
-                        node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                        node.jjtGetChild(i + 1).jjtAccept(this, data);
-                        m_writer.println(boolLabel.lTrue);
-                    } else {
-                        BoolLabel boolLabel = new BoolLabel(((BoolLabel) data).lTrue, FALL);
-                        node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                        node.jjtGetChild(i + 1).jjtAccept(this, data);
-                    }
+        // Associatif à droite : a && (b || c). Chaque opérande sauf le dernier court-circuite vers data ;
+        // les étiquettes créées pour les cas FALL sont placées après le dernier, de la plus interne à la plus externe.
+        BoolLabel labels = (BoolLabel) data;
+        int[] pending = new int[n - 1];
+        int pendingCount = 0;
+        for (int i = 0; i < n - 1; i++) {
+            byte op = node.getOp(i);
+            if (op == Operator.AND) {
+                if (labels.lFalse == FALL) {
+                    BoolLabel boolLabel = new BoolLabel(FALL, newLabel());
+                    accept(node.jjtGetChild(i), boolLabel);
+                    pending[pendingCount++] = boolLabel.lFalse;
+                } else {
+                    accept(node.jjtGetChild(i), new BoolLabel(FALL, labels.lFalse));
+                }
+            } else if (op == Operator.OR) {
+                if (labels.lTrue == FALL) {
+                    BoolLabel boolLabel = new BoolLabel(newLabel(), FALL);
+                    accept(node.jjtGetChild(i), boolLabel);
+                    pending[pendingCount++] = boolLabel.lTrue;
+                } else {
+                    accept(node.jjtGetChild(i), new BoolLabel(labels.lTrue, FALL));
                 }
             }
         }
+        accept(node.jjtGetChild(n - 1), data);
+        while (pendingCount > 0) {
+            m_code.label(pending[--pendingCount]);
+        }
         return null;
     }
 
@@ -317,39 +479,38 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     public Object visit(ASTCompExpr node, Object data) {
         // TODO
         if (node.jjtGetNumChildren() != 1) {
-            m_writer.println("ifFalse " + node.jjtGetChild(0).jjtAccept(this, data) + " " + node.getValue() + " "
-                    + node.jjtGetChild(1).jjtAccept(this, data) + " goto " + ((BoolLabel) data).lFalse
-            );
-            //m_writer.println("goto " + ((BoolLabel) data).lFalse);
+            int a = (Integer) accept(node.jjtGetChild(0), data);
+            int b = (Integer) accept(node.jjtGetChild(1), data);
+            int op = node.getOp();
+            if (((BoolLabel) data).lFalse != FALL) {
+                m_code.ifFalseGoto(a, op, b, ((BoolLabel) data).lFalse);
+            } else {
+                m_code.ifGoto(a, op, b, ((BoolLabel) data).lTrue);
+            }
             return null;
         }
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node.jjtGetChild(0), data);
     }
 
+    // Visité par m_notWalk
     @Override
     public Object visit(ASTNotExpr node, Object data) {
-        if (node.getOps().size() % 2 == 0) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        } else {
-            BoolLabel bl = new BoolLabel(((BoolLabel) data).lFalse, ((BoolLabel) data).lTrue);
-            return node.jjtGetChild(0).jjtAccept(this, bl);
-        }
+        return accept(node, data);
     }
 
+    // Passé par THROUGH, voir walk()
     @Override
     public Object visit(ASTGenValue node, Object data) {
-        // TODO
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTBoolValue node, Object data) {
         // TODO
-        if (node.getValue() && !((BoolLabel) data).lTrue.equals(FALL)) {
-            m_writer.println("goto " + ((BoolLabel) data).lTrue);
-        } else if (!node.getValue() && !((BoolLabel) data).lFalse.equals(FALL)) {
-            System.out.println(((BoolLabel) data).lFalse);
-            m_writer.println("goto " + ((BoolLabel) data).lFalse);
+        if (node.getValue() && ((BoolLabel) data).lTrue != FALL) {
+            m_code.jump(((BoolLabel) data).lTrue);
+        } else if (!node.getValue() && ((BoolLabel) data).lFalse != FALL) {
+            m_code.jump(((BoolLabel) data).lFalse);
         }
         return null;
     }
@@ -357,24 +518,43 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTIdentifier node, Object data) {
         // TODO
-        if (SymbolTable.get(node.getValue()) == VarType.Bool) {
+        VarType type = typeOf(node);
+        int enumValue = node.getType() != Type.NONE ? node.getEnumValue() : EnumValueTable[node.getSymbol()];
+        if (type == null && enumValue >= 0) {
+            return m_code.constant(enumValue);
+        }
+        int var = variable(node.getSymbol());
+        if (type == VarType.Bool) {
             BoolLabel lData = (BoolLabel) data;
-            if (!lData.lTrue.equals(FALL) && !lData.lFalse.equals(FALL)) {
-                m_writer.println("if " + node.getValue() + " == 1 goto " + lData.lTrue);
-                m_writer.println("goto " + lData.lFalse);
-            } else if (!lData.lTrue.equals(FALL) && lData.lFalse.equals(FALL)) {
-                m_writer.println("if " + node.getValue() + " == 1 goto " + lData.lTrue);
-            } else if (lData.lTrue.equals(FALL) && !lData.lFalse.equals(FALL)) {
-                m_writer.println("ifFalse " + node.getValue() + " == 1 goto " + lData.lFalse);
+            if (lData.lTrue != FALL && lData.lFalse != FALL) {
+                m_code.ifGoto(var, IrProgram.EQ, m_code.constant(1), lData.lTrue);
+                m_code.jump(lData.lFalse);
+            } else if (lData.lTrue != FALL && lData.lFalse == FALL) {
+                m_code.ifGoto(var, IrProgram.EQ, m_code.constant(1), lData.lTrue);
+            } else if (lData.lTrue == FALL && lData.lFalse != FALL) {
+                m_code.ifFalseGoto(var, IrProgram.EQ, m_code.constant(1), lData.lFalse);
             }
         }
 
-        return node.getValue();
+        return var;
     }
 
     @Override
     public Object visit(ASTIntValue node, Object data) {
-        return Integer.toString(node.getValue());
+        return m_code.constant(node.getValue());
+    }
+
+    // Type de l'identificateur : écrit sur le noeud par SemantiqueVisitor, sinon celui de sa déclaration
+    // (noeud pas vérifié, par exemple dans un for). Une valeur d'enum n'a pas de type (null), seulement un ordinal.
+    private VarType typeOf(ASTIdentifier node) {
+        switch (node.getType()) {
+            case Type.NONE: return SymbolTable[node.getSymbol()];
+            case Type.BOOL: return VarType.Bool;
+            case Type.NUMBER: return VarType.Number;
+            case Type.ENUM_TYPE: return VarType.EnumType;
+            case Type.ENUM: return VarType.EnumVar;
+            default: return null;
+        }
     }
 
     public enum VarType {
@@ -386,10 +566,10 @@ public class IntermediateCodeGenFallVisitor implements ParserVisitor {
     }
 
     private static class BoolLabel {
-        public String lTrue;
-        public String lFalse;
+        public int lTrue;
+        public int lFalse;
 
-        public BoolLabel(String lTrue, String lFalse) {
+        public BoolLabel(int lTrue, int lFalse) {
             this.lTrue = lTrue;
             this.lFalse = lFalse;
         }
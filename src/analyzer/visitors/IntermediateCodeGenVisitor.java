@@ -1,14 +1,29 @@
 package analyzer.visitors;
 
+import analyzer.SemantiqueError;
 import analyzer.ast.*;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.ir.PeepholeOptimizer;
+import analyzer.ir.SwitchLowering;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Vector;
+import java.io.Writer;
+import java.util.Arrays;
 
 
 /**
  * Ce visiteur explore l'AST et génère du code intermédiaire.
+ * Le code est d'abord construit dans un IrProgram (voir getCode()), puis écrit
+ * par IrPrinter à la fin de la visite du programme.
+ * Avec check (voir le constructeur), il fait aussi les vérifications de SemantiqueVisitor pendant la même
+ * traversée : chaque noeud est vérifié au même moment que dans SemantiqueVisitor, après ses enfants, et avant
+ * d'émettre ce qui dépend des types. Un programme invalide lance donc la même SemantiqueError et rien n'est écrit.
+ * Le générateur peut planter sur un programme que SemantiqueVisitor accepte (une expression booléenne comparée
+ * avec ==, une variable bool comme valeur de case, du code mal typé dans un for, qui n'est pas vérifié) : la même
+ * exception sort alors d'ici, sauf si SemantiqueVisitor trouve une erreur plus loin (voir visit(ASTProgram)).
+ * Les noeuds d'expression sans opérateur (un seul enfant, ou aucun opérateur unaire) ne viennent que de l'arbre
+ * complet : avec collapseExpr, le parseur ne les construit pas.
  *
  * @author Félix Brunet
  * @author Doriane Olewicki
@@ -16,25 +31,95 @@ import java.util.Vector;
  * @author Raphaël Tremblay
  * @version 2024.02.26
  */
-public class IntermediateCodeGenVisitor implements ParserVisitor {
+public class IntermediateCodeGenVisitor extends SegmentedVisitor {
     private final PrintWriter m_writer;
 
-    public HashMap<String, VarType> SymbolTable = new HashMap<>();
-    public HashMap<String, Integer> EnumValueTable = new HashMap<>();
+    // Indexés par le numéro de symbole des identificateurs (ASTIdentifier.getSymbol()), alloués dans
+    // visit(ASTProgram) : le type de chaque variable ou enum (null sinon), l'ordinal de chaque valeur d'enum
+    // (-1 sinon) et l'opérande d'IrProgram de chaque variable déjà utilisée (-1 sinon)
+    public VarType[] SymbolTable = new VarType[0];
+    public int[] EnumValueTable = new int[0];
+    private int[] m_variables = new int[0];
+    private Symbols m_symbols = new Symbols();
+
+    private final IrProgram m_code = new IrProgram();
+    private final boolean m_optimize;
+
+    // Vrai si les vérifications sont faites : faux dans un for, que SemantiqueVisitor ne visite pas
+    private boolean m_check;
+
+    // Vrai si visit(ASTProgram) laisse l'impression du code à print()
+    private boolean m_deferPrint;
+    // En vérification : le type (code de Type) de chaque symbole selon SemantiqueVisitor, Type.NONE s'il n'est
+    // pas défini, et celui de la dernière expression visitée
+    private byte[] m_types = new byte[0];
+    private byte m_type = Type.NONE;
 
     private int id = 0;
     private int label = 0;
 
+    // writer peut être null : le code reste alors seulement dans getCode()
     public IntermediateCodeGenVisitor(PrintWriter writer) {
+        this(writer, false);
+    }
+
+    // Si optimize est vrai, le PeepholeOptimizer est appliqué avant l'impression
+    public IntermediateCodeGenVisitor(PrintWriter writer, boolean optimize) {
+        this(writer, optimize, false);
+    }
+
+    // Si check est vrai, le programme est aussi vérifié comme par SemantiqueVisitor, sans second parcours
+    public IntermediateCodeGenVisitor(PrintWriter writer, boolean optimize, boolean check) {
         m_writer = writer;
+        m_optimize = optimize;
+        m_check = check;
+    }
+
+    public IrProgram getCode() {
+        return m_code;
     }
 
-    private String newID() {
-        return "_t" + id++;
+    // Le code ne sera écrit que par un appel explicite à print(), pas à la fin de visit(ASTProgram) :
+    // Main.Run mesure ainsi l'impression à part de la génération
+    public void deferPrint() {
+        m_deferPrint = true;
+    }
+
+    // Écrit le code du dernier programme visité dans le writer, s'il y en a un
+    public void print() {
+        if (m_writer != null) {
+            new IrPrinter(m_writer).print(m_code);
+        }
+    }
+
+    // Les identificateurs du dernier programme visité, qui donnent le nom de chaque case de SymbolTable
+    public Symbols getSymbols() {
+        return m_symbols;
+    }
+
+    // Opérande de la variable, créée dans m_code à sa première utilisation
+    private int variable(int symbol) {
+        if (m_variables[symbol] < 0) {
+            m_variables[symbol] = m_code.variable(m_symbols.name(symbol));
+        }
+        return m_variables[symbol];
     }
 
-    private String newLabel() {
-        return "_L" + label++;
+    // Nombre de temporaires (newID) et d'étiquettes (newLabel) créés jusqu'ici
+    public int getTempCount() {
+        return id;
+    }
+
+    public int getLabelCount() {
+        return label;
+    }
+
+    private int newID() {
+        return IrProgram.temp(id++);
+    }
+
+    private int newLabel() {
+        return label++;
     }
 
     @Override
@@ -45,49 +130,181 @@ public class IntermediateCodeGenVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTProgram node, Object data) {
         // TODO
-        String endLabel = newLabel();
-        node.childrenAccept(this, data);
-        m_writer.println(endLabel);
+        m_symbols = node.getSymbols();
+        SymbolTable = new VarType[m_symbols.size()];
+        EnumValueTable = new int[m_symbols.size()];
+        Arrays.fill(EnumValueTable, -1);
+        m_variables = new int[m_symbols.size()];
+        Arrays.fill(m_variables, -1);
+        if (m_check) {
+            m_types = new byte[m_symbols.size()];
+        }
+        int endLabel = newLabel();
+        try {
+            acceptChildren(node, data);
+        } catch (RuntimeException e) {
+            if (!m_check) {
+                throw e;
+            }
+            // Avec deux passes, SemantiqueVisitor vérifie tout le programme avant que le générateur ne plante :
+            // une erreur après l'endroit du plantage passe donc avant lui. Rien avant ne l'a rejeté.
+            node.jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+            throw e;
+        }
+        m_code.setLine(node.getEndLine());
+        m_code.label(endLabel);
+        if (m_optimize) {
+            new PeepholeOptimizer().optimize(m_code);
+        }
+        if (!m_deferPrint) {
+            print();
+        }
         return null;
     }
 
     @Override
     public Object visit(ASTDeclaration node, Object data) {
-        String varName = ((ASTIdentifier) node.jjtGetChild(0)).getValue();
+        int varSymbol = ((ASTIdentifier) node.jjtGetChild(0)).getSymbol();
         VarType varType;
 
         if (node.getValue() == null) {
-            varName = ((ASTIdentifier) node.jjtGetChild(1)).getValue();
+            if (m_check && m_types[varSymbol] != Type.ENUM_TYPE) {
+                throw new SemantiqueError("Invalid use of undefined Identifier " + ((ASTIdentifier) node.jjtGetChild(0)).getValue());
+            }
+            varSymbol = ((ASTIdentifier) node.jjtGetChild(1)).getSymbol();
             varType = VarType.EnumVar;
         } else
             varType = node.getValue().equals("num") ? VarType.Number : VarType.Bool;
 
-        SymbolTable.put(varName, varType);
+        SymbolTable[varSymbol] = varType;
+        if (m_check) {
+            m_types[varSymbol] = varType == VarType.EnumVar ? Type.ENUM : varType == VarType.Bool ? Type.BOOL : Type.NUMBER;
+        }
         return null;
     }
 
-    @Override
-    public Object visit(ASTBlock node, Object data) {
-        // TODO
-        String label;
-        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+    // Bloc : une étiquette de sortie après chaque instruction sauf la dernière, qui sort vers data
+    private final Walk m_blockWalk = new Walk() {
+        @Override
+        protected int begin(Node node, Object data) {
+            return m_code.getLine();
+        }
+
+        @Override
+        protected Object enter(Node node, Object data, int state, int i) {
+            return i != node.jjtGetNumChildren() - 1 ? newLabel() : data;
+        }
+
+        @Override
+        protected void leave(Node node, Object data, int state, int i, Object childData, Object result) {
             if (i != node.jjtGetNumChildren() - 1) {
-                label = newLabel();
-                node.jjtGetChild(i).jjtAccept(this, label);
-                m_writer.println(label);
-            } else {
-                node.jjtGetChild(i).jjtAccept(this, data);
+                // L'étiquette de sortie d'une instruction vient de sa dernière ligne
+                m_code.setLine(((SimpleNode) node.jjtGetChild(i)).getEndLine());
+                m_code.label((Integer) childData);
+                m_code.setLine(state);
             }
         }
-        return null;
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            return null;
+        }
+    };
+
+    // Instruction : son code vient de sa ligne, sauf celui des instructions qu'elle contient
+    private final Walk m_statementWalk = new Walk() {
+        @Override
+        protected int begin(Node node, Object data) {
+            int line = m_code.getLine();
+            m_code.setLine(((SimpleNode) node).getLine());
+            return line;
+        }
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            m_code.setLine(state);
+            return null;
+        }
+    };
+
+    // Négations : les étiquettes de l'enfant sont échangées si le nombre de non est impair
+    private final Walk m_notWalk = new Walk() {
+        @Override
+        protected Object enter(Node node, Object data, int state, int i) {
+            if (((ASTNotExpr) node).getOpCount() % 2 == 0) {
+                return data;
+            }
+            return isDead(data) ? new BoolLabel(0, 0) : new BoolLabel(((BoolLabel) data).lFalse, ((BoolLabel) data).lTrue);
+        }
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            if (((ASTNotExpr) node).getOpCount() > 0) {
+                checkType(Type.BOOL);
+            }
+            return last;
+        }
+    };
+
+    // Moins unaires : un temporaire par opérateur, calculé à partir de la valeur de l'enfant
+    private final Walk m_negWalk = new Walk() {
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            checkType(Type.NUMBER);
+            int addr = (Integer) last;
+            for (int i = 0; i < ((ASTUnaExpr) node).getOpCount(); i++) {
+                int tmp = newID();
+                m_code.unary(tmp, IrProgram.NEG, addr);
+                addr = tmp;
+            }
+            return addr;
+        }
+    };
+
+    @Override
+    protected Walk walk(Node node) {
+        switch (((SimpleNode) node).getId()) {
+            case ParserTreeConstants.JJTBLOCK:
+                return m_blockWalk;
+            case ParserTreeConstants.JJTSTMT:
+                return m_statementWalk;
+            case ParserTreeConstants.JJTNOTEXPR:
+                return m_notWalk;
+            case ParserTreeConstants.JJTUNAEXPR:
+                return ((ASTUnaExpr) node).getOpCount() == 0 ? THROUGH : m_negWalk;
+            case ParserTreeConstants.JJTEXPR:
+            case ParserTreeConstants.JJTGENVALUE:
+                return THROUGH;
+            case ParserTreeConstants.JJTBOOLEXPR:
+            case ParserTreeConstants.JJTCOMPEXPR:
+            case ParserTreeConstants.JJTADDEXPR:
+            case ParserTreeConstants.JJTMULEXPR:
+                return node.jjtGetNumChildren() == 1 ? THROUGH : null;
+            default:
+                return null;
+        }
+    }
+
+    // Visité par m_blockWalk, voir walk()
+    @Override
+    public Object visit(ASTBlock node, Object data) {
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTEnumStmt node, Object data) {
         // TODO
-        SymbolTable.put(((ASTIdentifier) node.jjtGetChild(0)).getValue(), VarType.EnumType);
+        int type = ((ASTIdentifier) node.jjtGetChild(0)).getSymbol();
+        SymbolTable[type] = VarType.EnumType;
+        if (m_check) {
+            m_types[type] = Type.ENUM_TYPE;
+        }
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            EnumValueTable.put(((ASTIdentifier) node.jjtGetChild(i)).getValue(), i - 1);
+            int value = ((ASTIdentifier) node.jjtGetChild(i)).getSymbol();
+            EnumValueTable[value] = i - 1;
+            if (m_check) {
+                m_types[value] = Type.ENUM;
+            }
         }
         return null;
     }
@@ -96,65 +313,112 @@ public class IntermediateCodeGenVisitor implements ParserVisitor {
     public Object visit(ASTSwitchStmt node, Object data) {
         // TODO
 
-        String switchVar = (String) node.jjtGetChild(0).jjtAccept(this, data);
-        String nextLabel;
-        String gotoLabel = "";
+        int switchVar = (Integer) accept(node.jjtGetChild(0), data);
+        int[] values = new int[node.jjtGetNumChildren() - 1];
+        // En vérification, une valeur de case non définie n'est signalée qu'au moment de visiter son bloc,
+        // comme dans SemantiqueVisitor qui visite chaque case en entier avant le suivant. Les autres valeurs ne
+        // sont pas vérifiées par SemantiqueVisitor : elles sont générées comme sans vérification.
+        String[] errors = m_check ? new String[values.length] : null;
+        boolean check = m_check;
+        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+            Node value = node.jjtGetChild(i).jjtGetChild(0);
+            if (errors != null && value instanceof ASTIdentifier && m_types[((ASTIdentifier) value).getSymbol()] == Type.NONE) {
+                errors[i - 1] = "Invalid use of undefined Identifier " + ((ASTIdentifier) value).getValue();
+                values[i - 1] = variable(((ASTIdentifier) value).getSymbol());
+            } else {
+                m_check = false;
+                try {
+                    values[i - 1] = (Integer) accept(node.jjtGetChild(i), data);
+                } finally {
+                    m_check = check;
+                }
+            }
+        }
+
+        int strategy = SwitchLowering.choose(m_code, values);
+        if (strategy != SwitchLowering.LINEAR) {
+            // Aiguillage d'abord, puis les blocs dans l'ordre : un case sans break tombe dans le suivant
+            int[] labels = new int[values.length];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = newLabel();
+            }
+            new SwitchLowering(m_code, this::newLabel).dispatch(strategy, switchVar, values, labels, 0);
+            for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+                m_code.label(labels[i - 1]);
+                checkCase(errors, i - 1);
+                accept(node.jjtGetChild(i).jjtGetChild(1), data);
+                if (node.jjtGetChild(i).jjtGetNumChildren() == 3) accept(node.jjtGetChild(i).jjtGetChild(2), data);
+            }
+            return null;
+        }
+
+        int nextLabel;
+        int gotoLabel = -1;
 
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
             if (i != node.jjtGetNumChildren() - 1) nextLabel = newLabel();
-            else nextLabel = "_L0";
-            m_writer.println("if " + switchVar + " != " + EnumValueTable.get((String) node.jjtGetChild(i).jjtAccept(this, data)) + " goto " + nextLabel);
-            if (!gotoLabel.equals("")) {
-                m_writer.println(gotoLabel);
-                gotoLabel = "";
+            else nextLabel = 0;
+            m_code.ifGoto(switchVar, IrProgram.NE, values[i - 1], nextLabel);
+            if (gotoLabel != -1) {
+                m_code.label(gotoLabel);
+                gotoLabel = -1;
             }
-            node.jjtGetChild(i).jjtGetChild(1).jjtAccept(this, data);
-            if (node.jjtGetChild(i).jjtGetNumChildren() == 3) node.jjtGetChild(i).jjtGetChild(2).jjtAccept(this, data);
+            checkCase(errors, i - 1);
+            accept(node.jjtGetChild(i).jjtGetChild(1), data);
+            if (node.jjtGetChild(i).jjtGetNumChildren() == 3) accept(node.jjtGetChild(i).jjtGetChild(2), data);
             else if (i != node.jjtGetNumChildren() - 1) {
                 gotoLabel = newLabel();
-                m_writer.println("goto " + gotoLabel);
+                m_code.jump(gotoLabel);
             }
-            if (i != node.jjtGetNumChildren() - 1) m_writer.println(nextLabel);
+            if (i != node.jjtGetNumChildren() - 1) m_code.label(nextLabel);
         }
 
         return null;
     }
 
+    private static void checkCase(String[] errors, int i) {
+        if (errors != null && errors[i] != null) {
+            throw new SemantiqueError(errors[i]);
+        }
+    }
+
     @Override
     public Object visit(ASTCaseStmt node, Object data) {
         // TODO
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node.jjtGetChild(0), data);
     }
 
     @Override
     public Object visit(ASTBreakStmt node, Object data) {
         // TODO
-        m_writer.println("goto _L0");
+        m_code.jump(0);
         return null;
     }
 
+    // Visité par m_statementWalk
     @Override
     public Object visit(ASTStmt node, Object data) {
-        node.childrenAccept(this, data);
-        return null;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTIfStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? (String) data : "_L0";
+        int nextLabel = data != null ? (Integer) data : 0;
         BoolLabel boolLabel;
         if (node.jjtGetNumChildren() == 2) {
             boolLabel = new BoolLabel(newLabel(), nextLabel);
         } else {
             boolLabel = new BoolLabel(newLabel(), newLabel());
         }
-        node.jjtGetChild(0).jjtAccept(this, boolLabel);
-        m_writer.println(boolLabel.lTrue);
-        node.jjtGetChild(1).jjtAccept(this, nextLabel);
+        accept(node.jjtGetChild(0), boolLabel);
+        checkCondition();
+        m_code.label(boolLabel.lTrue);
+        accept(node.jjtGetChild(1), nextLabel);
         if (node.jjtGetNumChildren() != 2) {
-            m_writer.println("goto " + nextLabel + "\n" + boolLabel.lFalse);
-            node.jjtGetChild(2).jjtAccept(this, nextLabel);
+            m_code.jump(nextLabel);
+            m_code.label(boolLabel.lFalse);
+            accept(node.jjtGetChild(2), nextLabel);
         }
         return null;
     }
@@ -162,134 +426,166 @@ public class IntermediateCodeGenVisitor implements ParserVisitor {
     @Override
     public Object visit(ASTWhileStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? (String) data : "_L0";
-        String start = newLabel();
+        int nextLabel = data != null ? (Integer) data : 0;
+        int start = newLabel();
         BoolLabel boolLabel = new BoolLabel(newLabel(), nextLabel);
-        m_writer.println(start);
-        node.jjtGetChild(0).jjtAccept(this, boolLabel);
-        m_writer.println(boolLabel.lTrue);
-        node.jjtGetChild(1).jjtAccept(this, start);
-        m_writer.println("goto " + start);
+        m_code.label(start);
+        accept(node.jjtGetChild(0), boolLabel);
+        checkCondition();
+        m_code.label(boolLabel.lTrue);
+        accept(node.jjtGetChild(1), start);
+        m_code.jump(start);
         return null;
     }
 
     @Override
     public Object visit(ASTForStmt node, Object data) {
         // TODO
-        String nextLabel = data != null ? ((BoolLabel) data).lTrue : "_L0";
-        String start = newLabel();
+        int nextLabel = data != null ? (Integer) data : 0;
+        int start = newLabel();
         BoolLabel boolLabel = new BoolLabel(newLabel(), nextLabel);
         BoolLabel startBoolLabel = new BoolLabel(newLabel(), nextLabel);
-        node.jjtGetChild(0).jjtAccept(this, boolLabel);
-        m_writer.println(start);
-        node.jjtGetChild(1).jjtAccept(this, startBoolLabel);
-        m_writer.println(startBoolLabel.lTrue);
-        node.jjtGetChild(3).jjtAccept(this, boolLabel);
-        m_writer.println(boolLabel.lTrue);
-        node.jjtGetChild(2).jjtAccept(this, boolLabel);
-        m_writer.println("goto " + start);
+        // SemantiqueVisitor ne vérifie pas le contenu d'un for
+        boolean check = m_check;
+        m_check = false;
+        try {
+            accept(node.jjtGetChild(0), start);
+            m_code.label(start);
+            accept(node.jjtGetChild(1), startBoolLabel);
+            m_code.label(startBoolLabel.lTrue);
+            accept(node.jjtGetChild(3), boolLabel.lTrue);
+            m_code.label(boolLabel.lTrue);
+            accept(node.jjtGetChild(2), start);
+            m_code.jump(start);
+        } finally {
+            m_check = check;
+        }
         return null;
     }
 
     @Override
     public Object visit(ASTAssignStmt node, Object data) {
         // TODO
-        String identifier = ((ASTIdentifier) node.jjtGetChild(0)).getValue();
-        if (SymbolTable.get(identifier) == VarType.Number) {
-            m_writer.println(identifier + " = " + node.jjtGetChild(1).jjtAccept(this, data));
-        } else if (SymbolTable.get(identifier) == VarType.Bool) {
+        ASTIdentifier identifier = (ASTIdentifier) node.jjtGetChild(0);
+        byte target = m_check ? checkDefined(identifier) : Type.NONE;
+        int dst = variable(identifier.getSymbol());
+        VarType type = typeOf(identifier);
+        if (type == VarType.Number) {
+            Object value = accept(node.jjtGetChild(1), data);
+            checkAssignment(target);
+            m_code.copy(dst, (Integer) value);
+        } else if (type == VarType.Bool) {
             BoolLabel boolLabel = new BoolLabel(newLabel(), newLabel());
-            node.jjtGetChild(1).jjtAccept(this, boolLabel);
-            m_writer.println(boolLabel.lTrue + "\n" + identifier + " = 1");
-            String nextId = data != null ? data.toString() : "_L0";
-            m_writer.println("goto " + nextId + "\n" + boolLabel.lFalse + "\n" + identifier + " = 0");
+            accept(node.jjtGetChild(1), boolLabel);
+            checkAssignment(target);
+            m_code.label(boolLabel.lTrue);
+            m_code.copy(dst, m_code.constant(1));
+            m_code.jump(data != null ? (Integer) data : 0);
+            m_code.label(boolLabel.lFalse);
+            m_code.copy(dst, m_code.constant(0));
         } else {
-            m_writer.println(identifier + " = " + EnumValueTable.get(node.jjtGetChild(1).jjtAccept(this, data)));
+            // Les valeurs d'enum sont déjà remplacées par leur ordinal dans visit(ASTIdentifier)
+            Object value = accept(node.jjtGetChild(1), data);
+            checkAssignment(target);
+            m_code.copy(dst, (Integer) value);
+        }
+        return dst;
+    }
+
+    private void checkAssignment(byte target) {
+        if (m_check && m_type != target) {
+            throw new SemantiqueError("Invalid type in assignment");
         }
-        return identifier;
     }
 
+    // Passé par THROUGH, voir walk()
     @Override
     public Object visit(ASTExpr node, Object data) {
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
-    public Object codeExtAddMul(SimpleNode node, Object data, Vector<String> ops) {
-        // À noter qu'il n'est pas nécessaire de boucler sur tous les enfants.
-        // La grammaire n'accepte plus que 2 enfants maximum pour certaines opérations, au lieu de plusieurs
-        // dans les TPs précédents. Vous pouvez vérifier au cas par cas dans le fichier Grammaire.jjt.
+    public Object codeExtAddMul(OperatorNode node, Object data) {
+        // La grammaire construit les chaînes d'opérateurs en un seul noeud (a + b - c a 3 enfants et 2 opérateurs),
+        // sans récursion. Elles gardent l'associativité à droite de l'ancienne grammaire : a + (b - c).
 
         // TODO
-        if (node.jjtGetNumChildren() == 1) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        } else {
-            String addr = newID();
-            String value1 = (String) node.jjtGetChild(0).jjtAccept(this, data);
-            String value2 = (String) node.jjtGetChild(1).jjtAccept(this, data);
-            String res = addr + " = " + value1 + " " + ops.firstElement() + " " + value2;
-            m_writer.println(res);
-            return addr;
+        int n = node.jjtGetNumChildren();
+        if (n == 1) {
+            return accept(node.jjtGetChild(0), data);
+        }
+        // Même ordre que la récursion : le temporaire de chaque opérateur, puis son opérande gauche
+        int[] addr = new int[n - 1];
+        Object[] values = new Object[n];
+        byte[] types = m_check ? new byte[n] : null;
+        for (int i = 0; i < n; i++) {
+            if (i < n - 1) {
+                addr[i] = newID();
+            }
+            values[i] = accept(node.jjtGetChild(i), data);
+            if (types != null) {
+                types[i] = m_type;
+            }
+        }
+        if (types != null) {
+            checkChain(types, Type.NUMBER);
+        }
+        // Puis les calculs, du plus à droite au plus à gauche
+        int right = (Integer) values[n - 1];
+        for (int i = n - 2; i >= 0; i--) {
+            m_code.binary(addr[i], (Integer) values[i], node.getOp(i), right);
+            right = addr[i];
         }
+        return addr[0];
     }
 
     @Override
     public Object visit(ASTAddExpr node, Object data) {
-        return codeExtAddMul(node, data, node.getOps());
+        return codeExtAddMul(node, data);
     }
 
     @Override
     public Object visit(ASTMulExpr node, Object data) {
-        return codeExtAddMul(node, data, node.getOps());
+        return codeExtAddMul(node, data);
     }
 
+    // Visité par m_negWalk, ou passé par THROUGH sans opérateur
     @Override
     public Object visit(ASTUnaExpr node, Object data) {
-        // TODO
-        Vector<String> operators = node.getOps();
-        if (operators.isEmpty()) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        }
-        String addr = "";
-        for (int i = 0; i < operators.size(); i++) {
-            String tmp = "";
-            String op = operators.get(i);
-            if (i == 0) {
-                String res = (String) node.jjtGetChild(0).jjtAccept(this, data);
-                tmp = newID();
-                m_writer.println(tmp + " = " + op + " " + res);
-            } else {
-                tmp = newID();
-                m_writer.println(tmp + " = " + op + " " + addr);
-            }
-            addr = tmp;
-        }
-        return addr;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTBoolExpr node, Object data) {
         // TODO
-        if (node.jjtGetNumChildren() == 1) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        }
-        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
-            if (i % 2 == 0) {
-                String op = "";
-                if (i == 0) op = (String) node.getOps().get(0);
-                else op = (String) node.getOps().get(i - 1);
-
-                if (op.equals("&&")) {
-                    BoolLabel boolLabel = new BoolLabel(newLabel(), ((BoolLabel) data).lFalse);
-                    node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                    m_writer.println(boolLabel.lTrue);
-                } else if (op.equals("||")) {
-                    BoolLabel boolLabel = new BoolLabel(((BoolLabel) data).lTrue, newLabel());
-                    node.jjtGetChild(i).jjtAccept(this, boolLabel);
-                    m_writer.println(boolLabel.lFalse);
-                }
-            } else {
-                node.jjtGetChild(i).jjtAccept(this, data);
+        int n = node.jjtGetNumChildren();
+        if (n == 1) {
+            return accept(node.jjtGetChild(0), data);
+        }
+        // Associatif à droite : a && (b || c). Chaque opérande sauf le dernier court-circuite vers data.
+        if (isDead(data)) {
+            data = new BoolLabel(0, 0);
+        }
+        BoolLabel labels = (BoolLabel) data;
+        byte[] types = m_check ? new byte[n] : null;
+        for (int i = 0; i < n - 1; i++) {
+            byte op = node.getOp(i);
+            if (op == Operator.AND) {
+                BoolLabel boolLabel = new BoolLabel(newLabel(), labels.lFalse);
+                accept(node.jjtGetChild(i), boolLabel);
+                m_code.label(boolLabel.lTrue);
+            } else if (op == Operator.OR) {
+                BoolLabel boolLabel = new BoolLabel(labels.lTrue, newLabel());
+                accept(node.jjtGetChild(i), boolLabel);
+                m_code.label(boolLabel.lFalse);
             }
+            if (types != null) {
+                types[i] = m_type;
+            }
+        }
+        accept(node.jjtGetChild(n - 1), data);
+        if (types != null) {
+            types[n - 1] = m_type;
+            checkChain(types, Type.BOOL);
         }
         return null;
     }
@@ -298,53 +594,132 @@ public class IntermediateCodeGenVisitor implements ParserVisitor {
     public Object visit(ASTCompExpr node, Object data) {
         // TODO
         if (node.jjtGetNumChildren() != 1) {
-            m_writer.println("if " + node.jjtGetChild(0).jjtAccept(this, data) + " " + node.getValue() + " "
-                    + node.jjtGetChild(1).jjtAccept(this, data) + " goto " + ((BoolLabel) data).lTrue
-            );
-            m_writer.println("goto " + ((BoolLabel) data).lFalse);
+            Object a = accept(node.jjtGetChild(0), data);
+            byte first = m_type;
+            Object b = accept(node.jjtGetChild(1), data);
+            if (m_check) {
+                // == et != comparent deux valeurs du même type, les autres deux nombres
+                byte expected = node.getOp() == Operator.EQ || node.getOp() == Operator.NE ? first : Type.NUMBER;
+                checkPair(first, m_type, expected);
+                m_type = Type.BOOL;
+                if (isDead(data)) {
+                    return null;
+                }
+            }
+            m_code.ifGoto((Integer) a, node.getOp(), (Integer) b, ((BoolLabel) data).lTrue);
+            m_code.jump(((BoolLabel) data).lFalse);
             return null;
         }
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node.jjtGetChild(0), data);
     }
 
+    // Visité par m_notWalk
     @Override
     public Object visit(ASTNotExpr node, Object data) {
-        if (node.getOps().size() % 2 == 0) {
-            return node.jjtGetChild(0).jjtAccept(this, data);
-        } else {
-            BoolLabel bl = new BoolLabel(((BoolLabel) data).lFalse, ((BoolLabel) data).lTrue);
-            return node.jjtGetChild(0).jjtAccept(this, bl);
-        }
+        return accept(node, data);
     }
 
+    // Passé par THROUGH, voir walk()
     @Override
     public Object visit(ASTGenValue node, Object data) {
-        // TODO
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTBoolValue node, Object data) {
         // TODO
-        if (node.getValue()) m_writer.println("goto " + ((BoolLabel) data).lTrue);
-        else m_writer.println("goto " + ((BoolLabel) data).lFalse);
+        if (m_check) {
+            m_type = Type.BOOL;
+            if (isDead(data)) {
+                return null;
+            }
+        }
+        if (node.getValue()) m_code.jump(((BoolLabel) data).lTrue);
+        else m_code.jump(((BoolLabel) data).lFalse);
         return null;
     }
 
     @Override
     public Object visit(ASTIdentifier node, Object data) {
         // TODO
-        if (SymbolTable.get(node.getValue()) == VarType.Bool) {
-            m_writer.println("if " + node.getValue() + " == 1 goto " + ((BoolLabel) data).lTrue);
-            m_writer.println("goto " + ((BoolLabel) data).lFalse);
+        if (m_check) {
+            m_type = checkDefined(node);
+        }
+        VarType type = typeOf(node);
+        int enumValue = node.getType() != Type.NONE ? node.getEnumValue() : EnumValueTable[node.getSymbol()];
+        if (type == null && enumValue >= 0) {
+            return m_code.constant(enumValue);
+        }
+        int var = variable(node.getSymbol());
+        if (type == VarType.Bool && !isDead(data)) {
+            m_code.ifGoto(var, IrProgram.EQ, m_code.constant(1), ((BoolLabel) data).lTrue);
+            m_code.jump(((BoolLabel) data).lFalse);
         }
 
-        return node.getValue();
+        return var;
     }
 
     @Override
     public Object visit(ASTIntValue node, Object data) {
-        return Integer.toString(node.getValue());
+        m_type = Type.NUMBER;
+        return m_code.constant(node.getValue());
+    }
+
+    // Vérifications de SemantiqueVisitor, avec ses messages. Les types sont ceux de m_types et m_type.
+
+    // Type du symbole, qui doit être défini
+    private byte checkDefined(ASTIdentifier node) {
+        byte type = m_types[node.getSymbol()];
+        if (type == Type.NONE) {
+            throw new SemantiqueError("Invalid use of undefined Identifier " + node.getValue());
+        }
+        return type;
+    }
+
+    private void checkCondition() {
+        if (m_check && m_type != Type.BOOL) {
+            throw new SemantiqueError("Invalid type in condition");
+        }
+    }
+
+    // L'opérande d'un opérateur unaire, la dernière expression visitée
+    private void checkType(byte expected) {
+        if (m_check && m_type != expected) {
+            throw new SemantiqueError("Invalid type in expression got " + Type.name(m_type) + " was expecting " + Type.name(expected));
+        }
+    }
+
+    private static void checkPair(byte a, byte b, byte expected) {
+        if (a != expected || b != expected) {
+            throw new SemantiqueError("Invalid type in expression got " + Type.name(a) + " and " + Type.name(b) + " was expecting " + Type.name(expected));
+        }
+    }
+
+    // Les opérandes d'une chaîne, vérifiés par paire de la plus à droite à la plus à gauche
+    private void checkChain(byte[] types, byte expected) {
+        for (int i = types.length - 2; i >= 0; i--) {
+            checkPair(types[i], types[i + 1], expected);
+        }
+        m_type = expected;
+    }
+
+    // En vérification, une expression booléenne hors d'un contexte booléen (data n'est pas un BoolLabel) :
+    // la vérification d'un parent rejettera le programme, son code n'est donc pas émis
+    private boolean isDead(Object data) {
+        return m_check && !(data instanceof BoolLabel);
+    }
+
+    // Type de l'identificateur : écrit sur le noeud par SemantiqueVisitor, sinon celui de sa déclaration
+    // (noeud pas vérifié, par exemple dans un for). Une valeur d'enum n'a pas de type (null), seulement un ordinal.
+    private VarType typeOf(ASTIdentifier node) {
+        switch (node.getType()) {
+            case Type.NONE: return SymbolTable[node.getSymbol()];
+            case Type.BOOL: return VarType.Bool;
+            case Type.NUMBER: return VarType.Number;
+            case Type.ENUM_TYPE: return VarType.EnumType;
+            case Type.ENUM: return VarType.EnumVar;
+            default: return null;
+        }
     }
 
     public enum VarType {
@@ -356,10 +731,10 @@ public class IntermediateCodeGenVisitor implements ParserVisitor {
     }
 
     private static class BoolLabel {
-        public String lTrue;
-        public String lFalse;
+        public int lTrue;
+        public int lFalse;
 
-        public BoolLabel(String lTrue, String lFalse) {
+        public BoolLabel(int lTrue, int lFalse) {
             this.lTrue = lTrue;
             this.lFalse = lFalse;
         }
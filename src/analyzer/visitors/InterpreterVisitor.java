@@ -0,0 +1,332 @@
+package analyzer.visitors;
+
+import analyzer.ast.*;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Ce visiteur exécute directement l'AST, sans générer de code : chaque visit(...) d'expression
+ * retourne sa valeur (les bool valent 0 ou 1, les valeurs d'enum leur ordinal) et les variables
+ * sont gardées dans un tableau indexé par leur numéro de symbole (voir Symbols). Il sert de référence pour la Vm (analyzer.vm) et de point
+ * de comparaison dans VmBenchmark.
+ * <p>
+ * Comme dans le code généré, les opérateurs binaires s'appliquent dans l'ordre de l'arbre
+ * (a - b - c vaut a - (b - c)) et && et || sont court-circuités. Un break sort du switch.
+ * Il accepte aussi l'arbre compact (Parser.ParseTree(input, true)).
+ * À la fin du programme, la valeur de chaque variable déclarée est écrite, triée par nom.
+ */
+public class InterpreterVisitor extends SegmentedVisitor {
+    private final PrintWriter m_writer;
+
+    // Indexés par numéro de symbole : la valeur de chaque variable, si elle est déclarée ou affectée, et
+    // l'ordinal de chaque valeur d'enum (-1 sinon)
+    private Symbols m_symbols = new Symbols();
+    private int[] m_variables = new int[0];
+    private boolean[] m_declared = new boolean[0];
+    private int[] m_enumValues = new int[0];
+
+    // writer peut être null : l'état reste alors seulement accessible par getVariable()
+    public InterpreterVisitor(PrintWriter writer) {
+        m_writer = writer;
+    }
+
+    public int getVariable(String name) {
+        int symbol = m_symbols.find(name);
+        return symbol < 0 ? 0 : m_variables[symbol];
+    }
+
+    // Noms des variables déclarées, triés
+    public List<String> getDeclared() {
+        List<String> declared = new ArrayList<>();
+        for (int symbol = 0; symbol < m_declared.length; symbol++) {
+            if (m_declared[symbol]) {
+                declared.add(m_symbols.name(symbol));
+            }
+        }
+        Collections.sort(declared);
+        return declared;
+    }
+
+    @Override
+    public Object visit(SimpleNode node, Object data) {
+        return data;
+    }
+
+    @Override
+    public Object visit(ASTProgram node, Object data) {
+        m_symbols = node.getSymbols();
+        m_variables = new int[m_symbols.size()];
+        m_declared = new boolean[m_symbols.size()];
+        m_enumValues = new int[m_symbols.size()];
+        Arrays.fill(m_enumValues, -1);
+        acceptChildren(node, data);
+        if (m_writer != null) {
+            for (String name : getDeclared()) {
+                m_writer.println(name + " = " + getVariable(name));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTDeclaration node, Object data) {
+        // num a; bool a; ou, pour une variable d'enum, Type a;
+        int name = node.getValue() == null ? 1 : 0;
+        int symbol = ((ASTIdentifier) node.jjtGetChild(name)).getSymbol();
+        m_variables[symbol] = 0;
+        m_declared[symbol] = true;
+        return null;
+    }
+
+    // Blocs et instructions : leurs enfants dans l'ordre
+    private final Walk m_statementWalk = new Walk() {
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            return null;
+        }
+    };
+
+    // Moins et non unaires : la valeur de l'enfant, changée de signe ou inversée une fois par opérateur
+    private final Walk m_unaryWalk = new Walk() {
+        @Override
+        protected Object enter(Node node, Object data, int state, int i) {
+            return null;
+        }
+
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            int value = (Integer) last;
+            if (((OperatorNode) node).getOpCount() % 2 == 0) {
+                return value;
+            }
+            return node instanceof ASTUnaExpr ? -value : 1 - value;
+        }
+    };
+
+    @Override
+    protected Walk walk(Node node) {
+        switch (((SimpleNode) node).getId()) {
+            case ParserTreeConstants.JJTBLOCK:
+            case ParserTreeConstants.JJTSTMT:
+                return m_statementWalk;
+            case ParserTreeConstants.JJTUNAEXPR:
+            case ParserTreeConstants.JJTNOTEXPR:
+                return m_unaryWalk;
+            case ParserTreeConstants.JJTEXPR:
+            case ParserTreeConstants.JJTGENVALUE:
+                return THROUGH;
+            case ParserTreeConstants.JJTBOOLEXPR:
+            case ParserTreeConstants.JJTCOMPEXPR:
+            case ParserTreeConstants.JJTADDEXPR:
+            case ParserTreeConstants.JJTMULEXPR:
+                return node.jjtGetNumChildren() == 1 ? THROUGH : null;
+            default:
+                return null;
+        }
+    }
+
+    // Visité par m_statementWalk, voir walk()
+    @Override
+    public Object visit(ASTBlock node, Object data) {
+        return accept(node, data);
+    }
+
+    // Visité par m_statementWalk
+    @Override
+    public Object visit(ASTStmt node, Object data) {
+        return accept(node, data);
+    }
+
+    @Override
+    public Object visit(ASTIfStmt node, Object data) {
+        if (condition(node.jjtGetChild(0))) {
+            accept(node.jjtGetChild(1), data);
+        } else if (node.jjtGetNumChildren() == 3) {
+            accept(node.jjtGetChild(2), data);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTWhileStmt node, Object data) {
+        while (condition(node.jjtGetChild(0))) {
+            accept(node.jjtGetChild(1), data);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTForStmt node, Object data) {
+        for (accept(node.jjtGetChild(0), data); condition(node.jjtGetChild(1)); accept(node.jjtGetChild(2), data)) {
+            accept(node.jjtGetChild(3), data);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTAssignStmt node, Object data) {
+        int symbol = ((ASTIdentifier) node.jjtGetChild(0)).getSymbol();
+        m_variables[symbol] = value(node.jjtGetChild(1));
+        m_declared[symbol] = true;
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTEnumStmt node, Object data) {
+        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+            m_enumValues[((ASTIdentifier) node.jjtGetChild(i)).getSymbol()] = i - 1;
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTSwitchStmt node, Object data) {
+        int value = value(node.jjtGetChild(0));
+        boolean matched = false;
+        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+            Node caseStmt = node.jjtGetChild(i);
+            matched = matched || value(caseStmt) == value;
+            if (matched) {
+                accept(caseStmt.jjtGetChild(1), data);
+                if (caseStmt.jjtGetNumChildren() == 3) {
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object visit(ASTBreakStmt node, Object data) {
+        return null;
+    }
+
+    // Valeur du case
+    @Override
+    public Object visit(ASTCaseStmt node, Object data) {
+        return accept(node.jjtGetChild(0), data);
+    }
+
+    // Passé par THROUGH, voir walk()
+    @Override
+    public Object visit(ASTExpr node, Object data) {
+        return accept(node, data);
+    }
+
+    @Override
+    public Object visit(ASTBoolExpr node, Object data) {
+        if (node.jjtGetNumChildren() == 1) {
+            return accept(node.jjtGetChild(0), data);
+        }
+        // Associatif à droite : a && (b || c) s'arrête au premier opérande qui décide du résultat
+        int last = node.jjtGetNumChildren() - 1;
+        for (int i = 0; i < last; i++) {
+            boolean value = condition(node.jjtGetChild(i));
+            if (node.getOp(i) == Operator.AND ? !value : value) {
+                return value ? 1 : 0;
+            }
+        }
+        return condition(node.jjtGetChild(last)) ? 1 : 0;
+    }
+
+    @Override
+    public Object visit(ASTCompExpr node, Object data) {
+        if (node.jjtGetNumChildren() == 1) {
+            return accept(node.jjtGetChild(0), data);
+        }
+        int a = value(node.jjtGetChild(0));
+        int b = value(node.jjtGetChild(1));
+        switch (node.getOp()) {
+            case Operator.LT: return a < b ? 1 : 0;
+            case Operator.LE: return a <= b ? 1 : 0;
+            case Operator.GT: return a > b ? 1 : 0;
+            case Operator.GE: return a >= b ? 1 : 0;
+            case Operator.EQ: return a == b ? 1 : 0;
+            default: return a != b ? 1 : 0;
+        }
+    }
+
+    private Object arithmetic(OperatorNode node) {
+        if (node.jjtGetNumChildren() == 1) {
+            return accept(node.jjtGetChild(0), null);
+        }
+        // Les opérandes de gauche à droite, puis les calculs de droite à gauche : a - (b - c)
+        int last = node.jjtGetNumChildren() - 1;
+        int[] values = new int[last + 1];
+        for (int i = 0; i <= last; i++) {
+            values[i] = value(node.jjtGetChild(i));
+        }
+        int b = values[last];
+        for (int i = last - 1; i >= 0; i--) {
+            int a = values[i];
+            switch (node.getOp(i)) {
+                case Operator.ADD: b = a + b; break;
+                case Operator.SUB: b = a - b; break;
+                case Operator.MUL: b = a * b; break;
+                case Operator.DIV: b = a / b; break;
+                default: b = a % b; break;
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public Object visit(ASTAddExpr node, Object data) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Object visit(ASTMulExpr node, Object data) {
+        return arithmetic(node);
+    }
+
+    // Visité par m_unaryWalk
+    @Override
+    public Object visit(ASTUnaExpr node, Object data) {
+        return accept(node, data);
+    }
+
+    // Visité par m_unaryWalk
+    @Override
+    public Object visit(ASTNotExpr node, Object data) {
+        return accept(node, data);
+    }
+
+    // Passé par THROUGH, voir walk()
+    @Override
+    public Object visit(ASTGenValue node, Object data) {
+        return accept(node, data);
+    }
+
+    @Override
+    public Object visit(ASTBoolValue node, Object data) {
+        return node.getValue() ? 1 : 0;
+    }
+
+    @Override
+    public Object visit(ASTIdentifier node, Object data) {
+        int symbol = node.getSymbol();
+        if (m_enumValues[symbol] >= 0 && !m_declared[symbol]) {
+            return m_enumValues[symbol];
+        }
+        return m_variables[symbol];
+    }
+
+    @Override
+    public Object visit(ASTIntValue node, Object data) {
+        return node.getValue();
+    }
+
+    private int value(Node node) {
+        return (Integer) accept(node, null);
+    }
+
+    private boolean condition(Node node) {
+        return value(node) != 0;
+    }
+}
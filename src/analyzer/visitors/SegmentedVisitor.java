@@ -0,0 +1,179 @@
+package analyzer.visitors;
+
+import analyzer.ast.Node;
+import analyzer.ast.ParserVisitor;
+import analyzer.ast.SegmentedStack;
+
+import java.util.Arrays;
+
+/**
+ * Base des visiteurs qui descendent dans l'AST avec accept() et acceptChildren() plutôt qu'avec
+ * jjtAccept() et childrenAccept().
+ * Les noeuds pour lesquels walk() rend une marche à suivre (un Walk : les blocs, les instructions, les niveaux
+ * d'expression sans opérateur, les parenthèses) sont visités par une boucle sur une pile explicite, sans
+ * récursion Java : des blocs ou des parenthèses imbriqués sur des milliers de niveaux ne prennent qu'un
+ * appel de la pile Java. Les autres sont visités par visit(), en comptant la profondeur ; quand le segment
+ * de pile courant est plein, la visite continue sur un nouveau segment (voir SegmentedStack). Ce recours ne
+ * sert plus qu'aux noeuds récursifs sans marche à suivre, comme des if imbriqués.
+ * Une visite peut donc changer de fil : l'état du visiteur ne doit pas dépendre du fil courant.
+ */
+public abstract class SegmentedVisitor implements ParserVisitor {
+
+    // Appels Java par niveau visité récursivement : accept(), descend(), jjtAccept() et visit()
+    private static final int FRAMES = 4;
+
+    // Appels dans le segment courant
+    private int m_frames = 0;
+
+    // Pile explicite des noeuds en cours de marche, partagée par les boucles imbriquées de accept() : chacune
+    // travaille au-dessus de la hauteur qu'elle a trouvée. Les cadres sont réutilisés d'une visite à l'autre.
+    private Frame[] m_stack = new Frame[0];
+    private int m_top = 0;
+
+    /**
+     * Visite d'un noeud sans récursion : ses enfants sont visités dans l'ordre par la boucle de accept(), entre
+     * les appels de enter() et leave(), puis end() donne le résultat du noeud. Par défaut, chaque enfant reçoit
+     * le data du noeud et le noeud rend le résultat de son dernier enfant.
+     */
+    protected static class Walk {
+        // Appelé avant le premier enfant ; la valeur rendue est passée comme state aux autres méthodes
+        protected int begin(Node node, Object data) {
+            return 0;
+        }
+
+        // Le data de l'enfant i, juste avant sa visite
+        protected Object enter(Node node, Object data, int state, int i) {
+            return data;
+        }
+
+        // Après la visite de l'enfant i, qui a reçu childData et rendu result
+        protected void leave(Node node, Object data, int state, int i, Object childData, Object result) {
+        }
+
+        // Le résultat du noeud ; last est celui de son dernier enfant, null s'il n'en a pas
+        protected Object end(Node node, Object data, int state, Object last) {
+            return last;
+        }
+    }
+
+    // Marche d'un noeud qui n'a qu'un enfant, lui passe son data et rend son résultat : accept() va
+    // directement à l'enfant, sans cadre sur la pile
+    protected static final Walk THROUGH = new Walk();
+
+    // Un noeud en cours de marche
+    private static final class Frame {
+        Node node;
+        Walk walk;
+        Object data;
+        int state;
+        Object childData;
+        int next;
+    }
+
+    // Marche à suivre de la visite de node, null pour le visiter avec visit()
+    protected Walk walk(Node node) {
+        return null;
+    }
+
+    protected Object accept(Node node, Object data) {
+        Walk walk = walk(node);
+        while (walk == THROUGH) {
+            node = node.jjtGetChild(0);
+            walk = walk(node);
+        }
+        if (walk == null) {
+            return descend(node, data);
+        }
+        int base = m_top;
+        push(node, walk, data);
+        try {
+            Object result = null;
+            boolean returning = false;
+            while (true) {
+                Frame frame = m_stack[m_top - 1];
+                if (returning) {
+                    frame.walk.leave(frame.node, frame.data, frame.state, frame.next - 1, frame.childData, result);
+                }
+                if (frame.next < frame.node.jjtGetNumChildren()) {
+                    Node child = frame.node.jjtGetChild(frame.next);
+                    Object childData = frame.walk.enter(frame.node, frame.data, frame.state, frame.next);
+                    frame.childData = childData;
+                    frame.next++;
+                    Walk childWalk = walk(child);
+                    while (childWalk == THROUGH) {
+                        child = child.jjtGetChild(0);
+                        childWalk = walk(child);
+                    }
+                    if (childWalk != null) {
+                        push(child, childWalk, childData);
+                        returning = false;
+                    } else {
+                        result = descend(child, childData);
+                        returning = true;
+                    }
+                    continue;
+                }
+                result = frame.walk.end(frame.node, frame.data, frame.state, returning ? result : null);
+                pop();
+                if (m_top == base) {
+                    return result;
+                }
+                returning = true;
+            }
+        } finally {
+            while (m_top > base) {
+                pop();
+            }
+        }
+    }
+
+    protected void acceptChildren(Node node, Object data) {
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            accept(node.jjtGetChild(i), data);
+        }
+    }
+
+    // Visite récursive de node, sur un nouveau segment si le segment courant est plein
+    private Object descend(Node node, Object data) {
+        if (!SegmentedStack.isFull(m_frames, FRAMES)) {
+            m_frames += FRAMES;
+            try {
+                return node.jjtAccept(this, data);
+            } finally {
+                m_frames -= FRAMES;
+            }
+        }
+        int frames = m_frames;
+        m_frames = FRAMES;
+        try {
+            return SegmentedStack.call(() -> node.jjtAccept(this, data));
+        } finally {
+            m_frames = frames;
+        }
+    }
+
+    private void push(Node node, Walk walk, Object data) {
+        int state = walk.begin(node, data);
+        if (m_top == m_stack.length) {
+            m_stack = Arrays.copyOf(m_stack, Math.max(16, m_top * 2));
+            for (int i = m_top; i < m_stack.length; i++) {
+                m_stack[i] = new Frame();
+            }
+        }
+        Frame frame = m_stack[m_top++];
+        frame.node = node;
+        frame.walk = walk;
+        frame.data = data;
+        frame.state = state;
+        frame.childData = null;
+        frame.next = 0;
+    }
+
+    private void pop() {
+        Frame frame = m_stack[--m_top];
+        frame.node = null;
+        frame.walk = null;
+        frame.data = null;
+        frame.childData = null;
+    }
+}
@@ -1,10 +1,13 @@
 package analyzer.visitors;
 
+import analyzer.Diagnostic;
 import analyzer.SemantiqueError;
 import analyzer.ast.*;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -13,16 +16,52 @@ import java.util.HashMap;
  * Author: Félix Brunet
  * <p>
  * Description: Ce visiteur explorer l'AST est renvoie des exceptions lorqu'une erreur sémantique est détecté.
+ * Il accepte aussi l'arbre compact (Parser.ParseTree(input, true)), où les noeuds d'expression sans
+ * opérateur sont absents : chaque visit(...) d'expression ne vérifie les types que s'il a un opérateur.
+ * Il écrit ses résultats sur l'arbre : le type de chaque expression et de chaque identificateur utilisé
+ * (SimpleNode.getType()) et l'ordinal des valeurs d'enum (ASTIdentifier.getEnumValue()). Les générateurs
+ * de code les lisent alors au lieu de résoudre chaque identificateur à nouveau
+ * (voir Main.Run(SemantiqueVisitor, ParserVisitor, ...)). Les noeuds qu'il ne visite pas, comme ceux d'un for,
+ * restent sans type (Type.NONE).
+ * Avec collect (voir le constructeur), il ne s'arrête pas à la première erreur : chaque erreur est gardée
+ * dans getDiagnostics() avec sa position et l'analyse continue avec un type de reprise (VarType.Error),
+ * compatible avec tous les autres pour ne pas signaler une seconde fois la même erreur.
  */
 
-public class SemantiqueVisitor implements ParserVisitor {
+public class SemantiqueVisitor extends SegmentedVisitor {
 
     private final PrintWriter m_writer;
 
-    public HashMap<String, VarType> SymbolTable = new HashMap<>();
+    // null si la première erreur lance une SemantiqueError
+    private final List<Diagnostic> m_diagnostics;
+
+    // Type de chaque symbole (ASTIdentifier.getSymbol()), null s'il n'est pas défini. Alloué dans visit(ASTProgram).
+    public VarType[] SymbolTable = new VarType[0];
+    // Ordinal de chaque valeur d'enum, -1 pour les autres symboles
+    private int[] m_enumValues = new int[0];
 
     public SemantiqueVisitor(PrintWriter writer) {
+        this(writer, false);
+    }
+
+    // Si collect est vrai, les erreurs sont gardées dans getDiagnostics() au lieu d'être lancées, et le
+    // writer reçoit une erreur par ligne ("all good" s'il n'y en a pas)
+    public SemantiqueVisitor(PrintWriter writer, boolean collect) {
         m_writer = writer;
+        m_diagnostics = collect ? new ArrayList<>() : null;
+    }
+
+    // Les erreurs trouvées, dans l'ordre de la visite : la première est celle que lancerait le visiteur sans collect
+    public List<Diagnostic> getDiagnostics() {
+        return m_diagnostics;
+    }
+
+    // Lance l'erreur, ou la garde avec la position du noeud si les erreurs sont collectées
+    private void error(SimpleNode node, String message) {
+        if (m_diagnostics == null) {
+            throw new SemantiqueError(message);
+        }
+        m_diagnostics.add(new Diagnostic(node.getLine(), node.getColumn(), message));
     }
 
     /*
@@ -52,8 +91,17 @@ public class SemantiqueVisitor implements ParserVisitor {
 
     @Override
     public Object visit(ASTProgram node, Object data) {
-        node.childrenAccept(this, data);
-        m_writer.print("all good");
+        SymbolTable = new VarType[node.getSymbols().size()];
+        m_enumValues = new int[SymbolTable.length];
+        Arrays.fill(m_enumValues, -1);
+        acceptChildren(node, data);
+        if (m_diagnostics == null || m_diagnostics.isEmpty()) {
+            m_writer.print("all good");
+        } else {
+            for (Diagnostic diagnostic : m_diagnostics) {
+                m_writer.println(diagnostic);
+            }
+        }
         return data;
     }
 
@@ -61,40 +109,101 @@ public class SemantiqueVisitor implements ParserVisitor {
     public Object visit(ASTDeclaration node, Object data) {
         ASTIdentifier id = (ASTIdentifier) node.jjtGetChild(0);
         VarType t;
-        if (node.getValue().equals("bool")) {
+        if (node.getValue() == null) {
+            // Déclaration d'une variable d'un type enum : <type> <variable>
+            if (SymbolTable[id.getSymbol()] != VarType.EnumType) {
+                error(id, "Invalid use of undefined Identifier " + id.getValue());
+            }
+            int symbol = ((ASTIdentifier) node.jjtGetChild(1)).getSymbol();
+            SymbolTable[symbol] = VarType.Enum;
+            m_enumValues[symbol] = -1;
+            return null;
+        } else if (node.getValue().equals("bool")) {
             t = VarType.Bool;
         } else {
             t = VarType.Number;
         }
-        SymbolTable.put(id.getValue(), t);
+        SymbolTable[id.getSymbol()] = t;
+        m_enumValues[id.getSymbol()] = -1;
         return null;
     }
 
+    // Blocs et instructions : leurs enfants dans l'ordre, puis data
+    private final Walk m_statementWalk = new Walk() {
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            return data;
+        }
+    };
+
+    // Niveaux d'expression à un seul enfant : le type de l'enfant, vérifié par les opérateurs unaires
+    private final Walk m_expressionWalk = new Walk() {
+        @Override
+        protected Object end(Node node, Object data, int state, Object last) {
+            DataStruct d = (DataStruct) last;
+            if (node instanceof ASTNotExpr && ((ASTNotExpr) node).getOpCount() > 0) {
+                d.checkType((SimpleNode) node, VarType.Bool);
+            } else if (node instanceof ASTUnaExpr && ((ASTUnaExpr) node).getOpCount() > 0) {
+                d.checkType((SimpleNode) node, VarType.Number);
+            }
+            return annotate((SimpleNode) node, d);
+        }
+    };
+
+    @Override
+    protected Walk walk(Node node) {
+        switch (((SimpleNode) node).getId()) {
+            case ParserTreeConstants.JJTBLOCK:
+            case ParserTreeConstants.JJTSTMT:
+                return m_statementWalk;
+            case ParserTreeConstants.JJTEXPR:
+            case ParserTreeConstants.JJTGENVALUE:
+            case ParserTreeConstants.JJTNOTEXPR:
+            case ParserTreeConstants.JJTUNAEXPR:
+                return m_expressionWalk;
+            case ParserTreeConstants.JJTBOOLEXPR:
+            case ParserTreeConstants.JJTCOMPEXPR:
+            case ParserTreeConstants.JJTADDEXPR:
+            case ParserTreeConstants.JJTMULEXPR:
+                return node.jjtGetNumChildren() == 1 ? m_expressionWalk : null;
+            default:
+                return null;
+        }
+    }
+
+    // Visité par m_statementWalk, voir walk()
     @Override
     public Object visit(ASTBlock node, Object data) {
-        node.childrenAccept(this, data);
-        return data;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTEnumStmt node, Object data) {
+        SymbolTable[((ASTIdentifier) node.jjtGetChild(0)).getSymbol()] = VarType.EnumType;
+        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
+            int symbol = ((ASTIdentifier) node.jjtGetChild(i)).getSymbol();
+            SymbolTable[symbol] = VarType.Enum;
+            m_enumValues[symbol] = i - 1;
+        }
         return null;
     }
 
     @Override
     public Object visit(ASTSwitchStmt node, Object data) {
+        acceptChildren(node, data);
         return null;
     }
 
     @Override
     public Object visit(ASTCaseStmt node, Object data) {
+        acceptChildren(node, data);
         return null;
     }
 
+    // Visité par m_statementWalk
     @Override
     public Object visit(ASTStmt node, Object data) {
-        node.childrenAccept(this, data);
-        return data;
+        return accept(node, data);
     }
 
     @Override
@@ -104,12 +213,12 @@ public class SemantiqueVisitor implements ParserVisitor {
 
     @Override
     public Object visit(ASTIfStmt node, Object data) {
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
+        DataStruct firstD = (DataStruct) accept(node.jjtGetChild(0), data);
         if (!estCompatible(firstD.type, VarType.Bool)) {
-            throw new SemantiqueError("Invalid type in condition");
+            error((SimpleNode) node.jjtGetChild(0), "Invalid type in condition");
         }
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            node.jjtGetChild(i).jjtAccept(this, data);
+            accept(node.jjtGetChild(i), data);
         }
 
         return data;
@@ -117,12 +226,12 @@ public class SemantiqueVisitor implements ParserVisitor {
 
     @Override
     public Object visit(ASTWhileStmt node, Object data) {
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
+        DataStruct firstD = (DataStruct) accept(node.jjtGetChild(0), data);
         if (!estCompatible(firstD.type, VarType.Bool)) {
-            throw new SemantiqueError("Invalid type in condition");
+            error((SimpleNode) node.jjtGetChild(0), "Invalid type in condition");
         }
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            node.jjtGetChild(i).jjtAccept(this, data);
+            accept(node.jjtGetChild(i), data);
         }
 
         return data;
@@ -135,35 +244,36 @@ public class SemantiqueVisitor implements ParserVisitor {
 
     @Override
     public Object visit(ASTAssignStmt node, Object data) {
-        DataStruct assignId = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
-        DataStruct assignExpr = (DataStruct) node.jjtGetChild(1).jjtAccept(this, data);
+        DataStruct assignId = (DataStruct) accept(node.jjtGetChild(0), data);
+        DataStruct assignExpr = (DataStruct) accept(node.jjtGetChild(1), data);
         if (!estCompatible(assignId.type, assignExpr.type)) {
-            throw new SemantiqueError("Invalid type in assignment");
+            error(node, "Invalid type in assignment");
         }
         return data;
     }
 
+    // Visité par m_expressionWalk
     @Override
     public Object visit(ASTExpr node, Object data) {
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTBoolExpr node, Object data) {
 
-        return visitExprAst(node, data, VarType.Bool);
+        return annotate(node, visitExprAst(node, data, VarType.Bool));
     }
 
     @Override
     public Object visit(ASTCompExpr node, Object data) {
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
-        String op = node.getValue();
+        DataStruct firstD = (DataStruct) accept(node.jjtGetChild(0), data);
+        byte op = node.getOp();
 
         VarType expectedType = VarType.Number;
 
         VarType newType = firstD.type;
-        if (op != null) {
-            if (op.equals("==") || op.equals("!=")) {
+        if (op != Operator.NONE) {
+            if (op == Operator.EQ || op == Operator.NE) {
                 expectedType = firstD.type;
 
             }
@@ -171,70 +281,61 @@ public class SemantiqueVisitor implements ParserVisitor {
         }
 
         for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            DataStruct d = (DataStruct) node.jjtGetChild(i).jjtAccept(this, data);
-            firstD.checkType(d, expectedType);
+            DataStruct d = (DataStruct) accept(node.jjtGetChild(i), data);
+            firstD.checkType(node, d, expectedType);
         }
         firstD.type = newType;
-        return firstD;
+        return annotate(node, firstD);
     }
 
     @Override
     public Object visit(ASTAddExpr node, Object data) {
-        return visitExprAst(node, data, VarType.Number);
+        return annotate(node, visitExprAst(node, data, VarType.Number));
     }
 
     @Override
     public Object visit(ASTMulExpr node, Object data) {
-        return visitExprAst(node, data, VarType.Number);
+        return annotate(node, visitExprAst(node, data, VarType.Number));
     }
 
 
-    //Unary operator
+    //Unary operator, visités par m_expressionWalk
     @Override
     public Object visit(ASTNotExpr node, Object data) {
-        Boolean haveOp = node.getOps().size() > 0;
-
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
-
-        if (haveOp) {
-            firstD.checkType(VarType.Bool);
-        }
-        return firstD;
+        return accept(node, data);
     }
 
     @Override
     public Object visit(ASTUnaExpr node, Object data) {
-        Boolean haveOp = node.getOps().size() > 0;
-
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
-
-        if (haveOp) {
-            firstD.checkType(VarType.Number);
-        }
-        return firstD;
+        return accept(node, data);
     }
 
     private DataStruct visitExprAst(SimpleNode node, Object data, VarType expectedType) {
-        DataStruct firstD = (DataStruct) node.jjtGetChild(0).jjtAccept(this, data);
-
-        for (int i = 1; i < node.jjtGetNumChildren(); i++) {
-            DataStruct d = (DataStruct) node.jjtGetChild(i).jjtAccept(this, data);
-            firstD.checkType(d, expectedType);
+        // Une chaîne a op b op c est associative à droite : tous les opérandes sont visités,
+        // puis les types sont vérifiés de la paire la plus à droite à la plus à gauche.
+        int n = node.jjtGetNumChildren();
+        DataStruct[] d = new DataStruct[n];
+        for (int i = 0; i < n; i++) {
+            d[i] = (DataStruct) accept(node.jjtGetChild(i), data);
         }
-        return firstD;
+        for (int i = n - 2; i >= 0; i--) {
+            d[i].checkType((SimpleNode) node.jjtGetChild(i), d[i + 1], expectedType);
+        }
+        return d[0];
     }
 
 
+    // Visité par m_expressionWalk
     @Override
     public Object visit(ASTGenValue node, Object data) {
-        return node.jjtGetChild(0).jjtAccept(this, data);
+        return accept(node, data);
     }
 
 
     @Override
     public Object visit(ASTBoolValue node, Object data) {
         DataStruct d = new DataStruct(VarType.Bool);
-        return d;
+        return annotate(node, d);
     }
 
 
@@ -243,10 +344,15 @@ public class SemantiqueVisitor implements ParserVisitor {
         DataStruct d = new DataStruct();
 
         if (data == null || !data.equals("declaration")) {
-            if (SymbolTable.get(node.getValue()) != null) {
-                d.type = SymbolTable.get(node.getValue());
-            } else {
-                throw new SemantiqueError("Invalid use of undefined Identifier " + node.getValue());
+            d.type = SymbolTable[node.getSymbol()];
+            if (d.type == null) {
+                error(node, "Invalid use of undefined Identifier " + node.getValue());
+                d.type = VarType.Error;
+            }
+            annotate(node, d);
+            if (d.type == VarType.Enum && m_enumValues[node.getSymbol()] >= 0) {
+                node.setType(Type.ENUM_VALUE);
+                node.setEnumValue(m_enumValues[node.getSymbol()]);
             }
         }
         return d;
@@ -254,17 +360,40 @@ public class SemantiqueVisitor implements ParserVisitor {
 
     @Override
     public Object visit(ASTIntValue node, Object data) {
-        return new DataStruct(VarType.Number);
+        return annotate(node, new DataStruct(VarType.Number));
+    }
+
+    // Écrit le type de d sur le noeud et retourne d
+    private DataStruct annotate(SimpleNode node, DataStruct d) {
+        node.setType(typeCode(d.type));
+        return d;
+    }
+
+    private static byte typeCode(VarType type) {
+        if (type == null) {
+            return Type.NONE;
+        }
+        switch (type) {
+            case Bool: return Type.BOOL;
+            case Number: return Type.NUMBER;
+            case EnumType: return Type.ENUM_TYPE;
+            case Error: return Type.NONE;
+            default: return Type.ENUM;
+        }
     }
 
     private boolean estCompatible(VarType a, VarType b) {
-        return a == b;
+        return a == b || a == VarType.Error || b == VarType.Error;
     }
 
     //des outils pour vous simplifier la vie et vous enligner dans le travail
     public enum VarType {
         Bool,
-        Number
+        Number,
+        EnumType,
+        Enum,
+        // Type de reprise d'une expression erronée, quand les erreurs sont collectées
+        Error
     }
 
     private class DataStruct {
@@ -277,15 +406,19 @@ public class SemantiqueVisitor implements ParserVisitor {
             type = p_type;
         }
 
-        public void checkType(VarType expectedType) {
+        // Après une erreur collectée, les types vérifiés prennent le type attendu
+        public void checkType(SimpleNode node, VarType expectedType) {
             if (!estCompatible(type, expectedType)) {
-                throw new SemantiqueError("Invalid type in expression got " + type.toString() + " was expecting " + expectedType);
+                error(node, "Invalid type in expression got " + type.toString() + " was expecting " + expectedType);
+                type = expectedType;
             }
         }
 
-        public void checkType(DataStruct d, VarType expectedType) {
+        public void checkType(SimpleNode node, DataStruct d, VarType expectedType) {
             if (!estCompatible(type, expectedType) || !estCompatible(d.type, expectedType)) {
-                throw new SemantiqueError("Invalid type in expression got " + type.toString() + " and " + d.type.toString() + " was expecting " + expectedType);
+                error(node, "Invalid type in expression got " + type.toString() + " and " + d.type.toString() + " was expecting " + expectedType);
+                type = expectedType;
+                d.type = expectedType;
             }
         }
     }
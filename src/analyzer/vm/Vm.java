@@ -0,0 +1,179 @@
+package analyzer.vm;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static analyzer.vm.VmProgram.*;
+
+/**
+ * Machine à registres qui exécute un VmProgram. L'état est un seul int[] de registres
+ * (variables, temporaires puis constantes) ; les valeurs bool valent 0 ou 1 et les valeurs
+ * d'enum leur ordinal, comme dans le code généré.
+ * <p>
+ * Une division ou un modulo par zéro lève l'ArithmeticException de Java.
+ */
+public class Vm {
+
+    private final VmProgram m_program;
+    private final int[] m_registers;
+    private int m_pc = 0;
+    private long m_executed = 0;
+
+    public Vm(VmProgram program) {
+        m_program = program;
+        m_registers = program.initialRegisters.clone();
+    }
+
+    // Usage: Vm <code.txt> [variable=value]...
+    // Exécute un fichier au format d'IrPrinter et affiche la valeur finale de chaque variable
+    public static void main(String[] args) throws IOException {
+        if (args.length <= 0) {
+            System.err.println("Usage: Vm <code.txt> [variable=value]...");
+            return;
+        }
+        VmProgram program;
+        try (Reader reader = new FileReader(args[0])) {
+            program = VmProgram.parse(reader);
+        }
+        Vm vm = new Vm(program);
+        for (int i = 1; i < args.length; i++) {
+            String[] input = args[i].split("=", 2);
+            vm.setVariable(input[0], Integer.parseInt(input[1]));
+        }
+
+        boolean halted = vm.run(Long.MAX_VALUE);
+        PrintWriter pw = new PrintWriter(System.out);
+        String[] variables = program.getVariables();
+        Arrays.sort(variables);
+        vm.printState(pw, variables);
+        pw.println(String.format("# %d instructions%s", vm.getExecuted(), halted ? "" : ", not halted"));
+        pw.flush();
+    }
+
+    /**
+     * Exécute au plus maxSteps instructions à partir de la position courante.
+     * Retourne vrai si le programme s'est terminé ; sinon, un autre appel reprend l'exécution.
+     */
+    public boolean run(long maxSteps) {
+        final int[] code = m_program.code;
+        final int[] tables = m_program.tables;
+        final int[] r = m_registers;
+        int pc = m_pc;
+        long steps = 0;
+
+        while (steps < maxSteps) {
+            steps++;
+            switch (code[pc]) {
+                case HALT:
+                    steps--;
+                    m_pc = pc;
+                    m_executed += steps;
+                    return true;
+                case COPY:
+                    r[code[pc + 1]] = r[code[pc + 2]];
+                    pc += STRIDE;
+                    break;
+                case ADD:
+                    r[code[pc + 1]] = r[code[pc + 2]] + r[code[pc + 3]];
+                    pc += STRIDE;
+                    break;
+                case SUB:
+                    r[code[pc + 1]] = r[code[pc + 2]] - r[code[pc + 3]];
+                    pc += STRIDE;
+                    break;
+                case MUL:
+                    r[code[pc + 1]] = r[code[pc + 2]] * r[code[pc + 3]];
+                    pc += STRIDE;
+                    break;
+                case DIV:
+                    r[code[pc + 1]] = r[code[pc + 2]] / r[code[pc + 3]];
+                    pc += STRIDE;
+                    break;
+                case MOD:
+                    r[code[pc + 1]] = r[code[pc + 2]] % r[code[pc + 3]];
+                    pc += STRIDE;
+                    break;
+                case NEG:
+                    r[code[pc + 1]] = -r[code[pc + 2]];
+                    pc += STRIDE;
+                    break;
+                case GOTO:
+                    pc = code[pc + 1];
+                    break;
+                case IF_LT:
+                    pc = r[code[pc + 2]] < r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case IF_LE:
+                    pc = r[code[pc + 2]] <= r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case IF_GT:
+                    pc = r[code[pc + 2]] > r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case IF_GE:
+                    pc = r[code[pc + 2]] >= r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case IF_EQ:
+                    pc = r[code[pc + 2]] == r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case IF_NE:
+                    pc = r[code[pc + 2]] != r[code[pc + 3]] ? code[pc + 1] : pc + STRIDE;
+                    break;
+                case TABLE: {
+                    int table = code[pc + 3];
+                    // Comparaison non signée : un indice négatif devient très grand
+                    int k = r[code[pc + 2]] - tables[table];
+                    pc = Integer.compareUnsigned(k, tables[table + 1]) < 0 ? tables[table + 2 + k] : code[pc + 1];
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        m_pc = pc;
+        m_executed += steps;
+        return false;
+    }
+
+    // Nombre d'instructions exécutées depuis la création
+    public long getExecuted() {
+        return m_executed;
+    }
+
+    public boolean isHalted() {
+        return m_program.code[m_pc] == HALT;
+    }
+
+    // Une variable absente du programme vaut toujours 0
+    public int getVariable(String name) {
+        int index = indexOf(name);
+        return index < 0 ? 0 : m_registers[index];
+    }
+
+    public void setVariable(String name, int value) {
+        int index = indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown variable " + name);
+        }
+        m_registers[index] = value;
+    }
+
+    // Écrit « nom = valeur » pour chaque variable, dans l'ordre donné
+    public void printState(PrintWriter writer, String[] variables) {
+        for (String variable : variables) {
+            writer.println(variable + " = " + getVariable(variable));
+        }
+    }
+
+    private int indexOf(String name) {
+        String[] variables = m_program.variables;
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,222 @@
+package analyzer.vm;
+
+import analyzer.ir.IrParser;
+import analyzer.ir.IrProgram;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Programme chargé pour la Vm : les instructions d'un IrProgram réencodées en STRIDE entiers
+ * [opcode, x, y, z] dont tous les opérandes sont des indices de registres, et dont les
+ * étiquettes sont remplacées par la position de l'instruction visée dans code.
+ * <p>
+ * Le banc de registres contient, dans l'ordre, les variables, les temporaires _t puis les
+ * constantes, qui sont chargées une fois pour toutes au démarrage : l'interpréteur n'a
+ * ainsi jamais à distinguer la sorte d'un opérande.
+ */
+public class VmProgram {
+    // Opcodes : x = destination ou position, y et z = registres sources
+    public static final int HALT = 0;
+    public static final int COPY = 1;       // r[x] = r[y]
+    public static final int ADD = 2;        // r[x] = r[y] + r[z]
+    public static final int SUB = 3;
+    public static final int MUL = 4;
+    public static final int DIV = 5;
+    public static final int MOD = 6;
+    public static final int NEG = 7;        // r[x] = -r[y]
+    public static final int GOTO = 8;       // pc = x
+    public static final int IF_LT = 9;      // if r[y] < r[z] pc = x
+    public static final int IF_LE = 10;
+    public static final int IF_GT = 11;
+    public static final int IF_GE = 12;
+    public static final int IF_EQ = 13;
+    public static final int IF_NE = 14;
+    public static final int TABLE = 15;     // k = r[y] - tables[z] ; pc = k dans la table ? tables[z + 2 + k] : x
+
+    public static final int STRIDE = 4;
+
+    final int[] code;
+    final int[] tables;
+    final int[] initialRegisters;
+    final String[] variables;
+
+    private VmProgram(int[] code, int[] tables, int[] initialRegisters, String[] variables) {
+        this.code = code;
+        this.tables = tables;
+        this.initialRegisters = initialRegisters;
+        this.variables = variables;
+    }
+
+    public static VmProgram parse(Reader reader) throws IOException {
+        return load(IrParser.parse(reader));
+    }
+
+    public static VmProgram load(IrProgram program) {
+        int variableCount = program.variableCount();
+        int tempCount = 0;
+        int constantCount = 0;
+        for (int i = 0; i < program.size(); i++) {
+            for (int operand : operands(program, i)) {
+                if (IrProgram.kind(operand) == IrProgram.KIND_TEMP) {
+                    tempCount = Math.max(tempCount, IrProgram.index(operand) + 1);
+                } else if (IrProgram.isConstant(operand)) {
+                    constantCount++;
+                }
+            }
+        }
+
+        // Position de chaque étiquette : l'instruction réelle qui la suit
+        int[] positions = new int[program.maxLabel() + 1];
+        Arrays.fill(positions, -1);
+        int pc = 0;
+        int tableSize = 0;
+        for (int i = 0; i < program.size(); i++) {
+            if (program.opcode(i) == IrProgram.LABEL) {
+                positions[program.target(i)] = pc;
+            } else {
+                pc += STRIDE;
+                if (program.opcode(i) == IrProgram.GOTO_TABLE) {
+                    tableSize += program.tableSize(i) + 2;
+                }
+            }
+        }
+
+        int[] code = new int[pc + STRIDE];      // + HALT
+        int[] tables = new int[tableSize];
+        int[] registers = new int[variableCount + tempCount + constantCount];
+        String[] variables = new String[variableCount];
+        for (int v = 0; v < variableCount; v++) {
+            variables[v] = program.name(v << 2);
+        }
+
+        Loader loader = new Loader(program, registers, variableCount, variableCount + tempCount);
+        pc = 0;
+        int tableEnd = 0;
+        for (int i = 0; i < program.size(); i++) {
+            int opcode = program.opcode(i);
+            switch (opcode) {
+                case IrProgram.LABEL:
+                    continue;
+                case IrProgram.GOTO:
+                    code[pc] = GOTO;
+                    code[pc + 1] = position(positions, program.target(i));
+                    break;
+                case IrProgram.IF:
+                case IrProgram.IF_FALSE:
+                    int operator = opcode == IrProgram.IF ? program.operator(i) : IrProgram.negate(program.operator(i));
+                    code[pc] = IF_LT + operator - IrProgram.LT;
+                    code[pc + 1] = position(positions, program.target(i));
+                    code[pc + 2] = loader.register(program.a(i));
+                    code[pc + 3] = loader.register(program.b(i));
+                    break;
+                case IrProgram.COPY:
+                    code[pc] = COPY;
+                    code[pc + 1] = loader.register(program.target(i));
+                    code[pc + 2] = loader.register(program.a(i));
+                    break;
+                case IrProgram.BINARY:
+                    code[pc] = ADD + program.operator(i) - IrProgram.ADD;
+                    code[pc + 1] = loader.register(program.target(i));
+                    code[pc + 2] = loader.register(program.a(i));
+                    code[pc + 3] = loader.register(program.b(i));
+                    break;
+                case IrProgram.UNARY:
+                    code[pc] = NEG;
+                    code[pc + 1] = loader.register(program.target(i));
+                    code[pc + 2] = loader.register(program.a(i));
+                    break;
+                case IrProgram.GOTO_TABLE:
+                    code[pc] = TABLE;
+                    code[pc + 1] = position(positions, program.target(i));
+                    code[pc + 2] = loader.register(program.a(i));
+                    code[pc + 3] = tableEnd;
+                    tables[tableEnd++] = program.tableLow(i);
+                    tables[tableEnd++] = program.tableSize(i);
+                    for (int k = 0; k < program.tableSize(i); k++) {
+                        tables[tableEnd++] = position(positions, program.tableLabel(i, k));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown opcode " + opcode);
+            }
+            pc += STRIDE;
+        }
+        code[pc] = HALT;
+
+        return new VmProgram(code, tables, Arrays.copyOf(registers, loader.m_next), variables);
+    }
+
+    // Nombre d'instructions, HALT final compris
+    public int size() {
+        return code.length / STRIDE;
+    }
+
+    public int registerCount() {
+        return initialRegisters.length;
+    }
+
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    private static int position(int[] positions, int label) {
+        if (label < 0 || label >= positions.length || positions[label] < 0) {
+            throw new IllegalArgumentException("Undefined label _L" + label);
+        }
+        return positions[label];
+    }
+
+    private static int[] operands(IrProgram program, int i) {
+        switch (program.opcode(i)) {
+            case IrProgram.IF:
+            case IrProgram.IF_FALSE:
+                return new int[]{program.a(i), program.b(i)};
+            case IrProgram.COPY:
+            case IrProgram.UNARY:
+                return new int[]{program.target(i), program.a(i)};
+            case IrProgram.BINARY:
+                return new int[]{program.target(i), program.a(i), program.b(i)};
+            case IrProgram.GOTO_TABLE:
+                return new int[]{program.a(i)};
+            default:
+                return new int[0];
+        }
+    }
+
+    // Attribue un registre à chaque opérande ; une même constante partage un seul registre
+    private static class Loader {
+        private final IrProgram m_program;
+        private final int[] m_registers;
+        private final int m_tempBase;
+        private final HashMap<Integer, Integer> m_constantRegisters = new HashMap<>();
+        private int m_next;
+
+        Loader(IrProgram program, int[] registers, int tempBase, int constantBase) {
+            m_program = program;
+            m_registers = registers;
+            m_tempBase = tempBase;
+            m_next = constantBase;
+        }
+
+        int register(int operand) {
+            switch (IrProgram.kind(operand)) {
+                case IrProgram.KIND_VAR:
+                    return IrProgram.index(operand);
+                case IrProgram.KIND_TEMP:
+                    return m_tempBase + IrProgram.index(operand);
+                default:
+                    int value = m_program.constantValue(operand);
+                    Integer register = m_constantRegisters.get(value);
+                    if (register == null) {
+                        register = m_next++;
+                        m_registers[register] = value;
+                        m_constantRegisters.put(value, register);
+                    }
+                    return register;
+            }
+        }
+    }
+}
@@ -19,7 +19,25 @@ import analyzer.tests.*;
 @Suite.SuiteClasses({
         SemantiqueTest.class,
         IntermediateCodeGenTest.class,
-        IntermediateCodeGenFallTest.class
+        IntermediateCodeGenFallTest.class,
+        CollapsedExprTest.class,
+        FlatTreeTest.class,
+        CheckedCodeGenTest.class,
+        FusedCodeGenTest.class,
+        DiagnosticsTest.class,
+        ParseRecoveryTest.class,
+        SourcePositionTest.class,
+        CommentTest.class,
+        CharStreamTest.class,
+        ParserPoolTest.class,
+        TokenArrayTest.class,
+        DirectCodeGenTest.class,
+        PeepholeOptimizerTest.class,
+        CompilationCacheTest.class,
+        CompileStatsTest.class,
+        DeepProgramTest.class,
+        VmTest.class,
+        JvmCorpusTest.class
 })
 
 public class TestSuite {
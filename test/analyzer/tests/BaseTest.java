@@ -2,6 +2,7 @@ package analyzer.tests;
 
 import analyzer.SemantiqueError;
 import analyzer.ast.ParserVisitor;
+import analyzer.visitors.SemantiqueVisitor;
 import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.Before;
@@ -74,9 +75,32 @@ public class BaseTest {
     // print the output in the output file and assert if it's matching
     // the expect file
     public void runAndAssert(ParserVisitor algorithm) throws Exception {
+        runAndAssert(algorithm, false);
+    }
+
+    // Same as runAndAssert, but lets the test choose the collapsed parse tree
+    public void runAndAssert(ParserVisitor algorithm, boolean collapseExpr) throws Exception {
+        runAndAssert(algorithm, collapseExpr, false);
+    }
+
+    // Same as runAndAssert, but lets the test choose the flat tree (Parser.ParseFlat)
+    public void runAndAssert(ParserVisitor algorithm, boolean collapseExpr, boolean flatTree) throws Exception {
+        runAndAssert(() -> analyzer.Main.Run(algorithm, m_input, m_output, collapseExpr, flatTree));
+    }
+
+    // Same as runAndAssert, but the tree is first checked by checker, whose types the algorithm reuses
+    public void runAndAssert(SemantiqueVisitor checker, ParserVisitor algorithm) throws Exception {
+        runAndAssert(() -> analyzer.Main.Run(checker, algorithm, m_input, m_output));
+    }
+
+    private interface Compilation {
+        void run() throws Exception;
+    }
+
+    private void runAndAssert(Compilation compilation) throws Exception {
         // Run
         try {
-            analyzer.Main.Run(algorithm, m_input, m_output);
+            compilation.run();
             m_output.flush();
         }
 
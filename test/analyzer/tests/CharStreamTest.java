@@ -0,0 +1,93 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.BufferCharStream;
+import analyzer.ast.Node;
+import analyzer.ast.Parser;
+import analyzer.ast.SimpleNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Parser.ParseTree(Path) reads the file through BufferCharStream: it must build the same tree, with the same
+ * positions, as the parser reading an InputStream through JavaCharStream.
+ */
+public class CharStreamTest {
+
+    @Test
+    public void sameTreeAsTheStream() throws Exception {
+        for (String suite : new String[]{"SemantiqueTest", "IntermediateCodeGenTest", "IntermediateCodeGenFallTest"}) {
+            for (File file : new File("./test-suite/" + suite + "/data").listFiles()) {
+                byte[] source = Files.readAllBytes(file.toPath());
+                assertSameTree(file.getName(), Parser.ParseTree(new ByteArrayInputStream(source)),
+                        Parser.ParseTree(file.toPath()));
+            }
+        }
+    }
+
+    @Test
+    public void lineEndingsAndEscapes() throws Exception {
+        String[] sources = {
+                "num a;\r\nbool b;\rnum c;\n\tc = 1;\r\n",
+                "num a; /* a \\ b */ a = 1;",
+                "num \\u0061;\na = 1;\n"
+        };
+        for (String source : sources) {
+            Path file = Files.createTempFile("charstream", ".txt");
+            try {
+                Files.writeString(file, source);
+                assertSameTree(source, Parser.ParseTree(new ByteArrayInputStream(source.getBytes())),
+                        Parser.ParseTree(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+        Assert.assertTrue(BufferCharStream.open(sources[1].getBytes()) instanceof BufferCharStream);
+        Assert.assertFalse(BufferCharStream.open(sources[2].getBytes()) instanceof BufferCharStream);
+    }
+
+    @Test
+    public void largeFileKeepsItsLines() throws Exception {
+        StringBuilder source = new StringBuilder("num a;\n");
+        while (source.length() < 1 << 20) {
+            source.append("a = a + 1;\n");
+        }
+        Path file = Files.createTempFile("charstream", ".txt");
+        try {
+            Files.writeString(file, source);
+            ASTProgram root = Parser.ParseTree(file);
+            SimpleNode block = (SimpleNode) root.jjtGetChild(1);
+            SimpleNode last = (SimpleNode) block.jjtGetChild(block.jjtGetNumChildren() - 1);
+            Assert.assertEquals(block.jjtGetNumChildren() + 1, last.getLine());
+            Assert.assertEquals(10, last.getEndColumn());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void missingFileIsAnError() throws Exception {
+        try {
+            Parser.ParseTree(Path.of("./test-suite/no-such-file.txt"));
+            Assert.fail();
+        } catch (NoSuchFileException e) {
+            Assert.assertTrue(e.getFile().endsWith("no-such-file.txt"));
+        }
+    }
+
+    private static void assertSameTree(String name, Node expected, Node actual) {
+        Assert.assertEquals(name, expected.getClass(), actual.getClass());
+        Assert.assertEquals(name, ((SimpleNode) expected).getBegin(), ((SimpleNode) actual).getBegin());
+        Assert.assertEquals(name, ((SimpleNode) expected).getEnd(), ((SimpleNode) actual).getEnd());
+        Assert.assertEquals(name, expected.jjtGetNumChildren(), actual.jjtGetNumChildren());
+        for (int i = 0; i < expected.jjtGetNumChildren(); i++) {
+            assertSameTree(name, expected.jjtGetChild(i), actual.jjtGetChild(i));
+        }
+    }
+}
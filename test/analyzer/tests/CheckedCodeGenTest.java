@@ -0,0 +1,49 @@
+package analyzer.tests;
+
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Runs the code generation corpora through the check-then-generate pipeline (Main.Run with a SemantiqueVisitor).
+ * The generators read the types written on the tree instead of their own tables, and must print the same code.
+ */
+@RunWith(Parameterized.class)
+public class CheckedCodeGenTest extends BaseTest {
+
+    private final File m_file;
+
+    public CheckedCodeGenTest(File file) {
+        super(file);
+        m_file = file;
+    }
+
+    @Test
+    public void run() throws Exception {
+        SemantiqueVisitor checker = new SemantiqueVisitor(new PrintWriter(Writer.nullWriter()));
+        String suite = m_file.getParentFile().getParentFile().getName();
+        if (suite.equals("IntermediateCodeGenFallTest")) {
+            runAndAssert(checker, new IntermediateCodeGenFallVisitor(m_output));
+        } else {
+            runAndAssert(checker, new IntermediateCodeGenVisitor(m_output));
+        }
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        return files;
+    }
+
+}
@@ -0,0 +1,105 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTDeclaration;
+import analyzer.ast.ASTIdentifier;
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ast.SimpleNode;
+import analyzer.ast.TokenMgrError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Comments skipped by the lexer: they keep the positions of the tokens after them, can end the source (a line
+ * comment needs no newline before the end of the file) and are found whatever stars or slashes they hold.
+ * Every case runs on both streams: JavaCharStream, read character by character, and the array of
+ * BufferCharStream, scanned in bulk.
+ */
+public class CommentTest {
+
+    private interface Parse {
+        ASTProgram parse(String source) throws Exception;
+    }
+
+    private static final Parse[] PARSERS = {CommentTest::parseStream, CommentTest::parseFile};
+
+    @Test
+    public void tokensAfterCommentsKeepTheirPosition() throws Exception {
+        for (Parse parser : PARSERS) {
+            tokensAfterCommentsKeepTheirPosition(parser);
+        }
+    }
+
+    private static void tokensAfterCommentsKeepTheirPosition(Parse parser) throws Exception {
+        ASTProgram root = parser.parse("/* header\n"
+                + " * second line */\n"
+                + "num a; // a counter\n"
+                + "// a whole line\n"
+                + "    a = 1; /* inline */ a = 2;\n");
+        Assert.assertEquals("3:1-3:5", span((SimpleNode) root.jjtGetChild(0)));
+        SimpleNode block = (SimpleNode) root.jjtGetChild(1);
+        Assert.assertEquals("5:5-5:9", span((SimpleNode) block.jjtGetChild(0).jjtGetChild(0)));
+        Assert.assertEquals("5:25-5:29", span((SimpleNode) block.jjtGetChild(1).jjtGetChild(0)));
+    }
+
+    @Test
+    public void commentsCanEndTheSource() throws Exception {
+        for (Parse parser : PARSERS) {
+            for (String source : new String[]{"num a; // no newline", "num a; /* no newline */", "num a; //",
+                    "num a; /**/", "num a;\n//\n"}) {
+                Assert.assertEquals(source, "a", name(parser.parse(source), 0));
+            }
+        }
+    }
+
+    @Test
+    public void starsAndSlashesInsideComments() throws Exception {
+        for (Parse parser : PARSERS) {
+            ASTProgram root = parser.parse("num/**/a/***/;/* ** / */bool/*/ */b;//*\n");
+            Assert.assertEquals("num a", ((ASTDeclaration) root.jjtGetChild(0)).getValue() + " " + name(root, 0));
+            Assert.assertEquals("bool b", ((ASTDeclaration) root.jjtGetChild(1)).getValue() + " " + name(root, 1));
+        }
+    }
+
+    @Test
+    public void unterminatedCommentIsALexicalError() throws Exception {
+        for (Parse parser : PARSERS) {
+            for (String source : new String[]{"num a;\n  /* never closed *\n", "num a;\n  /*/", "num a;\n  /*"}) {
+                try {
+                    parser.parse(source);
+                    Assert.fail(source);
+                } catch (TokenMgrError e) {
+                    Assert.assertEquals("Lexical error at line 2, column 3.  Encountered: <EOF> in a comment", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static ASTProgram parseStream(String source) throws Exception {
+        return Parser.ParseTree(new ByteArrayInputStream(source.getBytes()));
+    }
+
+    // The file is plain ASCII, so Parser.ParseTree(Path) reads it through a BufferCharStream
+    private static ASTProgram parseFile(String source) throws Exception {
+        Path file = Files.createTempFile("comment", ".txt");
+        try {
+            Files.write(file, source.getBytes());
+            return Parser.ParseTree(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Name declared by the i-th declaration
+    private static String name(ASTProgram root, int i) {
+        return ((ASTIdentifier) root.jjtGetChild(i).jjtGetChild(0)).getValue();
+    }
+
+    private static String span(SimpleNode node) {
+        return node.getLine() + ":" + node.getColumn() + "-" + node.getEndLine() + ":" + node.getEndColumn();
+    }
+}
@@ -0,0 +1,111 @@
+package analyzer.tests;
+
+import analyzer.CompilationCache;
+import analyzer.SemantiqueError;
+import analyzer.ast.ParserVisitor;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Runs the three existing corpora through Main.Run with a CompilationCache, twice per file.
+ * Both runs must give the expected output (or error), and the second one must be a hit.
+ * The cache is shared by all the files and its tiers are small, so entries get evicted along the way.
+ */
+@RunWith(Parameterized.class)
+public class CompilationCacheTest extends BaseTest {
+
+    private static final Path m_directory;
+    private static final CompilationCache m_cache;
+
+    static {
+        try {
+            m_directory = Files.createTempDirectory("compilation-cache");
+            m_cache = new CompilationCache(m_directory, 4096, 8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The folder is never empty at the end, so File.deleteOnExit() would leave it behind
+    @AfterClass
+    public static void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(m_directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private final File m_file;
+
+    public CompilationCacheTest(File file) {
+        super(file);
+        m_file = file;
+    }
+
+    @Test
+    public void run() throws Exception {
+        String suite = m_file.getParentFile().getParentFile().getName();
+        String name;
+        Function<PrintWriter, ParserVisitor> newVisitor;
+        if (suite.equals("SemantiqueTest")) {
+            name = "semantic";
+            newVisitor = SemantiqueVisitor::new;
+        } else if (suite.equals("IntermediateCodeGenFallTest")) {
+            name = "fall";
+            newVisitor = IntermediateCodeGenFallVisitor::new;
+        } else {
+            name = "jump";
+            newVisitor = IntermediateCodeGenVisitor::new;
+        }
+
+        runCached(name, newVisitor);
+        long hits = m_cache.memoryHits.get() + m_cache.diskHits.get();
+        runCached(name, newVisitor);
+        Assert.assertTrue("Second run was not a hit", m_cache.memoryHits.get() + m_cache.diskHits.get() > hits);
+    }
+
+    private void runCached(String name, Function<PrintWriter, ParserVisitor> newVisitor) throws Exception {
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        try {
+            analyzer.Main.Run(name, newVisitor, new FileInputStream(m_file), writer, m_cache);
+        } catch (SemantiqueError ex) {
+            if (!ex.getMessage().contains(m_expected)) {
+                Assert.fail(ex.getMessage());
+            }
+            return;
+        }
+        Assert.assertEquals(m_expected, result.toString());
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(getFiles("./test-suite/SemantiqueTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        return files;
+    }
+
+}
@@ -0,0 +1,86 @@
+package analyzer.tests;
+
+import analyzer.CompileStats;
+import analyzer.ast.ParserVisitor;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the semantic pass and the code generator of both codegen corpora with a CompileStats.
+ * The output must not change, every phase must be recorded in order, and the counters must
+ * cover the temporaries and labels that appear in the expected code.
+ */
+@RunWith(Parameterized.class)
+public class CompileStatsTest extends BaseTest {
+
+    private static final Pattern TEMP = Pattern.compile("_t\\d+");
+    private static final Pattern LABEL = Pattern.compile("_L\\d+");
+
+    private final File m_file;
+
+    public CompileStatsTest(File file) {
+        super(file);
+        m_file = file;
+    }
+
+    @Test
+    public void run() throws Exception {
+        boolean fall = m_file.getParentFile().getParentFile().getName().equals("IntermediateCodeGenFallTest");
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        ParserVisitor codegen = fall ? new IntermediateCodeGenFallVisitor(writer) : new IntermediateCodeGenVisitor(writer);
+        CompileStats stats = new CompileStats();
+
+        analyzer.Main.Run(new FileInputStream(m_file), writer, false, stats,
+                new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), codegen);
+        Assert.assertEquals(m_expected, result.toString());
+
+        String[] phases = {"parse", "SemantiqueVisitor", codegen.getClass().getSimpleName(), "output"};
+        Assert.assertEquals(phases.length, stats.getPhases().size());
+        for (int i = 0; i < phases.length; i++) {
+            CompileStats.Phase phase = stats.getPhases().get(i);
+            Assert.assertEquals(phases[i], phase.name);
+            Assert.assertTrue(phase.wallNanos >= 0);
+            Assert.assertTrue(phase.allocatedBytes >= -1);
+        }
+        Assert.assertTrue(stats.astNodes > 0);
+        Assert.assertTrue(stats.temporaries >= distinct(TEMP, m_expected));
+        Assert.assertTrue(stats.labels >= distinct(LABEL, m_expected));
+        Assert.assertTrue(stats.toJson().contains("\"temporaries\":" + stats.temporaries));
+    }
+
+    private static int distinct(Pattern pattern, String text) {
+        Set<String> found = new HashSet<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            found.add(matcher.group());
+        }
+        return found.size();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        return files;
+    }
+
+}
@@ -0,0 +1,172 @@
+package analyzer.tests;
+
+import analyzer.CompileStats;
+import analyzer.ast.ASTIntValue;
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ast.SegmentedStack;
+import analyzer.ast.ParserVisitor;
+import analyzer.ir.IrPrinter;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.InterpreterVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.function.Function;
+
+/**
+ * Programs nested far deeper than one SegmentedStack segment, and operator chains far longer than the old
+ * right-recursive grammar allowed. They are run on a thread with a small stack: the parser and the visitors
+ * must move to new stack segments instead of throwing a StackOverflowError. Blocks and parentheses are walked
+ * by the visitors on an explicit stack, without segments. The segments themselves are bounded, and what they
+ * allocate is counted for the thread that waits for them.
+ */
+public class DeepProgramTest {
+
+    private static final int DEPTH = 20_000;
+    private static final int CHAIN = 50_000;
+    private static final long SMALL_STACK = 256 << 10;
+
+    @Test
+    public void nestedBlocks() throws Throwable {
+        String program = "num a;\n" + repeat("{", DEPTH) + "a = 1;" + repeat("}", DEPTH);
+        Assert.assertEquals("all good", run(program, SemantiqueVisitor::new));
+        Assert.assertEquals("a = 1\n_L0\n", run(program, IntermediateCodeGenVisitor::new));
+        Assert.assertEquals("a = 1\n_L0\n", run(program, IntermediateCodeGenFallVisitor::new));
+    }
+
+    @Test
+    public void nestedParentheses() throws Throwable {
+        String program = "num a;\na = " + repeat("(", DEPTH) + "1" + repeat(")", DEPTH) + ";";
+        Assert.assertEquals("all good", run(program, SemantiqueVisitor::new));
+        Assert.assertEquals("a = 1\n_L0\n", run(program, IntermediateCodeGenVisitor::new));
+        Assert.assertEquals("a = 1\n", run(program, InterpreterVisitor::new));
+    }
+
+    @Test
+    public void nestedIfs() throws Throwable {
+        String program = "num a;\n" + repeat("if (a < 1) {\n", DEPTH) + "a = a + 1;\n" + repeat("}\n", DEPTH);
+        Assert.assertEquals("all good", run(program, SemantiqueVisitor::new));
+        Assert.assertEquals("a = 1\n", run(program, InterpreterVisitor::new));
+        Assert.assertTrue(run(program, IntermediateCodeGenFallVisitor::new)
+                .startsWith(repeat("ifFalse a < 1 goto _L0\n", DEPTH) + "_t0 = a + 1\n"));
+    }
+
+    @Test
+    public void longChains() throws Throwable {
+        String program = "num a;\nbool b;\n"
+                + "a = 1" + repeat(" + 1", CHAIN - 1) + ";\n"
+                + "b = a > 0" + repeat(" && a > 0 || a < 0", CHAIN / 2) + ";\n";
+        Assert.assertEquals("all good", run(program, SemantiqueVisitor::new));
+        Assert.assertEquals("a = " + CHAIN + "\nb = 1\n", run(program, InterpreterVisitor::new));
+        Assert.assertTrue(run(program, IntermediateCodeGenVisitor::new).startsWith("_t" + (CHAIN - 2) + " = 1 + 1\n"));
+    }
+
+    @Test
+    public void blocksAndParenthesesStayOnTheThread() throws Throwable {
+        String program = "num a;\n" + repeat("{", DEPTH) + "a = " + repeat("-(", DEPTH) + "1" + repeat(")", DEPTH) + ";"
+                + repeat("}", DEPTH);
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(program.getBytes()));
+        Thread[] innermost = new Thread[1];
+        InterpreterVisitor interpreter = new InterpreterVisitor(null) {
+            @Override
+            public Object visit(ASTIntValue node, Object data) {
+                innermost[0] = Thread.currentThread();
+                return super.visit(node, data);
+            }
+        };
+        root.jjtAccept(interpreter, null);
+        Assert.assertEquals(Thread.currentThread(), innermost[0]);
+        Assert.assertEquals(1, interpreter.getVariable("a"));
+    }
+
+    @Test
+    public void directCode() throws Throwable {
+        String blocks = "num a;\n" + repeat("{", DEPTH) + "a = 1;" + repeat("}", DEPTH);
+        String parentheses = "num a;\na = " + repeat("(", DEPTH) + "1" + repeat(")", DEPTH) + ";";
+        Assert.assertEquals("a = 1\n_L0\n", runDirect(blocks));
+        Assert.assertEquals("a = 1\n_L0\n", runDirect(parentheses));
+    }
+
+    @Test
+    public void segmentsAreBounded() {
+        try {
+            nest();
+            Assert.fail();
+        } catch (StackOverflowError e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Stack segments exceed"));
+        }
+        // Every segment was released
+        Assert.assertEquals("done", SegmentedStack.call(() -> "done"));
+    }
+
+    @Test
+    public void segmentAllocationsAreCounted() {
+        CompileStats stats = new CompileStats();
+        stats.begin("segments");
+        byte[] bytes = SegmentedStack.call(() -> SegmentedStack.call(() -> new byte[1 << 20]));
+        stats.end();
+        long allocated = stats.getPhase("segments").allocatedBytes;
+        if (allocated >= 0) {
+            Assert.assertTrue(allocated >= bytes.length);
+        }
+    }
+
+    private static Object nest() {
+        return SegmentedStack.call(DeepProgramTest::nest);
+    }
+
+    // Runs the visitor on the program in a thread with a small stack and returns its output
+    private static String run(String program, Function<PrintWriter, ParserVisitor> newVisitor) throws Throwable {
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                analyzer.Main.Run(newVisitor.apply(writer), new ByteArrayInputStream(program.getBytes()), writer);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "deep-program", SMALL_STACK);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return result.toString();
+    }
+
+    // Parser.ParseCode on the program in a thread with a small stack, and the code it returns
+    private static String runDirect(String program) throws Throwable {
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                new IrPrinter(writer).print(Parser.ParseCode(new ByteArrayInputStream(program.getBytes())));
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "deep-program", SMALL_STACK);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        writer.flush();
+        return result.toString();
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder result = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            result.append(text);
+        }
+        return result.toString();
+    }
+}
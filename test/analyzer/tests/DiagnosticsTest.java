@@ -0,0 +1,83 @@
+package analyzer.tests;
+
+import analyzer.Diagnostic;
+import analyzer.SemantiqueError;
+import analyzer.ast.Parser;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * SemantiqueVisitor in collect mode: every error is kept with its position, the analysis goes on without
+ * reporting the same error twice, and the first diagnostic is the error the default mode throws.
+ */
+public class DiagnosticsTest {
+
+    @Test
+    public void collectsEveryError() throws Exception {
+        String program = "num a;\n"
+                + "bool b;\n"
+                + "Foo f;\n"
+                + "{\n"
+                + "a = b + 1;\n"
+                + "if (a) { c = 2; }\n"
+                + "b = 3 < true;\n"
+                + "while (!a) { a = -b; }\n"
+                + "b = x && y;\n"
+                + "}\n";
+        StringWriter output = new StringWriter();
+        SemantiqueVisitor visitor = new SemantiqueVisitor(new PrintWriter(output), true);
+        Parser.ParseTree(new ByteArrayInputStream(program.getBytes())).jjtAccept(visitor, null);
+
+        List<String> diagnostics = visitor.getDiagnostics().stream().map(Diagnostic::toString).collect(Collectors.toList());
+        Assert.assertEquals(List.of(
+                "3:1: Invalid use of undefined Identifier Foo",
+                "5:5: Invalid type in expression got Bool and Number was expecting Number",
+                "6:5: Invalid type in condition",
+                "6:10: Invalid use of undefined Identifier c",
+                "7:5: Invalid type in expression got Number and Bool was expecting Number",
+                "8:8: Invalid type in expression got Number was expecting Bool",
+                "8:18: Invalid type in expression got Bool was expecting Number",
+                "9:5: Invalid use of undefined Identifier x",
+                "9:10: Invalid use of undefined Identifier y"), diagnostics);
+        Assert.assertEquals(String.join("\n", diagnostics) + "\n", output.toString());
+    }
+
+    @Test
+    public void validProgram() throws Exception {
+        StringWriter output = new StringWriter();
+        SemantiqueVisitor visitor = new SemantiqueVisitor(new PrintWriter(output), true);
+        Parser.ParseTree(new ByteArrayInputStream("num a;\n{ a = 1; }".getBytes())).jjtAccept(visitor, null);
+        Assert.assertTrue(visitor.getDiagnostics().isEmpty());
+        Assert.assertEquals("all good", output.toString());
+    }
+
+    @Test
+    public void firstDiagnosticIsTheThrownError() throws Exception {
+        for (File file : new File("./test-suite/SemantiqueTest/data").listFiles()) {
+            byte[] source = Files.readAllBytes(file.toPath());
+            String thrown = null;
+            try {
+                Parser.ParseTree(new ByteArrayInputStream(source))
+                        .jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+            } catch (SemantiqueError e) {
+                thrown = e.getMessage();
+                Assert.assertEquals(0, e.getStackTrace().length);
+            }
+
+            SemantiqueVisitor visitor = new SemantiqueVisitor(new PrintWriter(Writer.nullWriter()), true);
+            Parser.ParseTree(new ByteArrayInputStream(source)).jjtAccept(visitor, null);
+            List<Diagnostic> diagnostics = visitor.getDiagnostics();
+            Assert.assertEquals(file.getName(), thrown, diagnostics.isEmpty() ? null : diagnostics.get(0).message);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package analyzer.tests;
+
+import analyzer.SemantiqueError;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+/**
+ * Parser.ParseCode emits the code while parsing, without a tree: it must give the code of the fused visitor
+ * (IntermediateCodeGenVisitor with check) on the tree of Parser.ParseTree, with the same labels, temporaries
+ * and source lines, and the same SemantiqueError for invalid programs.
+ */
+public class DirectCodeGenTest {
+
+    @Test
+    public void sameCodeAsTheVisitor() throws Exception {
+        for (String suite : new String[]{"SemantiqueTest", "IntermediateCodeGenTest", "IntermediateCodeGenFallTest", "VmTest"}) {
+            for (File file : new File("./test-suite/" + suite + "/data").listFiles()) {
+                byte[] source = Files.readAllBytes(file.toPath());
+                String expected = visitor(source);
+                Assert.assertEquals(file.getName(), expected, direct(source));
+                Assert.assertEquals(file.getName(), expected, print(() -> Parser.ParseCode(file.toPath())));
+            }
+        }
+    }
+
+    @Test
+    public void statementsInEveryPosition() throws Exception {
+        String[] sources = {
+                "num a;\nbool b;\nif (a < 1) a = 1;\nif (b) { a = 2; } else { a = 3; }\nb = !b || a > 2 && !(a == 3);\n",
+                "num a;\nwhile (a < 10) {\n  if (a > 5) { a = a * 2; } else a = a + 1;\n  {\n  }\n  ;\n}\n",
+                "num a;\nnum i;\nfor (i = 0; i < 3; i = i + 1) { for (a = 0; a < i; a = a + (i - 1) * 2) { a = -a; } }\na = i;\n",
+                "enum Color { Red, Green, Blue }\nColor c;\nnum a;\nswitch (c) {\ncase Red: a = 1; break;\ncase Green: a = 2;\ncase Blue: { a = 3; } break;\n}\na = 4;\n",
+                "num a;\nbool b;\nswitch (a) {\ncase 1: b = a < 2 || b; case 2: case 3: a = 3; break;\n"
+                        + "case 4: a = 4; case 5: while (b) { b = false; } break;\ncase 9: a = 9;\n}\n",
+                "num a;\nswitch (a) {\ncase 1: a = 1; break;\ncase 100: case 1000: a = 2; case 10000: case 100000: case 1000000: a = 3;\n}\n"
+        };
+        for (String source : sources) {
+            Assert.assertEquals(source, visitor(source.getBytes()), direct(source.getBytes()));
+        }
+    }
+
+    @Test
+    public void crashesOfTheVisitorAreErrors() throws Exception {
+        // Where the visitor fails on a cast, on programs that the check accepts, ParseCode reports a
+        // SemantiqueError with the line of the statement
+        String[][] cases = {
+                {"num a;\nfor (a = 0; a < 3; a = true) { a = a + 1; }\n",
+                        "error: Invalid use of a boolean expression outside of a condition at line 2"},
+                {"num a;\nbool b;\nfor (a = 0; a < 3; a = a + 1) {\n  b = true == b;\n}\n",
+                        "error: Invalid use of a boolean expression as a value at line 4"},
+                {"bool b;\nb = b;\nb = true == b;\n",
+                        "error: Invalid use of a boolean expression as a value at line 3"},
+                {"num a;\nbool b;\nswitch (a) {\ncase 1: a = 2;\ncase b: a = 3;\n}\n",
+                        "error: Invalid use of a boolean expression outside of a condition at line 3"}
+        };
+        for (String[] test : cases) {
+            String visitor = outcome(() -> visitor(test[0].getBytes()));
+            Assert.assertTrue(test[0] + visitor, visitor.equals(ClassCastException.class.getName())
+                    || visitor.equals(NullPointerException.class.getName()));
+            Assert.assertEquals(test[0], test[1], direct(test[0].getBytes()));
+        }
+    }
+
+    @Test
+    public void laterSemanticErrorsComeFirst() throws Exception {
+        // As with a separate check pass, a SemantiqueError after the crash wins
+        String[] sources = {
+                "num a;\nfor (a = 0; a < 3; a = true) { a = a + 1; }\nc = 1;\n",
+                "bool b;\nb = true == b;\nb = 1;\n",
+                "num a;\nbool b;\nswitch (a) {\ncase b: a = 3;\ncase c: a = 4;\n}\n"
+        };
+        for (String source : sources) {
+            String expected = visitor(source.getBytes());
+            Assert.assertTrue(source + expected, expected.startsWith("error: Invalid"));
+            Assert.assertEquals(source, expected, direct(source.getBytes()));
+        }
+    }
+
+    @Test
+    public void syntaxErrorsLeaveNothingBehind() throws Exception {
+        String program = "num a;\nwhile (a < 3) {\n  a = a + 1;\n}\n";
+        String expected = direct(program.getBytes());
+        for (String source : new String[]{"num a;\na = (1 + ;\n", "num a;\n{ a = 1;\n", "num a;\nfor (a = 0; a < 1; a = 1\n"}) {
+            try {
+                direct(source.getBytes());
+                Assert.fail(source);
+            } catch (ParseException e) {
+                // The next parse starts from a clean parser
+            }
+            Assert.assertEquals(source, expected, direct(program.getBytes()));
+        }
+    }
+
+    private interface Compiler {
+        String compile() throws Exception;
+    }
+
+    private interface CodeParser {
+        IrProgram parse() throws Exception;
+    }
+
+    // The code, or the class of the exception that stopped the compiler
+    private static String outcome(Compiler compiler) {
+        try {
+            return compiler.compile();
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String visitor(byte[] source) throws Exception {
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null, false, true);
+        try {
+            Parser.ParseTree(new ByteArrayInputStream(source)).jjtAccept(codegen, null);
+        } catch (SemantiqueError e) {
+            return "error: " + e.getMessage();
+        }
+        return print(codegen::getCode);
+    }
+
+    private static String direct(byte[] source) throws Exception {
+        return print(() -> Parser.ParseCode(new ByteArrayInputStream(source)));
+    }
+
+    // The code, with source lines, so that positions are compared too
+    private static String print(CodeParser parser) throws Exception {
+        IrProgram code;
+        try {
+            code = parser.parse();
+        } catch (SemantiqueError e) {
+            return "error: " + e.getMessage();
+        }
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        new IrPrinter(writer, true).print(code);
+        writer.flush();
+        return text.toString();
+    }
+}
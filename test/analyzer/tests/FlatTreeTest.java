@@ -0,0 +1,52 @@
+package analyzer.tests;
+
+import analyzer.ast.ParserVisitor;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Runs the three existing corpora on the flat tree (Parser.ParseFlat). The visitors see views of its nodes
+ * instead of the object tree, so the expected files are the same.
+ */
+@RunWith(Parameterized.class)
+public class FlatTreeTest extends BaseTest {
+
+    private final File m_file;
+
+    public FlatTreeTest(File file) {
+        super(file);
+        m_file = file;
+    }
+
+    @Test
+    public void run() throws Exception {
+        String suite = m_file.getParentFile().getParentFile().getName();
+        ParserVisitor algorithm;
+        if (suite.equals("SemantiqueTest")) {
+            algorithm = new SemantiqueVisitor(m_output);
+        } else if (suite.equals("IntermediateCodeGenFallTest")) {
+            algorithm = new IntermediateCodeGenFallVisitor(m_output);
+        } else {
+            algorithm = new IntermediateCodeGenVisitor(m_output);
+        }
+        runAndAssert(algorithm, false, true);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(getFiles("./test-suite/SemantiqueTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        return files;
+    }
+
+}
@@ -0,0 +1,79 @@
+package analyzer.tests;
+
+import analyzer.SemantiqueError;
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Compares the fused pass (IntermediateCodeGenVisitor with check) with the two-pass pipeline, SemantiqueVisitor
+ * then IntermediateCodeGenVisitor, on every corpus. Valid programs must give the same code, and invalid ones
+ * the same SemantiqueError message, including the programs of SemantiqueTest with several errors.
+ */
+@RunWith(Parameterized.class)
+public class FusedCodeGenTest {
+
+    private final File m_file;
+
+    public FusedCodeGenTest(File file) {
+        m_file = file;
+    }
+
+    @Test
+    public void run() throws Exception {
+        byte[] source = Files.readAllBytes(m_file.toPath());
+        Assert.assertEquals(twoPass(source), fused(source));
+    }
+
+    private static String twoPass(byte[] source) throws Exception {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source));
+        try {
+            root.jjtAccept(new SemantiqueVisitor(new PrintWriter(Writer.nullWriter())), null);
+        } catch (SemantiqueError e) {
+            return "error: " + e.getMessage();
+        }
+        return generate(root, false);
+    }
+
+    private static String fused(byte[] source) throws Exception {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(source));
+        try {
+            return generate(root, true);
+        } catch (SemantiqueError e) {
+            return "error: " + e.getMessage();
+        }
+    }
+
+    private static String generate(ASTProgram root, boolean check) {
+        StringWriter code = new StringWriter();
+        PrintWriter writer = new PrintWriter(code);
+        root.jjtAccept(new IntermediateCodeGenVisitor(writer, false, check), null);
+        writer.flush();
+        return code.toString();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(BaseTest.getFiles("./test-suite/SemantiqueTest/data"));
+        files.addAll(BaseTest.getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(BaseTest.getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        files.addAll(BaseTest.getFiles("./test-suite/VmTest/data"));
+        return files;
+    }
+
+}
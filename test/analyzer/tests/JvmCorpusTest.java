@@ -0,0 +1,114 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ir.IrProgram;
+import analyzer.jvm.CompiledProgram;
+import analyzer.jvm.JvmCompiler;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.InterpreterVisitor;
+import analyzer.vm.Vm;
+import analyzer.vm.VmProgram;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the code generation corpora, which have no expected final state, on the JvmCompiler.
+ * From zero, the final state must match the InterpreterVisitor; from seeded random states, which reach the
+ * other cases of the switch programs, it must match the Vm. The code of both generators is compiled, with and
+ * without the PeepholeOptimizer. Programs that do not halt from zero within MAX_STEPS on the Vm are skipped.
+ */
+@RunWith(Parameterized.class)
+public class JvmCorpusTest {
+
+    private static final long MAX_STEPS = 10_000_000;
+    private static final int TRIALS = 20;
+
+    private final File m_file;
+
+    public JvmCorpusTest(File file) {
+        m_file = file;
+    }
+
+    @Test
+    public void jvm() throws Exception {
+        ASTProgram root = Parser.ParseTree(new FileInputStream(m_file));
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        root.jjtAccept(codegen, null);
+        IntermediateCodeGenFallVisitor fallCodegen = new IntermediateCodeGenFallVisitor(null);
+        root.jjtAccept(fallCodegen, null);
+        String[] names = VmTest.declared(codegen);
+
+        List<IrProgram> programs = new ArrayList<>();
+        programs.add(codegen.getCode());
+        programs.add(fallCodegen.getCode());
+        IntermediateCodeGenVisitor optimizing = new IntermediateCodeGenVisitor(null, true);
+        root.jjtAccept(optimizing, null);
+        programs.add(optimizing.getCode());
+
+        Vm reference = new Vm(VmProgram.load(codegen.getCode()));
+        Assume.assumeTrue(m_file + " does not halt", reference.run(MAX_STEPS));
+        StringWriter interpreted = new StringWriter();
+        root.jjtAccept(new InterpreterVisitor(new PrintWriter(interpreted)), null);
+        String expected = interpreted.toString();
+
+        for (IrProgram code : programs) {
+            CompiledProgram program = JvmCompiler.compile(code);
+            Assert.assertEquals(expected, VmTest.execute(program, names));
+
+            Random random = new Random(m_file.getName().hashCode());
+            String[] variables = program.getVariables();
+            for (int trial = 0; trial < TRIALS; trial++) {
+                Vm vm = new Vm(VmProgram.load(code));
+                int[] state = program.newState();
+                for (int i = 0; i < variables.length; i++) {
+                    state[i] = random.nextInt(12) - 3;
+                    vm.setVariable(variables[i], state[i]);
+                }
+                boolean vmFailed = false;
+                try {
+                    if (!vm.run(MAX_STEPS)) {
+                        continue;
+                    }
+                } catch (ArithmeticException e) {
+                    vmFailed = true;
+                }
+                boolean jvmFailed = false;
+                try {
+                    program.run(state);
+                } catch (ArithmeticException e) {
+                    jvmFailed = true;
+                }
+                Assert.assertEquals("Division by zero", vmFailed, jvmFailed);
+                if (vmFailed) {
+                    continue;
+                }
+                for (int i = 0; i < variables.length; i++) {
+                    Assert.assertEquals(variables[i], vm.getVariable(variables[i]), state[i]);
+                }
+            }
+        }
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        Collection<Object[]> files = new ArrayList<>();
+        files.addAll(BaseTest.getFiles("./test-suite/IntermediateCodeGenTest/data"));
+        files.addAll(BaseTest.getFiles("./test-suite/IntermediateCodeGenFallTest/data"));
+        return files;
+    }
+
+}
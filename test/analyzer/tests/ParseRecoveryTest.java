@@ -0,0 +1,141 @@
+package analyzer.tests;
+
+import analyzer.Diagnostic;
+import analyzer.ast.ASTBoolValue;
+import analyzer.ast.ASTDeclaration;
+import analyzer.ast.ASTIdentifier;
+import analyzer.ast.ASTIntValue;
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Node;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.SemantiqueVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The recovering parser: every syntax error is noted, the parse goes on after the faulty statement, declaration
+ * or enum, and the partial tree only holds complete constructs. On a valid program it builds the same tree as
+ * the default parser.
+ */
+public class ParseRecoveryTest {
+
+    private static final String PROGRAM = "num a;\n"
+            + "bool b\n"
+            + "num ;\n"
+            + "enum E { A, }\n"
+            + "num c;\n"
+            + "a = 1\n"
+            + "b = true;\n"
+            + "if (a + ) { c = 2; } else { c = 3; }\n"
+            + ") c = 4;\n"
+            + "while (a < 3) { a = a + ; }\n"
+            + "}\n"
+            + "c = 5;\n"
+            + "{ a = 6;\n";
+
+    private static final String VALUE = "<BOOLEAN> or \"-\" or \"!\" or \"(\" or <IDENTIFIER> or <INTEGER>";
+    private static final String STATEMENT =
+            "\"if\" or \"while\" or \"for\" or \"switch\" or \"{\" or \";\" or <IDENTIFIER>";
+
+    @Test
+    public void reportsEverySyntaxError() throws Exception {
+        List<ParseException> errors = new ArrayList<>();
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes()), false, errors);
+
+        List<String> diagnostics = errors.stream().map(e -> Diagnostic.of(e).toString()).collect(Collectors.toList());
+        Assert.assertEquals(List.of(
+                "3:1: Syntax error at \"num\", expecting \";\"",
+                "3:5: Syntax error at \";\", expecting <IDENTIFIER>",
+                "4:13: Syntax error at \"}\", expecting <IDENTIFIER>",
+                "7:1: Syntax error at \"b\", expecting <COMPARE> or <MULOP> or <BOOLOP> or \"+\" or \"-\" or \";\"",
+                "8:9: Syntax error at \")\", expecting " + VALUE,
+                "9:1: Syntax error at \")\", expecting " + STATEMENT,
+                "10:25: Syntax error at \";\", expecting " + VALUE,
+                "11:1: Syntax error at \"}\", expecting " + STATEMENT,
+                "13:9: Syntax error at end of file, expecting \"}\""), diagnostics);
+
+        // The faulty if, the broken declaration and the enum are left out; the rest can still be checked
+        // and compiled
+        StringWriter output = new StringWriter();
+        root.jjtAccept(new SemantiqueVisitor(new PrintWriter(output)), null);
+        Assert.assertEquals("all good", output.toString());
+        StringWriter code = new StringWriter();
+        root.jjtAccept(new IntermediateCodeGenVisitor(new PrintWriter(code)), null);
+        Assert.assertTrue(code.toString().startsWith("a = 1\n"));
+        Assert.assertTrue(code.toString().contains("\nc = 4\n"));
+        Assert.assertTrue(code.toString().endsWith("\nc = 5\n_L12\na = 6\n_L0\n"));
+    }
+
+    @Test
+    public void firstErrorIsTheThrownError() throws Exception {
+        ParseException thrown = null;
+        try {
+            Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes()));
+        } catch (ParseException e) {
+            thrown = e;
+        }
+        Assert.assertNotNull(thrown);
+
+        List<ParseException> errors = new ArrayList<>();
+        Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes()), false, errors);
+        Assert.assertEquals(thrown.getMessage(), errors.get(0).getMessage());
+    }
+
+    @Test
+    public void validProgramsGiveTheSameTree() throws Exception {
+        for (String suite : new String[]{"SemantiqueTest", "IntermediateCodeGenTest", "IntermediateCodeGenFallTest"}) {
+            for (File file : new File("./test-suite/" + suite + "/data").listFiles()) {
+                byte[] source = Files.readAllBytes(file.toPath());
+                List<ParseException> errors = new ArrayList<>();
+                ASTProgram recovered = Parser.ParseTree(new ByteArrayInputStream(source), false, errors);
+                Assert.assertEquals(file.getName(), List.of(), errors);
+                assertSameTree(file.getName(), Parser.ParseTree(new ByteArrayInputStream(source)), recovered);
+            }
+        }
+    }
+
+    @Test
+    public void mainPrintsSyntaxErrorsFirst() throws Exception {
+        StringWriter output = new StringWriter();
+        List<Diagnostic> diagnostics = analyzer.Main.Diagnose(
+                new ByteArrayInputStream("num a;\na = 1\nb = a;\nnum;\n".getBytes()), new PrintWriter(output));
+        Assert.assertEquals(3, diagnostics.size());
+        Assert.assertEquals("3:1: Syntax error at \"b\", expecting <COMPARE> or <MULOP> or <BOOLOP> or \"+\" or \"-\" "
+                + "or \";\"\n"
+                + "4:1: Syntax error at \"num\", expecting " + STATEMENT + "\n"
+                + "3:1: Invalid use of undefined Identifier b\n", output.toString());
+    }
+
+    private static void assertSameTree(String name, Node expected, Node actual) {
+        Assert.assertEquals(name, expected.getClass(), actual.getClass());
+        Assert.assertEquals(name, value(expected), value(actual));
+        Assert.assertEquals(name, expected.jjtGetNumChildren(), actual.jjtGetNumChildren());
+        for (int i = 0; i < expected.jjtGetNumChildren(); i++) {
+            assertSameTree(name, expected.jjtGetChild(i), actual.jjtGetChild(i));
+        }
+    }
+
+    private static Object value(Node node) {
+        if (node instanceof ASTDeclaration) {
+            return ((ASTDeclaration) node).getValue();
+        } else if (node instanceof ASTIdentifier) {
+            return ((ASTIdentifier) node).getValue();
+        } else if (node instanceof ASTIntValue) {
+            return ((ASTIntValue) node).getValue();
+        } else if (node instanceof ASTBoolValue) {
+            return ((ASTBoolValue) node).getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.ParseException;
+import analyzer.ast.Parser;
+import analyzer.ast.TokenMgrError;
+import analyzer.ir.IrPrinter;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parser.ParseTree reuses the parser of the thread: nothing of a parse, even a failed one, may leak into the next.
+ */
+public class ParserPoolTest {
+
+    private static final String PROGRAM = "num a;\nbool b;\nwhile (a < 3) {\n  a = a + 1;\n}\nb = a == 3;\n";
+
+    @Test
+    public void failedParsesLeaveNothingBehind() throws Exception {
+        String expected = compile(PROGRAM);
+        String expectedFlat = compileFlat(PROGRAM);
+        String[] broken = {"num a;\na = (1 + ;\n", "num a;\n{ a = 1;\n", "num a @ b;\n", "num a; /* open"};
+        for (String source : broken) {
+            try {
+                parse(source);
+                Assert.fail(source);
+            } catch (ParseException | TokenMgrError e) {
+                // The next parse starts from a clean parser
+            }
+            Assert.assertEquals(source, expected, compile(PROGRAM));
+        }
+        List<ParseException> errors = new ArrayList<>();
+        Parser.ParseTree(new ByteArrayInputStream(broken[0].getBytes()), false, errors);
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals(expected, compile(PROGRAM));
+        Assert.assertEquals(expectedFlat, compileFlat(PROGRAM));
+    }
+
+    @Test
+    public void eachThreadHasItsParser() throws Exception {
+        String expected = compile(PROGRAM);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(threads.submit(() -> compile(PROGRAM)));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private static ASTProgram parse(String source) throws ParseException {
+        return Parser.ParseTree(new ByteArrayInputStream(source.getBytes()));
+    }
+
+    // The code, with source lines, so that positions are compared too
+    private static String compile(String source) throws ParseException {
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        parse(source).jjtAccept(codegen, null);
+        return print(codegen, true);
+    }
+
+    // The flat tree keeps no positions
+    private static String compileFlat(String source) throws ParseException {
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        Parser.ParseFlat(new ByteArrayInputStream(source.getBytes())).accept(codegen, null);
+        return print(codegen, false);
+    }
+
+    private static String print(IntermediateCodeGenVisitor codegen, boolean lines) {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        new IrPrinter(writer, lines).print(codegen.getCode());
+        writer.flush();
+        return text.toString();
+    }
+}
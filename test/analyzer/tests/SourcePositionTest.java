@@ -0,0 +1,99 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ast.SimpleNode;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Begin and end positions written by the parser on every node, and the source line kept with each instruction
+ * of the generated code.
+ */
+public class SourcePositionTest {
+
+    private static final String PROGRAM = "num a;\n"
+            + "bool b;\n"
+            + "while (a < 3) {\n"
+            + "  a = a + 1;\n"
+            + "  b = !(a > 2);\n"
+            + "}\n"
+            + "if (b) a = 0;\n";
+
+    @Test
+    public void nodesSpanTheirTokens() throws Exception {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes()));
+        SimpleNode block = (SimpleNode) root.jjtGetChild(2);
+        SimpleNode loop = (SimpleNode) block.jjtGetChild(0).jjtGetChild(0);
+        Assert.assertEquals("3:1-6:1", span(loop));
+
+        SimpleNode body = (SimpleNode) loop.jjtGetChild(1);
+        SimpleNode assign = (SimpleNode) body.jjtGetChild(1).jjtGetChild(0);
+        Assert.assertEquals("5:3-5:14", span(assign));
+        Assert.assertEquals("5:7-5:14", span((SimpleNode) assign.jjtGetChild(1)));
+
+        Assert.assertEquals("1:1-1:5", span((SimpleNode) root.jjtGetChild(0)));
+        Assert.assertEquals("1:5-1:5", span((SimpleNode) root.jjtGetChild(0).jjtGetChild(0)));
+    }
+
+    @Test
+    public void emptyBlockEndsWhereItBegins() throws Exception {
+        ASTProgram root = Parser.ParseTree(new ByteArrayInputStream("num a;\nwhile (a < 1) {\n}\n".getBytes()));
+        SimpleNode loop = (SimpleNode) root.jjtGetChild(1).jjtGetChild(0).jjtGetChild(0);
+        Assert.assertEquals("3:1-3:1", span((SimpleNode) loop.jjtGetChild(1)));
+    }
+
+    @Test
+    public void instructionsKeepTheirSourceLine() throws Exception {
+        IntermediateCodeGenVisitor jump = new IntermediateCodeGenVisitor(null);
+        Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes())).jjtAccept(jump, null);
+        Assert.assertEquals("3\t_L2\n"
+                + "3\tif a < 3 goto _L3\n"
+                + "3\tgoto _L1\n"
+                + "3\t_L3\n"
+                + "4\t_t0 = a + 1\n"
+                + "4\ta = _t0\n"
+                + "4\t_L4\n"
+                + "5\tif a > 2 goto _L6\n"
+                + "5\tgoto _L5\n"
+                + "5\t_L5\n"
+                + "5\tb = 1\n"
+                + "5\tgoto _L2\n"
+                + "5\t_L6\n"
+                + "5\tb = 0\n"
+                + "3\tgoto _L2\n"
+                + "6\t_L1\n"
+                + "7\tif b == 1 goto _L7\n"
+                + "7\tgoto _L0\n"
+                + "7\t_L7\n"
+                + "7\ta = 0\n"
+                + "7\t_L0\n", print(jump.getCode()));
+
+        IntermediateCodeGenFallVisitor fall = new IntermediateCodeGenFallVisitor(null);
+        Parser.ParseTree(new ByteArrayInputStream(PROGRAM.getBytes())).jjtAccept(fall, null);
+        IrProgram code = fall.getCode();
+        for (int i = 0; i < code.size(); i++) {
+            Assert.assertTrue(IrPrinter.toString(code, i), code.line(i) >= 3 && code.line(i) <= 7);
+        }
+    }
+
+    private static String span(SimpleNode node) {
+        return node.getLine() + ":" + node.getColumn() + "-" + node.getEndLine() + ":" + node.getEndColumn();
+    }
+
+    private static String print(IrProgram code) {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        new IrPrinter(writer, true).print(code);
+        writer.flush();
+        return text.toString();
+    }
+}
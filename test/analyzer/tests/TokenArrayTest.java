@@ -0,0 +1,146 @@
+package analyzer.tests;
+
+import analyzer.ast.BufferCharStream;
+import analyzer.ast.JavaCharStream;
+import analyzer.ast.Operator;
+import analyzer.ast.ParserConstants;
+import analyzer.ast.ParserTokenManager;
+import analyzer.ast.Symbols;
+import analyzer.ast.Token;
+import analyzer.ast.TokenArray;
+import analyzer.ast.TokenMgrError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * TokenArray must give the tokens of ParserTokenManager, with the values the parser would decode from their text.
+ */
+public class TokenArrayTest {
+
+    @Test
+    public void sameTokensAsTheTokenManager() throws Exception {
+        int checked = 0;
+        for (String suite : new String[]{"SemantiqueTest", "IntermediateCodeGenTest", "IntermediateCodeGenFallTest"}) {
+            for (File file : new File("./test-suite/" + suite + "/data").listFiles()) {
+                byte[] source = Files.readAllBytes(file.toPath());
+                if (BufferCharStream.open(source) instanceof BufferCharStream) {
+                    assertSameTokens(file.getName(), source);
+                    checked++;
+                }
+            }
+        }
+        Assert.assertTrue(checked > 0);
+    }
+
+    @Test
+    public void valuesAreDecoded() {
+        TokenArray tokens = TokenArray.lex("num ab; bool c; ab = 2147483647 * 0; c = true && ab <= 7 || false; ab = ab % 3;"
+                .getBytes());
+        Symbols symbols = tokens.symbols();
+        Assert.assertEquals(2, symbols.size());
+        Assert.assertEquals("ab", symbols.name(0));
+        Assert.assertEquals("c", symbols.name(1));
+        Assert.assertEquals(ParserConstants.TYPE, tokens.kind(0));
+        Assert.assertEquals(TokenArray.NONE, tokens.value(0));
+        Assert.assertEquals(0, tokens.value(1));
+        Assert.assertEquals(0, tokens.value(6));
+        Assert.assertEquals(2147483647, tokens.value(8));
+        Assert.assertEquals(Operator.MUL, tokens.value(9));
+        Assert.assertEquals(0, tokens.value(10));
+        Assert.assertEquals(1, tokens.value(14));
+        Assert.assertEquals(Operator.AND, tokens.value(15));
+        Assert.assertEquals(Operator.LE, tokens.value(17));
+        Assert.assertEquals(Operator.OR, tokens.value(19));
+        Assert.assertEquals(0, tokens.value(20));
+        Assert.assertEquals(Operator.MOD, tokens.value(25));
+        Assert.assertEquals(29, tokens.size());
+        int eof = tokens.size() - 1;
+        Assert.assertEquals(ParserConstants.EOF, tokens.kind(eof));
+        Assert.assertEquals(0, tokens.length(eof));
+    }
+
+    @Test
+    public void manyIdentifiers() {
+        StringBuilder source = new StringBuilder();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 5000; i++) {
+                source.append("v").append(i).append(" = ").append(i).append(";\n");
+            }
+        }
+        TokenArray tokens = TokenArray.lex(source.toString().getBytes());
+        Assert.assertEquals(5000, tokens.symbols().size());
+        for (int i = 0; i + 1 < tokens.size(); i += 4) {
+            int symbol = tokens.value(i);
+            Assert.assertEquals(tokens.text(i), tokens.symbols().name(symbol));
+            Assert.assertEquals(symbol, tokens.value(i + 2));
+        }
+    }
+
+    @Test
+    public void errorsAreTheParserErrors() {
+        try {
+            TokenArray.lex("num a; a = 2147483648;".getBytes());
+            Assert.fail();
+        } catch (NumberFormatException e) {
+            Assert.assertTrue(e.getMessage().contains("2147483648"));
+        }
+        try {
+            TokenArray.lex("num a; /* open".getBytes());
+            Assert.fail();
+        } catch (TokenMgrError e) {
+            Assert.assertTrue(e.getMessage().contains("<EOF>"));
+        }
+        try {
+            TokenArray.lex("num \\u0061;".getBytes());
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // The source has to be read through JavaCharStream
+        }
+    }
+
+    private static void assertSameTokens(String name, byte[] source) {
+        ParserTokenManager manager = new ParserTokenManager(new JavaCharStream(new ByteArrayInputStream(source)));
+        TokenArray tokens;
+        try {
+            tokens = TokenArray.lex(source);
+        } catch (TokenMgrError e) {
+            // A lexical error must be found by the token manager too
+            try {
+                while (manager.getNextToken().kind != ParserConstants.EOF) {
+                }
+                Assert.fail(name);
+            } catch (TokenMgrError expected) {
+                Assert.assertEquals(name, expected.getMessage(), e.getMessage());
+            }
+            return;
+        }
+        int i = 0;
+        for (Token token = manager.getNextToken(); ; token = manager.getNextToken(), i++) {
+            Assert.assertEquals(name, token.kind, tokens.kind(i));
+            if (token.kind == ParserConstants.EOF) {
+                break;
+            }
+            Assert.assertEquals(name, token.image, tokens.text(i));
+            switch (token.kind) {
+                case ParserConstants.INTEGER:
+                    Assert.assertEquals(name, Integer.parseInt(token.image), tokens.value(i));
+                    break;
+                case ParserConstants.IDENTIFIER:
+                    Assert.assertEquals(name, token.image, tokens.symbols().name(tokens.value(i)));
+                    break;
+                case ParserConstants.COMPARE:
+                case ParserConstants.MULOP:
+                case ParserConstants.BOOLOP:
+                    Assert.assertEquals(name, Operator.of(token.image), tokens.value(i));
+                    break;
+                default:
+                    break;
+            }
+        }
+        Assert.assertEquals(name, i + 1, tokens.size());
+    }
+}
@@ -0,0 +1,126 @@
+package analyzer.tests;
+
+import analyzer.ast.ASTProgram;
+import analyzer.ast.Parser;
+import analyzer.ir.IrPrinter;
+import analyzer.ir.IrProgram;
+import analyzer.ir.PeepholeOptimizer;
+import analyzer.jvm.CompiledProgram;
+import analyzer.jvm.JvmCompiler;
+import analyzer.visitors.IntermediateCodeGenFallVisitor;
+import analyzer.visitors.IntermediateCodeGenVisitor;
+import analyzer.visitors.InterpreterVisitor;
+import analyzer.vm.Vm;
+import analyzer.vm.VmProgram;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * The expected files hold the final value of every declared variable.
+ * They are checked against the InterpreterVisitor, then against the Vm running the code of
+ * both generators, with and without the PeepholeOptimizer and after a round trip through the text format,
+ * and finally against the same code compiled to JVM bytecode by the JvmCompiler.
+ */
+@RunWith(Parameterized.class)
+public class VmTest extends BaseTest {
+
+    private static String m_test_suite_path = "./test-suite/VmTest/data";
+    private static final long MAX_STEPS = 10_000_000;
+
+    private final File m_file;
+
+    public VmTest(File file) {
+        super(file);
+        m_file = file;
+    }
+
+    @Test
+    public void interpreter() throws Exception {
+        runAndAssert(new InterpreterVisitor(m_output));
+    }
+
+    @Test
+    public void vm() throws Exception {
+        ASTProgram root = Parser.ParseTree(new FileInputStream(m_file));
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        root.jjtAccept(codegen, null);
+        IntermediateCodeGenFallVisitor fallCodegen = new IntermediateCodeGenFallVisitor(null);
+        root.jjtAccept(fallCodegen, null);
+        String[] names = declared(codegen);
+
+        IrProgram code = codegen.getCode();
+        Assert.assertEquals(m_expected, execute(VmProgram.load(code), names));
+        Assert.assertEquals(m_expected, execute(VmProgram.load(fallCodegen.getCode()), names));
+
+        StringWriter text = new StringWriter();
+        new IrPrinter(new PrintWriter(text)).print(code);
+        Assert.assertEquals(m_expected, execute(VmProgram.parse(new StringReader(text.toString())), names));
+
+        new PeepholeOptimizer().optimize(code);
+        Assert.assertEquals(m_expected, execute(VmProgram.load(code), names));
+    }
+
+    @Test
+    public void jvm() throws Exception {
+        ASTProgram root = Parser.ParseTree(new FileInputStream(m_file));
+        IntermediateCodeGenVisitor codegen = new IntermediateCodeGenVisitor(null);
+        root.jjtAccept(codegen, null);
+        IntermediateCodeGenFallVisitor fallCodegen = new IntermediateCodeGenFallVisitor(null);
+        root.jjtAccept(fallCodegen, null);
+        String[] names = declared(codegen);
+
+        IrProgram code = codegen.getCode();
+        Assert.assertEquals(m_expected, execute(JvmCompiler.compile(code), names));
+        Assert.assertEquals(m_expected, execute(JvmCompiler.compile(fallCodegen.getCode()), names));
+        new PeepholeOptimizer().optimize(code);
+        Assert.assertEquals(m_expected, execute(JvmCompiler.compile(code), names));
+    }
+
+    // The declared variables, sorted by name
+    static String[] declared(IntermediateCodeGenVisitor codegen) {
+        TreeSet<String> variables = new TreeSet<>();
+        for (int symbol = 0; symbol < codegen.SymbolTable.length; symbol++) {
+            IntermediateCodeGenVisitor.VarType type = codegen.SymbolTable[symbol];
+            if (type != null && type != IntermediateCodeGenVisitor.VarType.EnumType) {
+                variables.add(codegen.getSymbols().name(symbol));
+            }
+        }
+        return variables.toArray(new String[0]);
+    }
+
+    static String execute(CompiledProgram program, String[] names) {
+        int[] state = program.newState();
+        program.run(state);
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        program.printState(state, writer, names);
+        writer.flush();
+        return result.toString();
+    }
+
+    private static String execute(VmProgram program, String[] names) {
+        Vm vm = new Vm(program);
+        Assert.assertTrue("Program did not halt", vm.run(MAX_STEPS));
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+        vm.printState(writer, names);
+        writer.flush();
+        return result.toString();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFiles() {
+        return getFiles(m_test_suite_path);
+    }
+
+}